@@ -0,0 +1,84 @@
+package me.afoo.mcp4j.bench;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import me.afoo.mcp4j.protocol.mcp.ToolAnnotations;
+import me.afoo.mcp4j.schema.JsonSchema;
+import me.afoo.mcp4j.tool.Tool;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Inputs shared by the benchmarks, shaped like what agents actually send.
+ */
+public final class Fixtures {
+    /** A search tool's schema: strings with bounds, an enum, numbers and a nested array of objects. */
+    public static final JsonNode SEARCH_SCHEMA = JsonSchema.object()
+            .property("query", JsonSchema.string().minLength(1).maxLength(512).required())
+            .property("mode", JsonSchema.string().enumValues("keyword", "semantic", "hybrid"))
+            .property("limit", JsonSchema.integer().minimum(1).maximum(100))
+            .property("threshold", JsonSchema.number().minimum(0).maximum(1))
+            .property("filters", JsonSchema.array().items(JsonSchema.object()
+                    .property("field", JsonSchema.string().required())
+                    .property("value", JsonSchema.string().required())))
+            .build();
+
+    public static final String TOOLS_CALL_JSON = "{\"jsonrpc\":\"2.0\",\"id\":42,\"method\":\"tools/call\","
+            + "\"params\":{\"name\":\"search\",\"arguments\":{\"query\":\"timer wheel implementations\","
+            + "\"mode\":\"hybrid\",\"limit\":20,\"threshold\":0.35,"
+            + "\"filters\":[{\"field\":\"lang\",\"value\":\"java\"},{\"field\":\"year\",\"value\":\"2024\"}]},"
+            + "\"_meta\":{\"progressToken\":\"p-42\"}}}";
+
+    public static final byte[] TOOLS_CALL_BYTES = TOOLS_CALL_JSON.getBytes(StandardCharsets.UTF_8);
+
+    private Fixtures() {
+    }
+
+    public static Map<String, Object> searchArguments() {
+        Map<String, Object> args = new LinkedHashMap<>();
+        args.put("query", "timer wheel implementations");
+        args.put("mode", "hybrid");
+        args.put("limit", 20);
+        args.put("threshold", 0.35);
+        args.put("filters", Arrays.asList(filter("lang", "java"), filter("year", "2024")));
+        return args;
+    }
+
+    private static Map<String, Object> filter(String field, String value) {
+        Map<String, Object> filter = new LinkedHashMap<>();
+        filter.put("field", field);
+        filter.put("value", value);
+        return filter;
+    }
+
+    public static Tool searchTool() {
+        return Tool.builder()
+                .name("search")
+                .description("Search the index")
+                .inputSchema(SEARCH_SCHEMA)
+                .annotations(ToolAnnotations.builder().readOnly(true).build())
+                .handler(params -> "3 results for " + params.get("query"))
+                .build();
+    }
+
+    /**
+     * A registry's worth of tools for tools/list, all with the search schema.
+     */
+    public static List<Tool> manyTools(int count) {
+        List<Tool> tools = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            tools.add(Tool.builder()
+                    .name("tool_" + i)
+                    .description("Benchmark tool number " + i + " with a description of typical length")
+                    .inputSchema(SEARCH_SCHEMA)
+                    .annotations(ToolAnnotations.builder().readOnly(i % 2 == 0).idempotent(true).build())
+                    .handler(params -> "ok")
+                    .build());
+        }
+        return tools;
+    }
+}
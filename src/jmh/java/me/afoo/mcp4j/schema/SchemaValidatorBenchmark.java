@@ -0,0 +1,78 @@
+package me.afoo.mcp4j.schema;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import me.afoo.mcp4j.bench.Fixtures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validating arguments against a compiled schema: the valid (fast) path, the invalid
+ * (error-collecting) path, and compiling the schema itself.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SchemaValidatorBenchmark {
+    private static final JsonNode SCHEMA = JsonSchema.object()
+            .property("query", JsonSchema.string().minLength(1).maxLength(512).required())
+            .property("limit", JsonSchema.integer().minimum(1).maximum(100))
+            .property("sort", JsonSchema.string().enumValues("relevance", "date", "name"))
+            .property("filters", JsonSchema.object()
+                    .property("language", JsonSchema.string())
+                    .property("minStars", JsonSchema.number().minimum(0)))
+            .property("paths", JsonSchema.array().items(JsonSchema.string().maxLength(256)))
+            .build();
+
+    private final SchemaValidator validator = SchemaValidator.compile(SCHEMA);
+    private final SchemaValidator searchValidator = SchemaValidator.compile(Fixtures.SEARCH_SCHEMA);
+    private final Map<String, Object> search = Fixtures.searchArguments();
+    private Map<String, Object> valid;
+    private Map<String, Object> invalid;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        valid = mapper.readValue("{\"query\":\"hashed wheel timer\",\"limit\":20,"
+                + "\"sort\":\"date\",\"filters\":{\"language\":\"java\",\"minStars\":10},"
+                + "\"paths\":[\"src/main\",\"src/test\",\"docs\"]}", Map.class);
+        invalid = mapper.readValue("{\"limit\":500,\"sort\":\"stars\","
+                + "\"filters\":{\"minStars\":-1},\"paths\":[\"ok\",42]}", Map.class);
+    }
+
+    @Benchmark
+    public SchemaValidator.ValidationResult valid() {
+        return validator.validate(valid);
+    }
+
+    @Benchmark
+    public SchemaValidator.ValidationResult invalid() {
+        return validator.validate(invalid);
+    }
+
+    @Benchmark
+    public SchemaValidator.ValidationResult arrayOfObjects() {
+        return searchValidator.validate(search);
+    }
+
+    @Benchmark
+    public SchemaValidator compile() {
+        return SchemaValidator.compile(SCHEMA);
+    }
+}
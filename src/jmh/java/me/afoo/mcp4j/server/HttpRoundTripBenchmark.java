@@ -0,0 +1,176 @@
+package me.afoo.mcp4j.server;
+
+import me.afoo.mcp4j.bench.Fixtures;
+import me.afoo.mcp4j.transport.TransportType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A tools/call POST over loopback through the whole stack: HTTP engine, McpHttpHandler, schema
+ * validation, tool and response writing.
+ *
+ * The client is a bare keep-alive socket with TCP_NODELAY that writes each request in one
+ * segment, so the numbers reflect the server and not client-side buffering or Nagle delays.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HttpRoundTripBenchmark {
+    @Param({"JDK", "NIO"})
+    public TransportType transport;
+
+    private McpServer server;
+    private Socket socket;
+    private OutputStream out;
+    private InputStream in;
+    private String path;
+    private String sessionId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        server = McpServer.builder()
+                .port(0)
+                .transport(transport)
+                .tool(Fixtures.searchTool())
+                .build();
+        server.start();
+        URL url = new URL(server.getAddress());
+        path = url.getPath();
+
+        socket = new Socket();
+        socket.setTcpNoDelay(true);
+        socket.connect(new InetSocketAddress(url.getHost(), url.getPort()));
+        out = socket.getOutputStream();
+        in = new BufferedInputStream(socket.getInputStream());
+
+        String initialize = "{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"initialize\","
+                + "\"params\":{\"protocolVersion\":\"2025-03-26\","
+                + "\"clientInfo\":{\"name\":\"bench\",\"version\":\"1.0\"}}}";
+        Response response = post(initialize.getBytes(StandardCharsets.UTF_8));
+        sessionId = response.sessionId;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        socket.close();
+        server.stop();
+    }
+
+    @Benchmark
+    public int toolsCall() throws IOException {
+        return post(Fixtures.TOOLS_CALL_BYTES).bodyLength;
+    }
+
+    private Response post(byte[] body) throws IOException {
+        StringBuilder head = new StringBuilder(256)
+                .append("POST ").append(path).append(" HTTP/1.1\r\n")
+                .append("Host: localhost\r\n")
+                .append("Content-Type: application/json\r\n")
+                .append("Accept: application/json\r\n")
+                .append("Content-Length: ").append(body.length).append("\r\n");
+        if (sessionId != null) {
+            head.append("Mcp-Session-Id: ").append(sessionId).append("\r\n");
+        }
+        head.append("\r\n");
+        ByteArrayOutputStream request = new ByteArrayOutputStream(head.length() + body.length);
+        request.write(head.toString().getBytes(StandardCharsets.US_ASCII));
+        request.write(body);
+        request.writeTo(out);
+        out.flush();
+        return readResponse();
+    }
+
+    private Response readResponse() throws IOException {
+        String status = readLine();
+        if (!status.startsWith("HTTP/1.1 200")) {
+            throw new IOException("Unexpected status line: " + status);
+        }
+        Response response = new Response();
+        long contentLength = -1;
+        boolean chunked = false;
+        String line;
+        while (!(line = readLine()).isEmpty()) {
+            int colon = line.indexOf(':');
+            String name = line.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+            String value = line.substring(colon + 1).trim();
+            if (name.equals("content-length")) {
+                contentLength = Long.parseLong(value);
+            } else if (name.equals("transfer-encoding")) {
+                chunked = value.equalsIgnoreCase("chunked");
+            } else if (name.equals("mcp-session-id")) {
+                response.sessionId = value;
+            }
+        }
+        if (chunked) {
+            long size;
+            while ((size = Long.parseLong(readLine().split(";")[0].trim(), 16)) > 0) {
+                skip(size);
+                readLine();
+                response.bodyLength += (int) size;
+            }
+            readLine();
+        } else {
+            skip(contentLength);
+            response.bodyLength = (int) contentLength;
+        }
+        return response;
+    }
+
+    private String readLine() throws IOException {
+        StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = in.read()) != '\n') {
+            if (c < 0) {
+                throw new IOException("Connection closed");
+            }
+            if (c != '\r') {
+                line.append((char) c);
+            }
+        }
+        return line.toString();
+    }
+
+    private void skip(long count) throws IOException {
+        while (count > 0) {
+            long skipped = in.skip(count);
+            if (skipped <= 0) {
+                if (in.read() < 0) {
+                    throw new IOException("Connection closed");
+                }
+                skipped = 1;
+            }
+            count -= skipped;
+        }
+    }
+
+    private static final class Response {
+        String sessionId;
+        int bodyLength;
+    }
+}
@@ -0,0 +1,42 @@
+package me.afoo.mcp4j.server;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import me.afoo.mcp4j.bench.Fixtures;
+import me.afoo.mcp4j.protocol.jsonrpc.JsonRpcRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing a tools/call envelope: the streaming codec the handler uses, against plain databind.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonRpcCodecBenchmark {
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final JsonRpcCodec codec = new JsonRpcCodec(mapper);
+
+    @Benchmark
+    public JsonRpcCodec.Messages codec() throws IOException {
+        return codec.readMessages(new ByteArrayInputStream(Fixtures.TOOLS_CALL_BYTES));
+    }
+
+    @Benchmark
+    public JsonRpcRequest databind() throws IOException {
+        return mapper.readValue(Fixtures.TOOLS_CALL_BYTES, JsonRpcRequest.class);
+    }
+}
@@ -0,0 +1,55 @@
+package me.afoo.mcp4j.server;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import me.afoo.mcp4j.bench.Fixtures;
+import me.afoo.mcp4j.protocol.mcp.ToolInfo;
+import me.afoo.mcp4j.protocol.mcp.ToolsListResult;
+import me.afoo.mcp4j.tool.Tool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Serializing a tools/list result. The handler caches the bytes per registry version, so this
+ * is the cost paid whenever the registry changes.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ToolsListBenchmark {
+    @Param({"10", "100"})
+    public int tools;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private ToolsListResult result;
+
+    @Setup
+    public void setUp() {
+        List<Tool> all = Fixtures.manyTools(tools);
+        result = new ToolsListResult(all.stream()
+                .map(tool -> new ToolInfo(tool.getName(), tool.getDescription(),
+                        tool.getInputSchema(), tool.getAnnotations()))
+                .collect(Collectors.toList()));
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return mapper.writeValueAsBytes(result);
+    }
+}
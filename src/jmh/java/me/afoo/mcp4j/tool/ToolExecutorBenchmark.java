@@ -0,0 +1,59 @@
+package me.afoo.mcp4j.tool;
+
+import me.afoo.mcp4j.bench.Fixtures;
+import me.afoo.mcp4j.protocol.mcp.ToolsCallResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookup, validation, invocation and result wrapping of a synchronous tool, with and without a
+ * timeout armed on the timer wheel.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ToolExecutorBenchmark {
+    private final Map<String, Object> arguments = Fixtures.searchArguments();
+    private ToolExecutor executor;
+    private ToolExecutor timedExecutor;
+
+    @Setup
+    public void setUp() {
+        ToolRegistry registry = new ToolRegistry();
+        registry.register(Fixtures.searchTool());
+        executor = new ToolExecutor(registry);
+        timedExecutor = new ToolExecutor(registry, Duration.ofSeconds(30));
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.close();
+        timedExecutor.close();
+    }
+
+    @Benchmark
+    public ToolsCallResult execute() {
+        return executor.execute("search", arguments);
+    }
+
+    @Benchmark
+    public ToolsCallResult executeWithTimeout() {
+        return timedExecutor.execute("search", arguments);
+    }
+}
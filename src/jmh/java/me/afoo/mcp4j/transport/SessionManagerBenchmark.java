@@ -0,0 +1,99 @@
+package me.afoo.mcp4j.transport;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Session validation with many live sessions, from several threads. Run with -prof gc to
+ * check that the touch path allocates nothing.
+ *
+ * createSessions fills a fresh manager and reports the memory it retains per session as the
+ * bytesPerSession counter, from JOL's walk of the manager's object graph before and after. The
+ * figure is exact, so it is taken once; the walks dominate that run's allocation figures.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class SessionManagerBenchmark {
+    @Param({"100000"})
+    public int sessionCount;
+
+    private SessionManager sessions;
+    private String[] ids;
+
+    @Setup
+    public void setUp() {
+        sessions = new SessionManager(TimeUnit.MINUTES.toMillis(30));
+        ids = new String[sessionCount];
+        for (int i = 0; i < sessionCount; i++) {
+            ids[i] = sessions.createSession();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        sessions.shutdown();
+    }
+
+    @Benchmark
+    public boolean isValidSession() {
+        return sessions.isValidSession(ids[ThreadLocalRandom.current().nextInt(ids.length)]);
+    }
+
+    @Benchmark
+    @Threads(1)
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 1)
+    // JOL walks into JDK classes through the wheel thread
+    @Fork(value = 1, jvmArgsAppend = "-Djol.magicFieldOffset=true")
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public SessionManager createSessions(Footprint footprint) {
+        for (int i = 0; i < sessionCount; i++) {
+            footprint.manager.createSession();
+        }
+        return footprint.manager;
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+        /** Map entry, session, expiry timeout and ID. */
+        public long bytesPerSession;
+        private SessionManager manager;
+        private long emptyBytes;
+
+        @Setup(Level.Invocation)
+        public void setUp() {
+            manager = new SessionManager(TimeUnit.MINUTES.toMillis(30));
+            emptyBytes = GraphLayout.parseInstance(manager).totalSize();
+        }
+
+        @TearDown(Level.Invocation)
+        public void tearDown(SessionManagerBenchmark benchmark) {
+            bytesPerSession = (GraphLayout.parseInstance(manager).totalSize() - emptyBytes) / benchmark.sessionCount;
+            manager.shutdown();
+        }
+    }
+}
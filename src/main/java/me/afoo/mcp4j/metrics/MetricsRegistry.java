@@ -0,0 +1,166 @@
+package me.afoo.mcp4j.metrics;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Named counters, gauges and latency histograms, exported in the Prometheus text format.
+ *
+ * A metric is identified by its name plus label pairs, given as alternating names and values.
+ * Looking one up allocates, so callers on a hot path keep the returned instance. Gauges and
+ * function counters read their value from a supplier at scrape time; registering one again
+ * under the same name and labels replaces the supplier.
+ */
+public final class MetricsRegistry {
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    private final Map<String, Family> families = new ConcurrentSkipListMap<>();
+
+    public Counter counter(String name, String help, String... labels) {
+        return (Counter) family(name, help, Type.COUNTER).child(labels, Counter::new);
+    }
+
+    /**
+     * A counter whose value is kept elsewhere, e.g. in a LongAdder of the component itself.
+     */
+    public void counter(String name, String help, DoubleSupplier value, String... labels) {
+        family(name, help, Type.COUNTER).put(labels, value);
+    }
+
+    public void gauge(String name, String help, DoubleSupplier value, String... labels) {
+        family(name, help, Type.GAUGE).put(labels, value);
+    }
+
+    public LatencyHistogram histogram(String name, String help, String... labels) {
+        return (LatencyHistogram) family(name, help, Type.SUMMARY).child(labels, LatencyHistogram::new);
+    }
+
+    /**
+     * Write all metrics in the Prometheus text exposition format (version 0.0.4). Histograms are
+     * exported as summaries in seconds, with p50, p90, p99 and p999 quantiles.
+     */
+    public void writePrometheus(Appendable out) throws IOException {
+        for (Family family : families.values()) {
+            out.append("# HELP ").append(family.name).append(' ').append(escapeHelp(family.help)).append('\n');
+            out.append("# TYPE ").append(family.name).append(' ').append(family.type.text).append('\n');
+            for (Map.Entry<String, Object> child : family.children.entrySet()) {
+                writeChild(out, family.name, child.getKey(), child.getValue());
+            }
+        }
+    }
+
+    private static void writeChild(Appendable out, String name, String labels, Object metric) throws IOException {
+        if (metric instanceof Counter) {
+            writeSample(out, name, labels, null, ((Counter) metric).get());
+        } else if (metric instanceof DoubleSupplier) {
+            writeSample(out, name, labels, null, ((DoubleSupplier) metric).getAsDouble());
+        } else if (metric instanceof LatencyHistogram) {
+            LatencyHistogram histogram = (LatencyHistogram) metric;
+            for (double quantile : QUANTILES) {
+                writeSample(out, name, labels, "quantile=\"" + quantile + "\"",
+                        histogram.getValueAtQuantile(quantile) / NANOS_PER_SECOND);
+            }
+            writeSample(out, name + "_sum", labels, null, histogram.getSum() / NANOS_PER_SECOND);
+            writeSample(out, name + "_count", labels, null, histogram.getCount());
+        }
+    }
+
+    private static void writeSample(Appendable out, String name, String labels, String extra, double value)
+            throws IOException {
+        out.append(name);
+        if (!labels.isEmpty() || extra != null) {
+            out.append('{').append(labels);
+            if (extra != null) {
+                out.append(labels.isEmpty() ? "" : ",").append(extra);
+            }
+            out.append('}');
+        }
+        out.append(' ').append(formatValue(value)).append('\n');
+    }
+
+    private static String formatValue(double value) {
+        if (Double.isNaN(value)) {
+            return "NaN";
+        }
+        if (Double.isInfinite(value)) {
+            return value > 0 ? "+Inf" : "-Inf";
+        }
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    private Family family(String name, String help, Type type) {
+        Family family = families.computeIfAbsent(name, n -> new Family(n, help, type));
+        if (family.type != type) {
+            throw new IllegalArgumentException("Metric " + name + " is already registered as a " + family.type.text);
+        }
+        return family;
+    }
+
+    private static String labelKey(String[] labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be given as name/value pairs");
+        }
+        StringBuilder key = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                key.append(',');
+            }
+            key.append(labels[i]).append("=\"").append(escapeLabel(labels[i + 1])).append('"');
+        }
+        return key.toString();
+    }
+
+    private static String escapeLabel(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static String escapeHelp(String help) {
+        return help.replace("\\", "\\\\").replace("\n", "\\n");
+    }
+
+    private enum Type {
+        COUNTER("counter"),
+        GAUGE("gauge"),
+        SUMMARY("summary");
+
+        final String text;
+
+        Type(String text) {
+            this.text = text;
+        }
+    }
+
+    private static final class Family {
+        final String name;
+        final String help;
+        final Type type;
+        final Map<String, Object> children = new ConcurrentSkipListMap<>();
+
+        Family(String name, String help, Type type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+
+        Object child(String[] labels, Supplier<Object> factory) {
+            String key = labelKey(labels);
+            Object child = children.get(key);
+            if (child == null) {
+                child = children.computeIfAbsent(key, k -> factory.get());
+            }
+            return child;
+        }
+
+        void put(String[] labels, DoubleSupplier value) {
+            children.put(labelKey(labels), value);
+        }
+    }
+}
@@ -60,4 +60,6 @@ public class JsonRpcError {
     public static final int METHOD_NOT_FOUND = -32601;
     public static final int INVALID_PARAMS = -32602;
     public static final int INTERNAL_ERROR = -32603;
+    // Implementation-defined server errors (-32000 to -32099)
+    public static final int SERVER_OVERLOADED = -32001;
 }
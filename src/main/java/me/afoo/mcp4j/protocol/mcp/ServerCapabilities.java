@@ -12,6 +12,9 @@ public class ServerCapabilities {
     @JsonProperty("tools")
     private ToolsCapability tools;
 
+    @JsonProperty("logging")
+    private LoggingCapability logging;
+
     public ServerCapabilities() {
     }
 
@@ -19,6 +22,11 @@ public class ServerCapabilities {
         this.tools = tools;
     }
 
+    public ServerCapabilities(ToolsCapability tools, LoggingCapability logging) {
+        this.tools = tools;
+        this.logging = logging;
+    }
+
     public ToolsCapability getTools() {
         return tools;
     }
@@ -27,6 +35,14 @@ public class ServerCapabilities {
         this.tools = tools;
     }
 
+    public LoggingCapability getLogging() {
+        return logging;
+    }
+
+    public void setLogging(LoggingCapability logging) {
+        this.logging = logging;
+    }
+
     @JsonInclude(JsonInclude.Include.NON_NULL)
     public static class ToolsCapability {
 
@@ -48,4 +64,11 @@ public class ServerCapabilities {
             this.listChanged = listChanged;
         }
     }
+
+    /**
+     * The server sends notifications/message and accepts logging/setLevel. It has no settings.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class LoggingCapability {
+    }
 }
@@ -1,5 +1,6 @@
 package me.afoo.mcp4j.protocol.mcp;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import java.util.Map;
@@ -15,6 +16,9 @@ public class ToolsCallRequest {
     @JsonProperty("arguments")
     private Map<String, Object> arguments;
 
+    @JsonProperty("_meta")
+    private Map<String, Object> meta;
+
     public String getName() {
         return name;
     }
@@ -30,4 +34,20 @@ public class ToolsCallRequest {
     public void setArguments(Map<String, Object> arguments) {
         this.arguments = arguments;
     }
+
+    public Map<String, Object> getMeta() {
+        return meta;
+    }
+
+    public void setMeta(Map<String, Object> meta) {
+        this.meta = meta;
+    }
+
+    /**
+     * @return the token the client wants progress notifications tagged with, or null
+     */
+    @JsonIgnore
+    public Object getProgressToken() {
+        return meta != null ? meta.get("progressToken") : null;
+    }
 }
@@ -2,108 +2,351 @@ package me.afoo.mcp4j.schema;
 
 import com.fasterxml.jackson.databind.JsonNode;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Validates JSON data against JSON Schema.
+ *
+ * A schema is compiled once into an immutable tree of checks (see {@link #compile}).
+ * Validation first runs a pass that only answers valid/invalid and allocates nothing;
+ * error messages, addressed by JSON pointer, are collected in a second pass only when
+ * that fails.
+ *
+ * Supported keywords are the ones {@link JsonSchema} can build: type, properties, required,
+ * items, enum, minLength, maxLength, minimum and maximum (plus exclusiveMinimum and
+ * exclusiveMaximum as numbers). Keywords apply recursively to nested objects and arrays.
  */
 public class SchemaValidator {
+    private static final ValidationResult VALID = new ValidationResult(true, Collections.<String>emptyList());
+    private static final SchemaValidator ACCEPT_ALL = new SchemaValidator(null);
+
+    private final Check root;
+
+    private SchemaValidator(Check root) {
+        this.root = root;
+    }
+
+    /**
+     * Compile a schema into a reusable validator. A null schema accepts everything.
+     */
+    public static SchemaValidator compile(JsonNode schema) {
+        if (schema == null || !schema.isObject()) {
+            return ACCEPT_ALL;
+        }
+        return new SchemaValidator(Check.compile(schema));
+    }
 
     public static ValidationResult validate(JsonNode schema, Map<String, Object> data) {
+        return compile(schema).validate(data);
+    }
+
+    public ValidationResult validate(Map<String, Object> data) {
+        if (root == null || root.test(data)) {
+            return VALID;
+        }
         List<String> errors = new ArrayList<>();
-        
-        if (schema == null) {
-            return new ValidationResult(true, errors);
+        root.collect(data, "", errors);
+        return new ValidationResult(errors.isEmpty(), errors);
+    }
+
+    private enum Type {
+        STRING("a string"),
+        NUMBER("a number"),
+        INTEGER("an integer"),
+        BOOLEAN("a boolean"),
+        OBJECT("an object"),
+        ARRAY("an array"),
+        NULL("null"),
+        ANY("anything");
+
+        final String description;
+
+        Type(String description) {
+            this.description = description;
         }
 
-        String type = schema.has("type") ? schema.get("type").asText() : null;
-        
-        if ("object".equals(type)) {
-            validateObject(schema, data, errors);
+        static Type of(JsonNode schema) {
+            JsonNode type = schema.get("type");
+            if (type == null || !type.isTextual()) {
+                return ANY;
+            }
+            switch (type.asText()) {
+                case "string": return STRING;
+                case "number": return NUMBER;
+                case "integer": return INTEGER;
+                case "boolean": return BOOLEAN;
+                case "object": return OBJECT;
+                case "array": return ARRAY;
+                case "null": return NULL;
+                default: return ANY;
+            }
         }
 
-        return new ValidationResult(errors.isEmpty(), errors);
+        boolean matches(Object value) {
+            switch (this) {
+                case STRING: return value instanceof String;
+                case NUMBER: return value instanceof Number;
+                case INTEGER: return isIntegral(value);
+                case BOOLEAN: return value instanceof Boolean;
+                case OBJECT: return value instanceof Map;
+                case ARRAY: return value instanceof List;
+                case NULL: return value == null;
+                default: return true;
+            }
+        }
+
+        private static boolean isIntegral(Object value) {
+            if (value instanceof Integer || value instanceof Long || value instanceof Short
+                    || value instanceof Byte || value instanceof BigInteger) {
+                return true;
+            }
+            if (value instanceof Double || value instanceof Float) {
+                double d = ((Number) value).doubleValue();
+                return !Double.isInfinite(d) && d == Math.rint(d);
+            }
+            if (value instanceof BigDecimal) {
+                BigDecimal d = (BigDecimal) value;
+                return d.signum() == 0 || d.scale() <= 0 || d.stripTrailingZeros().scale() <= 0;
+            }
+            return false;
+        }
     }
 
-    private static void validateObject(JsonNode schema, Map<String, Object> data, List<String> errors) {
-        // Check required fields
-        if (schema.has("required")) {
-            JsonNode required = schema.get("required");
-            if (required.isArray()) {
-                for (JsonNode field : required) {
-                    String fieldName = field.asText();
-                    if (!data.containsKey(fieldName)) {
-                        errors.add("Missing required field: " + fieldName);
-                    }
+    /**
+     * All keywords of one (sub)schema, resolved at compile time.
+     */
+    private static final class Check {
+        private final Type type;
+        private final Set<Object> enumValues;
+        private final int minLength;
+        private final int maxLength;
+        private final double minimum;
+        private final double maximum;
+        private final boolean exclusiveMinimum;
+        private final boolean exclusiveMaximum;
+        private final String[] required;
+        private final String[] requiredPointers;
+        private final String[] propertyNames;
+        private final String[] propertyPointers;
+        private final Check[] properties;
+        private final Check items;
+
+        private Check(JsonNode schema) {
+            this.type = Type.of(schema);
+            this.enumValues = compileEnum(schema.get("enum"));
+            this.minLength = schema.has("minLength") ? schema.get("minLength").asInt() : -1;
+            this.maxLength = schema.has("maxLength") ? schema.get("maxLength").asInt() : -1;
+
+            JsonNode exclusiveMin = schema.get("exclusiveMinimum");
+            JsonNode exclusiveMax = schema.get("exclusiveMaximum");
+            this.exclusiveMinimum = exclusiveMin != null && exclusiveMin.isNumber();
+            this.exclusiveMaximum = exclusiveMax != null && exclusiveMax.isNumber();
+            this.minimum = exclusiveMinimum ? exclusiveMin.asDouble()
+                    : schema.has("minimum") ? schema.get("minimum").asDouble() : Double.NEGATIVE_INFINITY;
+            this.maximum = exclusiveMaximum ? exclusiveMax.asDouble()
+                    : schema.has("maximum") ? schema.get("maximum").asDouble() : Double.POSITIVE_INFINITY;
+
+            List<String> requiredNames = new ArrayList<>();
+            JsonNode requiredNode = schema.get("required");
+            if (requiredNode != null && requiredNode.isArray()) {
+                for (JsonNode field : requiredNode) {
+                    requiredNames.add(field.asText());
                 }
             }
+            this.required = requiredNames.toArray(new String[0]);
+            this.requiredPointers = pointerSegments(required);
+
+            List<String> names = new ArrayList<>();
+            List<Check> checks = new ArrayList<>();
+            JsonNode propertiesNode = schema.get("properties");
+            if (propertiesNode != null && propertiesNode.isObject()) {
+                Iterator<Map.Entry<String, JsonNode>> fields = propertiesNode.fields();
+                while (fields.hasNext()) {
+                    Map.Entry<String, JsonNode> entry = fields.next();
+                    names.add(entry.getKey());
+                    checks.add(compile(entry.getValue()));
+                }
+            }
+            this.propertyNames = names.toArray(new String[0]);
+            this.propertyPointers = pointerSegments(propertyNames);
+            this.properties = checks.toArray(new Check[0]);
+
+            JsonNode itemsNode = schema.get("items");
+            this.items = itemsNode != null && itemsNode.isObject() ? compile(itemsNode) : null;
         }
 
-        // Validate properties
-        if (schema.has("properties")) {
-            JsonNode properties = schema.get("properties");
-            Iterator<Map.Entry<String, JsonNode>> fields = properties.fields();
-            while (fields.hasNext()) {
-                Map.Entry<String, JsonNode> entry = fields.next();
-                String fieldName = entry.getKey();
-                JsonNode fieldSchema = entry.getValue();
-                
-                if (data.containsKey(fieldName)) {
-                    Object value = data.get(fieldName);
-                    validateField(fieldName, fieldSchema, value, errors);
+        static Check compile(JsonNode schema) {
+            return new Check(schema);
+        }
+
+        // --- fast path: no allocation ---
+
+        boolean test(Object value) {
+            if (!type.matches(value)) {
+                return false;
+            }
+            if (enumValues != null && !enumValues.contains(enumKey(value))) {
+                return false;
+            }
+            if (value instanceof String) {
+                return lengthError((String) value) == null;
+            }
+            if (value instanceof Number) {
+                return boundError((Number) value) == null;
+            }
+            if (value instanceof Map) {
+                return testObject((Map<?, ?>) value);
+            }
+            if (value instanceof List && items != null) {
+                List<?> list = (List<?>) value;
+                for (int i = 0, n = list.size(); i < n; i++) {
+                    if (!items.test(list.get(i))) {
+                        return false;
+                    }
                 }
             }
+            return true;
         }
-    }
 
-    private static void validateField(String fieldName, JsonNode fieldSchema, Object value, List<String> errors) {
-        if (!fieldSchema.has("type")) {
-            return;
+        private boolean testObject(Map<?, ?> data) {
+            for (String name : required) {
+                if (!data.containsKey(name)) {
+                    return false;
+                }
+            }
+            for (int i = 0; i < properties.length; i++) {
+                Object value = data.get(propertyNames[i]);
+                if ((value != null || data.containsKey(propertyNames[i])) && !properties[i].test(value)) {
+                    return false;
+                }
+            }
+            return true;
         }
 
-        String type = fieldSchema.get("type").asText();
-        
-        switch (type) {
-            case "string":
-                if (!(value instanceof String)) {
-                    errors.add("Field '" + fieldName + "' must be a string");
+        // --- slow path: collect messages ---
+
+        void collect(Object value, String pointer, List<String> errors) {
+            if (!type.matches(value)) {
+                errors.add("Field '" + pointer + "' must be " + type.description);
+                return;
+            }
+            if (enumValues != null && !enumValues.contains(enumKey(value))) {
+                errors.add("Field '" + pointer + "' has invalid enum value");
+            }
+            if (value instanceof String) {
+                String error = lengthError((String) value);
+                if (error != null) {
+                    errors.add("Field '" + pointer + "' " + error);
                 }
-                break;
-            case "number":
-                if (!(value instanceof Number)) {
-                    errors.add("Field '" + fieldName + "' must be a number");
+            } else if (value instanceof Number) {
+                String error = boundError((Number) value);
+                if (error != null) {
+                    errors.add("Field '" + pointer + "' " + error);
                 }
-                break;
-            case "integer":
-                if (!(value instanceof Integer) && !(value instanceof Long)) {
-                    errors.add("Field '" + fieldName + "' must be an integer");
+            } else if (value instanceof Map) {
+                Map<?, ?> data = (Map<?, ?>) value;
+                for (int i = 0; i < required.length; i++) {
+                    if (!data.containsKey(required[i])) {
+                        errors.add("Missing required field: " + pointer + requiredPointers[i]);
+                    }
                 }
-                break;
-            case "boolean":
-                if (!(value instanceof Boolean)) {
-                    errors.add("Field '" + fieldName + "' must be a boolean");
+                for (int i = 0; i < properties.length; i++) {
+                    if (data.containsKey(propertyNames[i])) {
+                        properties[i].collect(data.get(propertyNames[i]), pointer + propertyPointers[i], errors);
+                    }
+                }
+            } else if (value instanceof List && items != null) {
+                List<?> list = (List<?>) value;
+                for (int i = 0; i < list.size(); i++) {
+                    items.collect(list.get(i), pointer + "/" + i, errors);
                 }
-                break;
+            }
+        }
+
+        // --- keyword helpers ---
+
+        private String lengthError(String value) {
+            if (minLength < 0 && maxLength < 0) {
+                return null;
+            }
+            // length() bounds the code point count from above, and half of it from below
+            int chars = value.length();
+            if (maxLength >= 0 && chars > maxLength && value.codePointCount(0, chars) > maxLength) {
+                return "must be at most " + maxLength + " characters";
+            }
+            if (minLength >= 0 && (chars < minLength
+                    || ((chars + 1) / 2 < minLength && value.codePointCount(0, chars) < minLength))) {
+                return "must be at least " + minLength + " characters";
+            }
+            return null;
+        }
+
+        private String boundError(Number value) {
+            if (minimum == Double.NEGATIVE_INFINITY && maximum == Double.POSITIVE_INFINITY) {
+                return null;
+            }
+            double d = value.doubleValue();
+            if (exclusiveMinimum ? d <= minimum : d < minimum) {
+                return "must be " + (exclusiveMinimum ? "> " : ">= ") + minimum;
+            }
+            if (exclusiveMaximum ? d >= maximum : d > maximum) {
+                return "must be " + (exclusiveMaximum ? "< " : "<= ") + maximum;
+            }
+            return null;
         }
 
-        // Check enum values
-        if (fieldSchema.has("enum") && value instanceof String) {
-            boolean found = false;
-            for (JsonNode enumValue : fieldSchema.get("enum")) {
-                if (enumValue.asText().equals(value)) {
-                    found = true;
-                    break;
+        private static Set<Object> compileEnum(JsonNode enumNode) {
+            if (enumNode == null || !enumNode.isArray()) {
+                return null;
+            }
+            Set<Object> values = new HashSet<>();
+            for (JsonNode value : enumNode) {
+                if (value.isTextual()) {
+                    values.add(value.asText());
+                } else if (value.isNumber()) {
+                    values.add(value.asDouble());
+                } else if (value.isBoolean()) {
+                    values.add(value.asBoolean());
+                } else if (value.isNull()) {
+                    values.add(NullKey.INSTANCE);
                 }
             }
-            if (!found) {
-                errors.add("Field '" + fieldName + "' has invalid enum value");
+            return values;
+        }
+
+        /**
+         * Key under which a value is looked up in an enum set. Numbers compare by value, so
+         * 1, 1L and 1.0 all match an enum entry of 1; only numbers are boxed.
+         */
+        private static Object enumKey(Object value) {
+            if (value == null) {
+                return NullKey.INSTANCE;
+            }
+            if (value instanceof Number && !(value instanceof Double)) {
+                return ((Number) value).doubleValue();
             }
+            return value;
+        }
+
+        private static String[] pointerSegments(String[] names) {
+            String[] segments = new String[names.length];
+            for (int i = 0; i < names.length; i++) {
+                segments[i] = "/" + names[i].replace("~", "~0").replace("/", "~1");
+            }
+            return segments;
         }
     }
 
+    private enum NullKey { INSTANCE }
+
     public static class ValidationResult {
         private final boolean valid;
         private final List<String> errors;
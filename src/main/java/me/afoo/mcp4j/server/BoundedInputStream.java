@@ -0,0 +1,60 @@
+package me.afoo.mcp4j.server;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * InputStream that fails with {@link LimitExceededException} as soon as more than
+ * maxBytes have been read, so oversize bodies are rejected without being buffered.
+ */
+class BoundedInputStream extends FilterInputStream {
+    private final long maxBytes;
+    private long count;
+
+    BoundedInputStream(InputStream in, long maxBytes) {
+        super(in);
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0) {
+            advance(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = super.read(b, off, len);
+        if (n > 0) {
+            advance(n);
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        advance(skipped);
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    private void advance(long n) throws LimitExceededException {
+        count += n;
+        if (count > maxBytes) {
+            throw new LimitExceededException("Request body exceeds " + maxBytes + " bytes");
+        }
+    }
+
+    static class LimitExceededException extends IOException {
+        LimitExceededException(String message) { super(message); }
+    }
+}
@@ -0,0 +1,28 @@
+package me.afoo.mcp4j.server;
+
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Small bounded pool of equally sized byte arrays. When the pool is empty a fresh
+ * array is allocated; when it is full released arrays are left to the GC.
+ */
+final class BufferPool {
+    private final int bufferSize;
+    private final ArrayBlockingQueue<byte[]> buffers;
+
+    BufferPool(int bufferSize, int maxPooled) {
+        this.bufferSize = bufferSize;
+        this.buffers = new ArrayBlockingQueue<>(maxPooled);
+    }
+
+    byte[] acquire() {
+        byte[] buffer = buffers.poll();
+        return buffer != null ? buffer : new byte[bufferSize];
+    }
+
+    void release(byte[] buffer) {
+        if (buffer != null && buffer.length == bufferSize) {
+            buffers.offer(buffer);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package me.afoo.mcp4j.server;
+
+/**
+ * How McpServer runs request handlers.
+ */
+public enum ExecutorMode {
+    /** Fixed pool of threadPoolSize platform threads (default). */
+    FIXED_POOL,
+    /**
+     * One virtual thread per request on JDK 21+. Blocking tool calls park instead of holding
+     * a platform thread; falls back to FIXED_POOL on older runtimes.
+     */
+    VIRTUAL_THREADS
+}
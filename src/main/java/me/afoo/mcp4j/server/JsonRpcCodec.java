@@ -0,0 +1,113 @@
+package me.afoo.mcp4j.server;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import me.afoo.mcp4j.protocol.jsonrpc.JsonRpcRequest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Streaming reader for JSON-RPC envelopes.
+ *
+ * Fields are pulled token by token straight off the request stream; only "params" is
+ * materialized, and unknown members are skipped without being built. A body is either
+ * a single request object or a batch array of them.
+ */
+final class JsonRpcCodec {
+    private final ObjectMapper mapper;
+
+    JsonRpcCodec(ObjectMapper mapper) {
+        this.mapper = mapper;
+    }
+
+    /**
+     * Read a POST body. Batch elements that are not objects come back as null entries
+     * so they can be answered with Invalid Request in their position.
+     */
+    Messages readMessages(InputStream in) throws IOException {
+        try (JsonParser parser = mapper.getFactory().createParser(in)) {
+            JsonToken first = parser.nextToken();
+            if (first == JsonToken.START_OBJECT) {
+                return new Messages(Collections.singletonList(readRequest(parser)), false);
+            }
+            if (first != JsonToken.START_ARRAY) {
+                throw new JsonParseException(parser, "Expected a JSON-RPC request object or batch array");
+            }
+            List<JsonRpcRequest> requests = new ArrayList<>();
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (token == null) {
+                    throw new JsonParseException(parser, "Unexpected end of batch");
+                }
+                if (token == JsonToken.START_OBJECT) {
+                    requests.add(readRequest(parser));
+                } else {
+                    parser.skipChildren();
+                    requests.add(null);
+                }
+            }
+            return new Messages(requests, true);
+        }
+    }
+
+    /**
+     * Read one request object; the parser must be positioned on its START_OBJECT.
+     */
+    JsonRpcRequest readRequest(JsonParser parser) throws IOException {
+        JsonRpcRequest request = new JsonRpcRequest();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            switch (field) {
+                case "method":
+                    request.setMethod(token == JsonToken.VALUE_STRING ? parser.getText() : null);
+                    parser.skipChildren();
+                    break;
+                case "id":
+                    request.setId(readId(parser, token));
+                    break;
+                case "params":
+                    request.setParams(token == JsonToken.VALUE_NULL ? null : mapper.readValue(parser, Object.class));
+                    break;
+                default:
+                    parser.skipChildren();
+                    break;
+            }
+        }
+        return request;
+    }
+
+    private Object readId(JsonParser parser, JsonToken token) throws IOException {
+        switch (token) {
+            case VALUE_STRING:
+                return parser.getText();
+            case VALUE_NUMBER_INT:
+                return parser.getNumberValue();
+            case VALUE_NUMBER_FLOAT:
+                return parser.getDoubleValue();
+            case VALUE_NULL:
+                return null;
+            default:
+                return mapper.readValue(parser, Object.class);
+        }
+    }
+
+    /**
+     * Requests of one POST body, in order.
+     */
+    static final class Messages {
+        final List<JsonRpcRequest> requests;
+        final boolean batch;
+
+        Messages(List<JsonRpcRequest> requests, boolean batch) {
+            this.requests = requests;
+            this.batch = batch;
+        }
+    }
+}
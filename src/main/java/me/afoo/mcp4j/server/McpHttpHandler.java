@@ -1,50 +1,135 @@
 package me.afoo.mcp4j.server;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.RawValue;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
+import me.afoo.mcp4j.metrics.Counter;
+import me.afoo.mcp4j.metrics.LatencyHistogram;
+import me.afoo.mcp4j.metrics.MetricsRegistry;
 import me.afoo.mcp4j.protocol.jsonrpc.JsonRpcError;
 import me.afoo.mcp4j.protocol.jsonrpc.JsonRpcRequest;
 import me.afoo.mcp4j.protocol.jsonrpc.JsonRpcResponse;
 import me.afoo.mcp4j.protocol.mcp.*;
+import me.afoo.mcp4j.tool.Bulkhead;
 import me.afoo.mcp4j.tool.Tool;
+import me.afoo.mcp4j.tool.ToolContext;
 import me.afoo.mcp4j.tool.ToolExecutor;
 import me.afoo.mcp4j.tool.ToolRegistry;
+import me.afoo.mcp4j.tool.ToolResultCache;
+import me.afoo.mcp4j.transport.DisconnectAware;
 import me.afoo.mcp4j.transport.SessionManager;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
 import java.nio.charset.StandardCharsets;
 import java.util.Collections;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
 
 /**
  * HTTP handler implementing MCP Streamable HTTP transport (2025-03-26).
  *
  * <ul>
- *   <li>POST: Client sends JSON-RPC messages; server responds with application/json</li>
- *   <li>GET: Returns 405 (server-initiated SSE not supported)</li>
+ *   <li>POST: Client sends a JSON-RPC message or batch; server responds with application/json, or
+ *       with text/event-stream when a tool reports progress for a call carrying a progressToken</li>
+ *   <li>GET: Opens the session's server-initiated SSE stream (405 unless text/event-stream is accepted)</li>
  *   <li>DELETE: Terminates session identified by Mcp-Session-Id header</li>
  * </ul>
  */
 public class McpHttpHandler implements HttpHandler {
+    private static final Logger LOG = Logger.getLogger(McpHttpHandler.class.getName());
     private static final ObjectMapper MAPPER = new ObjectMapper();
     private static final String PROTOCOL_VERSION = "2025-03-26";
     private static final String SESSION_HEADER = "Mcp-Session-Id";
     private static final String PROTOCOL_VERSION_HEADER = "MCP-Protocol-Version";
+    private static final int RESPONSE_BUFFER_SIZE = 16 * 1024;
+    private static final BufferPool BUFFER_POOL = new BufferPool(RESPONSE_BUFFER_SIZE, 64);
+    private static final CompletableFuture<Void> COMPLETED = CompletableFuture.completedFuture(null);
+    // Methods reported under their own label; anything else is "other", so clients cannot
+    // grow the metrics without bound
+    private static final Set<String> KNOWN_METHODS = new HashSet<>(Arrays.asList(
+            "initialize", "notifications/initialized", "notifications/cancelled", "tools/list", "tools/call", "ping",
+            "logging/setLevel"));
+    // RFC 5424 severities in the order logging/setLevel compares them
+    private static final List<String> LOG_LEVELS = Arrays.asList(
+            "debug", "info", "notice", "warning", "error", "critical", "alert", "emergency");
+    private static final int INFO = LOG_LEVELS.indexOf("info");
 
     private final McpServerConfig config;
     private final ToolRegistry toolRegistry;
     private final ToolExecutor toolExecutor;
     private final SessionManager sessionManager;
+    private final Executor batchExecutor;
+    private final JsonRpcCodec codec = new JsonRpcCodec(MAPPER);
+    private final Map<String, SseStream> sessionStreams = new ConcurrentHashMap<>();
+    private final MetricsRegistry metrics;
+    private final Map<String, MethodMetrics> methodMetrics = new ConcurrentHashMap<>();
+    private volatile ToolsListCache toolsListCache;
+    // Held by a POST from arrival until its response is written; null when unbounded
+    private final Semaphore requestPermits;
+    private final Counter rejectedRequests;
 
     public McpHttpHandler(McpServerConfig config, ToolRegistry toolRegistry, SessionManager sessionManager) {
+        this(config, toolRegistry, sessionManager, Runnable::run);
+    }
+
+    /**
+     * @param batchExecutor runs the independent entries of a batch concurrently, and completes
+     *                      tool calls that time out
+     */
+    public McpHttpHandler(McpServerConfig config, ToolRegistry toolRegistry, SessionManager sessionManager,
+                          Executor batchExecutor) {
+        this(config, toolRegistry, sessionManager, batchExecutor, null);
+    }
+
+    /**
+     * @param metrics receives per-method and per-tool metrics; null keeps them private
+     */
+    public McpHttpHandler(McpServerConfig config, ToolRegistry toolRegistry, SessionManager sessionManager,
+                          Executor batchExecutor, MetricsRegistry metrics) {
         this.config = config;
         this.toolRegistry = toolRegistry;
-        this.toolExecutor = new ToolExecutor(toolRegistry);
+        this.metrics = metrics != null ? metrics : new MetricsRegistry();
         this.sessionManager = sessionManager;
+        this.requestPermits = config.getMaxConcurrentRequests() > 0
+                ? new Semaphore(config.getMaxConcurrentRequests()) : null;
+        this.rejectedRequests = this.metrics.counter("mcp4j_requests_rejected_total",
+                "Requests refused with 503 because maxConcurrentRequests were in flight");
+        // A saturated executor must not fail a batch; run the entry on the caller instead
+        this.batchExecutor = task -> {
+            try {
+                batchExecutor.execute(task);
+            } catch (RejectedExecutionException e) {
+                task.run();
+            }
+        };
+        // Timed-out calls write their responses on the server's executor, not the timer thread
+        this.toolExecutor = new ToolExecutor(toolRegistry, config.getToolTimeout(),
+                config.getToolResultCacheSize() > 0 ? new ToolResultCache(config.getToolResultCacheSize()) : null,
+                this.metrics, this.batchExecutor);
     }
 
     @Override
@@ -55,7 +140,7 @@ public class McpHttpHandler implements HttpHandler {
         exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "*");
         exchange.getResponseHeaders().set("Access-Control-Allow-Methods", "GET, POST, DELETE, OPTIONS");
         exchange.getResponseHeaders().set("Access-Control-Allow-Headers",
-                "Content-Type, Accept, " + SESSION_HEADER + ", " + PROTOCOL_VERSION_HEADER);
+                "Content-Type, Content-Encoding, Accept, " + SESSION_HEADER + ", " + PROTOCOL_VERSION_HEADER);
         exchange.getResponseHeaders().set("Access-Control-Expose-Headers", SESSION_HEADER);
 
         if ("OPTIONS".equals(method)) {
@@ -66,11 +151,10 @@ public class McpHttpHandler implements HttpHandler {
         try {
             switch (method) {
                 case "POST":
-                    handlePost(exchange);
+                    handleAdmittedPost(exchange);
                     break;
                 case "GET":
-                    // Streamable HTTP: server MAY return 405 if it doesn't offer SSE
-                    sendHttpError(exchange, 405, "Method Not Allowed");
+                    handleGet(exchange);
                     break;
                 case "DELETE":
                     handleDelete(exchange);
@@ -80,33 +164,145 @@ public class McpHttpHandler implements HttpHandler {
                     break;
             }
         } catch (Exception e) {
-            e.printStackTrace();
+            LOG.log(Level.WARNING, "Failed to handle " + exchange.getRequestMethod() + " request", e);
             sendHttpError(exchange, 500, "Internal server error");
         }
     }
 
-    private void handlePost(HttpExchange exchange) throws IOException {
-        // Parse request body
-        byte[] requestBytes = readAllBytes(exchange.getRequestBody());
-        String requestBody = new String(requestBytes, StandardCharsets.UTF_8);
+    /**
+     * Run a POST under the concurrency limit. A request holds its permit until its response has
+     * been written, including the asynchronous part of tool calls, and is refused with 503
+     * rather than queued when none is free.
+     */
+    private void handleAdmittedPost(HttpExchange exchange) throws IOException {
+        if (requestPermits == null) {
+            handlePost(exchange);
+            return;
+        }
+        if (!requestPermits.tryAcquire()) {
+            rejectedRequests.increment();
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            sendHttpError(exchange, 503, "Too many concurrent requests");
+            return;
+        }
+        CompletableFuture<?> done = COMPLETED;
+        try {
+            done = handlePost(exchange);
+        } finally {
+            done.whenComplete((v, e) -> requestPermits.release());
+        }
+    }
+
+    /**
+     * @return completes once the response has been written
+     */
+    private CompletableFuture<?> handlePost(HttpExchange exchange) throws IOException {
+        // Reject oversize bodies up front when the client declares the length
+        long maxBodySize = config.getMaxRequestBodySize();
+        if (declaredContentLength(exchange) > maxBodySize) {
+            rejectOversizeBody(exchange);
+            return COMPLETED;
+        }
+
+        String contentEncoding = requestEncoding(exchange);
+        if (contentEncoding == null) {
+            exchange.getResponseHeaders().set("Accept-Encoding", "gzip, deflate");
+            sendHttpError(exchange, 415, "Unsupported Content-Encoding");
+            return COMPLETED;
+        }
 
-        JsonRpcRequest request;
+        // Parse the envelope straight off the request stream, inflating it on the way when the
+        // client compressed it; the limit applies to the decoded bytes too, so a small compressed
+        // body cannot expand without bound
+        JsonRpcCodec.Messages messages;
         try {
-            request = MAPPER.readValue(requestBody, JsonRpcRequest.class);
+            InputStream body = new BoundedInputStream(exchange.getRequestBody(), maxBodySize);
+            if (ResponseCompression.GZIP.equals(contentEncoding)) {
+                body = new BoundedInputStream(new GZIPInputStream(body), maxBodySize);
+            } else if (ResponseCompression.DEFLATE.equals(contentEncoding)) {
+                body = new BoundedInputStream(new InflaterInputStream(body), maxBodySize);
+            }
+            messages = codec.readMessages(body);
         } catch (Exception e) {
+            if (isBodyTooLarge(e)) {
+                rejectOversizeBody(exchange);
+                return COMPLETED;
+            }
             JsonRpcResponse errorResp = new JsonRpcResponse(null,
                     new JsonRpcError(JsonRpcError.PARSE_ERROR, "Parse error"));
             sendJsonResponse(exchange, 200, errorResp);
-            return;
+            return COMPLETED;
+        }
+
+        if (messages.batch) {
+            return handleBatch(exchange, messages.requests);
+        }
+
+        JsonRpcRequest request = messages.requests.get(0);
+        if (request.getMethod() == null) {
+            JsonRpcResponse errorResp = new JsonRpcResponse(request.getId(),
+                    new JsonRpcError(JsonRpcError.INVALID_REQUEST, "Invalid request: missing method"));
+            sendJsonResponse(exchange, 200, errorResp);
+            return COMPLETED;
         }
 
         // Initialize is special: no session required, creates one
         if ("initialize".equals(request.getMethod())) {
-            handleInitializePost(exchange, request);
-            return;
+            long startNanos = System.nanoTime();
+            boolean created = handleInitializePost(exchange, request);
+            metricsFor("initialize").record(startNanos, !created);
+            return COMPLETED;
         }
 
         // All other requests require a valid session
+        if (!requireSession(exchange)) {
+            return COMPLETED;
+        }
+
+        // tools/list is served from a pre-serialized result. Its ETag tells clients whether the
+        // tool set changed, but the JSON-RPC response is always sent: a 304 would leave the
+        // request's id unanswered
+        if ("tools/list".equals(request.getMethod())) {
+            exchange.getResponseHeaders().set("ETag", toolsList().etag);
+        }
+
+        // Process the request; async tools complete the exchange from their own thread.
+        // A tools/call may switch the response to SSE once the tool reports progress.
+        String sessionId = exchange.getRequestHeaders().getFirst(SESSION_HEADER);
+        Runnable cancel = () -> toolExecutor.cancel(sessionId, request.getId());
+        cancelOnDisconnect(exchange, cancel);
+        PostStream stream = acceptsEventStream(exchange) && "tools/call".equals(request.getMethod())
+                ? new PostStream(exchange, cancel) : null;
+        return processRequest(request, sessionId, stream).whenComplete((response, error) -> {
+            if (stream != null) {
+                stream.complete(response, error);
+            } else {
+                completePost(exchange, response, error);
+            }
+        });
+    }
+
+    private void completePost(HttpExchange exchange, JsonRpcResponse response, Throwable error) {
+        try {
+            if (error != null) {
+                LOG.log(Level.WARNING, "Failed to process request", error);
+                sendHttpError(exchange, 500, "Internal server error");
+            } else if (response == null) {
+                // Notification — return 202 Accepted with no body
+                exchange.sendResponseHeaders(202, -1);
+            } else {
+                sendJsonResponse(exchange, 200, response);
+            }
+        } catch (IOException e) {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Checks the session and protocol version headers, answering the error itself when they
+     * do not hold.
+     */
+    private boolean requireSession(HttpExchange exchange) throws IOException {
         String sessionId = exchange.getRequestHeaders().getFirst(SESSION_HEADER);
         if (sessionId == null || !sessionManager.isValidSession(sessionId)) {
             // No valid session: 400 if missing, 404 if expired/unknown
@@ -115,70 +311,385 @@ public class McpHttpHandler implements HttpHandler {
             } else {
                 sendHttpError(exchange, 404, "Session not found or expired");
             }
-            return;
+            return false;
         }
 
         // Validate MCP-Protocol-Version header
         String protocolVersion = exchange.getRequestHeaders().getFirst(PROTOCOL_VERSION_HEADER);
         if (protocolVersion != null && !PROTOCOL_VERSION.equals(protocolVersion)) {
             sendHttpError(exchange, 400, "Unsupported MCP-Protocol-Version: " + protocolVersion);
-            return;
+            return false;
         }
+        return true;
+    }
 
-        // Process the request
-        JsonRpcResponse response = processRequest(request);
+    /**
+     * Run a JSON-RPC batch under a single session check.
+     *
+     * Entries whose order does not matter are started on the batch executor right away: anything
+     * but tools/call, calls to tools annotated readOnlyHint, and calls to tools annotated both
+     * idempotentHint and destructiveHint false. The latter only add state, and repeating them
+     * changes nothing, so they commute with each other; an idempotent tool that may overwrite,
+     * such as a setter, does not. Any other call starts only once the entries before it have
+     * completed, so side effects keep their batch order.
+     * Entries are chained on their futures rather than waited for, and responses are streamed
+     * back in request order as they become available; notifications contribute none.
+     *
+     * @return completes once the whole batch response has been written
+     */
+    private CompletableFuture<?> handleBatch(HttpExchange exchange, List<JsonRpcRequest> requests)
+            throws IOException {
+        if (requests.isEmpty()) {
+            sendJsonResponse(exchange, 200, new JsonRpcResponse(null,
+                    new JsonRpcError(JsonRpcError.INVALID_REQUEST, "Invalid request: empty batch")));
+            return COMPLETED;
+        }
+        if (!requireSession(exchange)) {
+            return COMPLETED;
+        }
 
-        if (response == null) {
-            // Notification — return 202 Accepted with no body
-            exchange.sendResponseHeaders(202, -1);
-        } else {
-            sendJsonResponse(exchange, 200, response);
+        String sessionId = exchange.getRequestHeaders().getFirst(SESSION_HEADER);
+        cancelOnDisconnect(exchange, () -> {
+            for (JsonRpcRequest request : requests) {
+                if (request != null) {
+                    toolExecutor.cancel(sessionId, request.getId());
+                }
+            }
+        });
+
+        List<CompletableFuture<JsonRpcResponse>> responses = new ArrayList<>(requests.size());
+        CompletableFuture<?> barrier = CompletableFuture.completedFuture(null);
+        List<CompletableFuture<?>> sinceBarrier = new ArrayList<>();
+        for (JsonRpcRequest request : requests) {
+            JsonRpcResponse invalid = invalidBatchEntry(request);
+            if (invalid != null) {
+                responses.add(CompletableFuture.completedFuture(invalid));
+                continue;
+            }
+            CompletableFuture<JsonRpcResponse> response;
+            if (isParallelSafe(request)) {
+                response = barrier.thenComposeAsync(v -> processRequest(request, sessionId, null), batchExecutor);
+                sinceBarrier.add(response);
+            } else {
+                sinceBarrier.add(barrier);
+                response = CompletableFuture.allOf(sinceBarrier.toArray(new CompletableFuture<?>[0]))
+                        .thenCompose(v -> processRequest(request, sessionId, null));
+                sinceBarrier.clear();
+                barrier = response;
+            }
+            responses.add(response);
         }
+
+        BatchWriter writer = new BatchWriter(exchange, this);
+        CompletableFuture<Void> written = CompletableFuture.completedFuture(null);
+        for (CompletableFuture<JsonRpcResponse> response : responses) {
+            written = written.thenCombine(response, (v, r) -> r).thenAccept(writer::write);
+        }
+        return written.whenComplete((v, error) -> writer.finish(error));
     }
 
-    private void handleInitializePost(HttpExchange exchange, JsonRpcRequest request) throws IOException {
-        JsonRpcResponse response = handleInitialize(request.getId(), request.getParams());
+    private static JsonRpcResponse invalidBatchEntry(JsonRpcRequest request) {
+        if (request == null || request.getMethod() == null) {
+            return new JsonRpcResponse(request == null ? null : request.getId(),
+                    new JsonRpcError(JsonRpcError.INVALID_REQUEST, "Invalid request: missing method"));
+        }
+        if ("initialize".equals(request.getMethod())) {
+            return new JsonRpcResponse(request.getId(),
+                    new JsonRpcError(JsonRpcError.INVALID_REQUEST, "Invalid request: initialize cannot be batched"));
+        }
+        return null;
+    }
+
+    private boolean isParallelSafe(JsonRpcRequest request) {
+        if (!"tools/call".equals(request.getMethod())) {
+            return true;
+        }
+        Object params = request.getParams();
+        if (!(params instanceof Map)) {
+            return false;
+        }
+        Object name = ((Map<?, ?>) params).get("name");
+        Tool tool = name instanceof String ? toolRegistry.getTool((String) name) : null;
+        ToolAnnotations annotations = tool != null ? tool.getAnnotations() : null;
+        if (annotations == null) {
+            return false;
+        }
+        // destructiveHint defaults to true when absent
+        return Boolean.TRUE.equals(annotations.getReadOnlyHint())
+                || Boolean.TRUE.equals(annotations.getIdempotentHint())
+                && Boolean.FALSE.equals(annotations.getDestructiveHint());
+    }
+
+    /**
+     * Streams batch responses as a JSON array. The headers go out with the first response,
+     * so a batch of notifications can still be answered with 202.
+     */
+    private static final class BatchWriter {
+        private final HttpExchange exchange;
+        private final McpHttpHandler handler;
+        private OutputStream os;
+        private JsonGenerator generator;
+
+        BatchWriter(HttpExchange exchange, McpHttpHandler handler) {
+            this.exchange = exchange;
+            this.handler = handler;
+        }
+
+        void write(JsonRpcResponse response) {
+            if (response == null) {
+                return;
+            }
+            try {
+                if (generator == null) {
+                    exchange.getResponseHeaders().set("Content-Type", "application/json");
+                    os = handler.openJsonBody(exchange, 200);
+                    generator = MAPPER.getFactory().createGenerator(os);
+                    generator.writeStartArray();
+                }
+                MAPPER.writeValue(generator, response);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void finish(Throwable error) {
+            try {
+                if (error != null) {
+                    if (generator != null) {
+                        // Part of the array is already out; all we can do is cut the response
+                        exchange.close();
+                        return;
+                    }
+                    LOG.log(Level.WARNING, "Failed to process batch", error);
+                    exchange.getResponseHeaders().set("Content-Type", "text/plain");
+                    exchange.sendResponseHeaders(500, -1);
+                } else if (generator == null) {
+                    // Only notifications — 202 Accepted with no body
+                    exchange.sendResponseHeaders(202, -1);
+                } else {
+                    generator.writeEndArray();
+                    generator.close();
+                    os.close();
+                }
+            } catch (IOException e) {
+                exchange.close();
+            }
+        }
+    }
+
+    /**
+     * Response of a single tools/call that turns into an SSE stream on the first notification.
+     * If the tool reports nothing, the result goes out as a plain JSON body instead.
+     */
+    private final class PostStream implements ToolContext.Sink {
+        private final HttpExchange exchange;
+        private final Runnable onClientGone;
+        private SseStream stream;
+        private boolean completed;
+
+        PostStream(HttpExchange exchange, Runnable onClientGone) {
+            this.exchange = exchange;
+            this.onClientGone = onClientGone;
+        }
+
+        @Override
+        public void notify(String method, Object params, boolean droppable) {
+            SseStream target = open();
+            if (target == null) {
+                return;
+            }
+            JsonRpcRequest notification = new JsonRpcRequest(null, method, params);
+            boolean sent = droppable ? target.offer(notification) : target.send(notification);
+            if (!sent && target.isClosed()) {
+                // The write failed: nobody is listening for the result any more
+                onClientGone.run();
+            }
+        }
+
+        private synchronized SseStream open() {
+            if (completed) {
+                return null;
+            }
+            if (stream == null) {
+                try {
+                    stream = SseStream.open(exchange, MAPPER);
+                } catch (IOException e) {
+                    completed = true;
+                    exchange.close();
+                    return null;
+                }
+            }
+            return stream;
+        }
+
+        void complete(JsonRpcResponse response, Throwable error) {
+            SseStream target;
+            synchronized (this) {
+                completed = true;
+                target = stream;
+            }
+            if (target == null) {
+                completePost(exchange, response, error);
+                return;
+            }
+            if (response != null) {
+                target.send(response);
+            }
+            target.close();
+        }
+    }
 
+    /**
+     * @return false if a session limit refused the new session
+     */
+    private boolean handleInitializePost(HttpExchange exchange, JsonRpcRequest request) throws IOException {
         // Create session and include Mcp-Session-Id in response header
-        String sessionId = sessionManager.createSession();
+        String sessionId;
+        try {
+            sessionId = sessionManager.createSession(remoteAddress(exchange));
+        } catch (SessionManager.SessionLimitException e) {
+            exchange.getResponseHeaders().set("Retry-After", Long.toString(e.getRetryAfterSeconds()));
+            sendHttpError(exchange, e.isAddressQuota() ? 429 : 503, e.getMessage());
+            return false;
+        }
         exchange.getResponseHeaders().set(SESSION_HEADER, sessionId);
 
+        JsonRpcResponse response = handleInitialize(request.getId(), request.getParams());
+
         sendJsonResponse(exchange, 200, response);
+        return true;
+    }
+
+    /**
+     * Open the session's SSE stream for server-initiated messages. A new GET replaces the
+     * previous stream of the same session.
+     */
+    private void handleGet(HttpExchange exchange) throws IOException {
+        if (!acceptsEventStream(exchange)) {
+            // Streamable HTTP: server MAY return 405 if the client doesn't want SSE
+            sendHttpError(exchange, 405, "Method Not Allowed");
+            return;
+        }
+        if (!requireSession(exchange)) {
+            return;
+        }
+        String sessionId = exchange.getRequestHeaders().getFirst(SESSION_HEADER);
+        SseStream stream = SseStream.open(exchange, MAPPER, opened -> {
+            opened.onClose(() -> sessionStreams.remove(sessionId, opened));
+            SseStream previous = sessionStreams.put(sessionId, opened);
+            if (previous != null) {
+                previous.close();
+            }
+        });
+        if (exchange instanceof DisconnectAware) {
+            ((DisconnectAware) exchange).onDisconnect(() -> sessionStreams.remove(sessionId, stream));
+        }
+    }
+
+    /**
+     * Send a JSON-RPC notification on the session's GET stream.
+     *
+     * @return false if the session has no open stream
+     */
+    public boolean sendNotification(String sessionId, String method, Object params) {
+        SseStream stream = sessionStreams.get(sessionId);
+        if (stream == null) {
+            return false;
+        }
+        if (!sessionManager.isValidSession(sessionId)) {
+            // The session expired while its stream stayed open
+            stream.close();
+            return false;
+        }
+        return stream.send(new JsonRpcRequest(null, method, params));
+    }
+
+    /**
+     * End all open session streams and stop timing out tool calls.
+     */
+    public void close() {
+        toolExecutor.close();
+        for (SseStream stream : sessionStreams.values()) {
+            stream.close();
+        }
+        sessionStreams.clear();
     }
 
     private void handleDelete(HttpExchange exchange) throws IOException {
+        if (sessionManager.isStateless()) {
+            // Streamable HTTP: server MAY return 405 if it doesn't let clients end sessions
+            sendHttpError(exchange, 405, "Method Not Allowed");
+            return;
+        }
         String sessionId = exchange.getRequestHeaders().getFirst(SESSION_HEADER);
         if (sessionId != null) {
             sessionManager.removeSession(sessionId);
+            SseStream stream = sessionStreams.remove(sessionId);
+            if (stream != null) {
+                stream.close();
+            }
         }
         exchange.sendResponseHeaders(204, -1);
     }
 
     // --- MCP protocol handlers ---
 
-    private JsonRpcResponse processRequest(JsonRpcRequest request) {
+    /**
+     * @param sink where a tools/call may stream notifications; null if it cannot
+     */
+    private CompletableFuture<JsonRpcResponse> processRequest(JsonRpcRequest request, String sessionId,
+                                                              ToolContext.Sink sink) {
+        long startNanos = System.nanoTime();
+        MethodMetrics stats = metricsFor(request.getMethod());
+        // Recorded before anything chained by the caller, e.g. writing the response, runs
+        return dispatch(request, sessionId, sink).whenComplete((r, e) ->
+                stats.record(startNanos, e != null || (r != null && r.getError() != null)));
+    }
+
+    private MethodMetrics metricsFor(String method) {
+        String label = KNOWN_METHODS.contains(method) ? method : "other";
+        MethodMetrics stats = methodMetrics.get(label);
+        return stats != null ? stats : methodMetrics.computeIfAbsent(label, m -> new MethodMetrics(metrics, m));
+    }
+
+    private CompletableFuture<JsonRpcResponse> dispatch(JsonRpcRequest request, String sessionId,
+                                                        ToolContext.Sink sink) {
         String method = request.getMethod();
         Object id = request.getId();
 
         try {
             switch (method) {
                 case "notifications/initialized":
-                    return null; // Notification, no response
+                    return CompletableFuture.completedFuture(null); // Notification, no response
+                case "notifications/cancelled":
+                    handleCancelled(sessionId, request.getParams());
+                    return CompletableFuture.completedFuture(null);
                 case "tools/list":
-                    return handleToolsList(id);
+                    return CompletableFuture.completedFuture(handleToolsList(id));
                 case "tools/call":
-                    return handleToolsCall(id, request.getParams());
+                    return handleToolsCall(id, request.getParams(), sessionId, sink);
                 case "ping":
-                    return new JsonRpcResponse(id, Collections.emptyMap());
+                    return CompletableFuture.completedFuture(new JsonRpcResponse(id, Collections.emptyMap()));
+                case "logging/setLevel":
+                    return CompletableFuture.completedFuture(handleSetLevel(id, sessionId, request.getParams()));
                 default:
-                    if (id == null) return null; // Unknown notification
-                    return new JsonRpcResponse(id,
-                            new JsonRpcError(JsonRpcError.METHOD_NOT_FOUND, "Method not found: " + method));
+                    if (id == null) return CompletableFuture.completedFuture(null); // Unknown notification
+                    return CompletableFuture.completedFuture(new JsonRpcResponse(id,
+                            new JsonRpcError(JsonRpcError.METHOD_NOT_FOUND, "Method not found: " + method)));
             }
         } catch (Exception e) {
-            if (id == null) return null;
-            return new JsonRpcResponse(id,
-                    new JsonRpcError(JsonRpcError.INTERNAL_ERROR, "Internal error: " + e.getMessage()));
+            if (id == null) return CompletableFuture.completedFuture(null);
+            return CompletableFuture.completedFuture(new JsonRpcResponse(id,
+                    new JsonRpcError(JsonRpcError.INTERNAL_ERROR, "Internal error: " + e.getMessage())));
+        }
+    }
+
+    /**
+     * notifications/cancelled: stop the referenced call of this session, if still running.
+     */
+    private void handleCancelled(String sessionId, Object params) {
+        if (params instanceof Map) {
+            toolExecutor.cancel(sessionId, ((Map<?, ?>) params).get("requestId"));
         }
     }
 
@@ -186,7 +697,8 @@ public class McpHttpHandler implements HttpHandler {
         try {
             InitializeRequest initRequest = MAPPER.convertValue(params, InitializeRequest.class);
 
-            ServerCapabilities capabilities = new ServerCapabilities(new ServerCapabilities.ToolsCapability());
+            ServerCapabilities capabilities = new ServerCapabilities(new ServerCapabilities.ToolsCapability(),
+                    new ServerCapabilities.LoggingCapability());
             Implementation serverInfo = new Implementation(config.getServerName(), config.getServerVersion());
 
             InitializeResult result = new InitializeResult(PROTOCOL_VERSION, capabilities, serverInfo);
@@ -197,49 +709,148 @@ public class McpHttpHandler implements HttpHandler {
         }
     }
 
-    private JsonRpcResponse handleToolsList(Object id) {
-        List<Tool> tools = toolRegistry.getAllTools();
-        List<ToolInfo> toolInfos = tools.stream()
-                .map(tool -> new ToolInfo(tool.getName(), tool.getDescription(),
-                        tool.getInputSchema(), tool.getAnnotations()))
-                .collect(Collectors.toList());
+    /**
+     * logging/setLevel: from now on only log messages at or above the level reach the session.
+     * Stateless sessions cannot hold it and keep receiving everything.
+     */
+    private JsonRpcResponse handleSetLevel(Object id, String sessionId, Object params) {
+        Object level = params instanceof Map ? ((Map<?, ?>) params).get("level") : null;
+        int severity = LOG_LEVELS.indexOf(level);
+        if (severity < 0) {
+            return new JsonRpcResponse(id, new JsonRpcError(JsonRpcError.INVALID_PARAMS, "Unknown log level: " + level));
+        }
+        sessionManager.setLogLevel(sessionId, severity);
+        return new JsonRpcResponse(id, Collections.emptyMap());
+    }
+
+    private JsonRpcResponse handleToolsList(Object id) throws IOException {
+        return new JsonRpcResponse(id, new RawValue(toolsList().json));
+    }
 
-        ToolsListResult result = new ToolsListResult(toolInfos);
-        return new JsonRpcResponse(id, result);
+    /**
+     * Current tools/list result, rebuilt only when the registry version has moved.
+     */
+    private ToolsListCache toolsList() throws IOException {
+        long version = toolRegistry.getVersion();
+        ToolsListCache cache = toolsListCache;
+        if (cache == null || cache.version != version) {
+            cache = new ToolsListCache(version, toolRegistry.getAllTools());
+            toolsListCache = cache;
+        }
+        return cache;
     }
 
-    private JsonRpcResponse handleToolsCall(Object id, Object params) {
+    private CompletableFuture<JsonRpcResponse> handleToolsCall(Object id, Object params, String sessionId,
+                                                               ToolContext.Sink sink) {
+        CompletableFuture<ToolsCallResult> call;
         try {
             ToolsCallRequest callRequest = MAPPER.convertValue(params, ToolsCallRequest.class);
-            ToolsCallResult result = toolExecutor.execute(callRequest.getName(), callRequest.getArguments());
-            return new JsonRpcResponse(id, result);
+            ToolContext.Sink callSink = sink;
+            if (sink != null && sessionManager.getLogLevel(sessionId) > INFO) {
+                // Partial output is logged at info, below what the client asked for
+                callSink = (method, notification, droppable) -> {
+                    if (!"notifications/message".equals(method)) {
+                        sink.notify(method, notification, droppable);
+                    }
+                };
+            }
+            ToolContext context = ToolContext.builder()
+                    .sessionId(sessionId)
+                    .requestId(id)
+                    .toolName(callRequest.getName())
+                    .progressToken(callRequest.getProgressToken())
+                    .sink(callSink)
+                    .build();
+            call = toolExecutor.executeAsync(callRequest.getName(), callRequest.getArguments(), context);
         } catch (ToolExecutor.ToolNotFoundException e) {
-            return new JsonRpcResponse(id,
-                    new JsonRpcError(JsonRpcError.INVALID_PARAMS, e.getMessage()));
+            return CompletableFuture.completedFuture(new JsonRpcResponse(id,
+                    new JsonRpcError(JsonRpcError.INVALID_PARAMS, e.getMessage())));
         } catch (ToolExecutor.InvalidToolArgumentsException e) {
-            return new JsonRpcResponse(id,
-                    new JsonRpcError(JsonRpcError.INVALID_PARAMS, e.getMessage()));
+            return CompletableFuture.completedFuture(new JsonRpcResponse(id,
+                    new JsonRpcError(JsonRpcError.INVALID_PARAMS, e.getMessage())));
+        } catch (Bulkhead.BulkheadFullException e) {
+            return CompletableFuture.completedFuture(new JsonRpcResponse(id,
+                    new JsonRpcError(JsonRpcError.SERVER_OVERLOADED, e.getMessage())));
         } catch (IllegalArgumentException e) {
-            return new JsonRpcResponse(id,
-                    new JsonRpcError(JsonRpcError.INVALID_PARAMS, "Invalid tool call params: " + e.getMessage()));
+            return CompletableFuture.completedFuture(new JsonRpcResponse(id,
+                    new JsonRpcError(JsonRpcError.INVALID_PARAMS, "Invalid tool call params: " + e.getMessage())));
         } catch (Exception e) {
-            return new JsonRpcResponse(id,
-                    new JsonRpcError(JsonRpcError.INTERNAL_ERROR, "Internal error: " + e.getMessage()));
+            return CompletableFuture.completedFuture(new JsonRpcResponse(id,
+                    new JsonRpcError(JsonRpcError.INTERNAL_ERROR, "Internal error: " + e.getMessage())));
+        }
+        return call.thenApply(result -> new JsonRpcResponse(id, result));
+    }
+
+    /**
+     * Request count, error count and latency of one JSON-RPC method.
+     */
+    private static final class MethodMetrics {
+        final Counter requests;
+        final Counter errors;
+        final LatencyHistogram latency;
+
+        MethodMetrics(MetricsRegistry metrics, String method) {
+            requests = metrics.counter("mcp4j_requests_total", "JSON-RPC messages received", "method", method);
+            errors = metrics.counter("mcp4j_request_errors_total", "JSON-RPC messages answered with an error",
+                    "method", method);
+            latency = metrics.histogram("mcp4j_request_duration_seconds", "JSON-RPC message latency",
+                    "method", method);
+        }
+
+        void record(long startNanos, boolean error) {
+            requests.increment();
+            if (error) {
+                errors.increment();
+            }
+            latency.record(System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * Serialized ToolsListResult for one registry version, with its UTF-8 bytes and ETag precomputed.
+     */
+    private static final class ToolsListCache {
+        final long version;
+        final SerializedString json;
+        final String etag;
+
+        ToolsListCache(long version, List<Tool> tools) throws IOException {
+            List<ToolInfo> toolInfos = tools.stream()
+                    .sorted(Comparator.comparing(Tool::getName))
+                    .map(tool -> new ToolInfo(tool.getName(), tool.getDescription(),
+                            tool.getInputSchema(), tool.getAnnotations()))
+                    .collect(Collectors.toList());
+
+            this.version = version;
+            this.json = new SerializedString(MAPPER.writeValueAsString(new ToolsListResult(toolInfos)));
+            byte[] bytes = json.asUnquotedUTF8();
+            CRC32 crc = new CRC32();
+            crc.update(bytes, 0, bytes.length);
+            this.etag = "\"" + Long.toHexString(crc.getValue()) + "-" + bytes.length + "\"";
         }
     }
 
     // --- HTTP helpers ---
 
     private void sendJsonResponse(HttpExchange exchange, int statusCode, Object response) throws IOException {
-        String json = MAPPER.writeValueAsString(response);
-        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
-
         exchange.getResponseHeaders().set("Content-Type", "application/json");
-        exchange.sendResponseHeaders(statusCode, bytes.length);
+        try (OutputStream os = openJsonBody(exchange, statusCode)) {
+            MAPPER.writeValue(os, response);
+        }
+    }
 
-        try (OutputStream os = exchange.getResponseBody()) {
-            os.write(bytes);
+    /**
+     * Body for a JSON response, compressed when the client accepts gzip or deflate and the body
+     * reaches the configured threshold.
+     */
+    private OutputStream openJsonBody(HttpExchange exchange, int statusCode) {
+        int threshold = config.getResponseCompressionThreshold();
+        if (threshold <= 0) {
+            return new ResponseBodyStream(exchange, statusCode, BUFFER_POOL);
         }
+        exchange.getResponseHeaders().set("Vary", "Accept-Encoding");
+        String encoding = ResponseCompression.negotiate(exchange.getRequestHeaders().get("Accept-Encoding"));
+        return new ResponseBodyStream(exchange, statusCode, BUFFER_POOL, encoding, threshold);
     }
 
     private void sendHttpError(HttpExchange exchange, int statusCode, String message) throws IOException {
@@ -251,13 +862,87 @@ public class McpHttpHandler implements HttpHandler {
         }
     }
 
-    private byte[] readAllBytes(InputStream is) throws IOException {
-        java.io.ByteArrayOutputStream baos = new java.io.ByteArrayOutputStream();
-        byte[] buffer = new byte[8192];
-        int bytesRead;
-        while ((bytesRead = is.read(buffer)) != -1) {
-            baos.write(buffer, 0, bytesRead);
+    /**
+     * Answer 413 and drop the connection instead of draining the rest of the body.
+     * The client may already be gone, so write failures are ignored.
+     */
+    private void rejectOversizeBody(HttpExchange exchange) {
+        exchange.getResponseHeaders().set("Connection", "close");
+        try {
+            sendHttpError(exchange, 413, "Request body too large");
+        } catch (IOException ignored) {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Cancel the request's tool calls if the client hangs up before the response is complete.
+     * Only engines that can tell (see {@link DisconnectAware}) report this.
+     */
+    private static void cancelOnDisconnect(HttpExchange exchange, Runnable cancel) {
+        if (exchange instanceof DisconnectAware) {
+            ((DisconnectAware) exchange).onDisconnect(cancel);
+        }
+    }
+
+    private static String remoteAddress(HttpExchange exchange) {
+        InetSocketAddress address = exchange.getRemoteAddress();
+        if (address == null) {
+            return null;
+        }
+        return address.getAddress() != null ? address.getAddress().getHostAddress() : address.getHostString();
+    }
+
+    private static boolean acceptsEventStream(HttpExchange exchange) {
+        for (String accept : exchange.getRequestHeaders().getOrDefault("Accept", Collections.<String>emptyList())) {
+            if (accept.contains("text/event-stream")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private long declaredContentLength(HttpExchange exchange) {
+        String contentLength = exchange.getRequestHeaders().getFirst("Content-Length");
+        if (contentLength == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(contentLength.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Content coding of the request body: "identity", GZIP, DEFLATE, or null if unsupported.
+     */
+    private static String requestEncoding(HttpExchange exchange) {
+        String header = exchange.getRequestHeaders().getFirst("Content-Encoding");
+        if (header == null) {
+            return "identity";
+        }
+        String coding = header.trim().toLowerCase(Locale.ROOT);
+        switch (coding) {
+            case "":
+            case "identity":
+                return "identity";
+            case "gzip":
+            case "x-gzip":
+                return ResponseCompression.GZIP;
+            case "deflate":
+                return ResponseCompression.DEFLATE;
+            default:
+                return null;
+        }
+    }
+
+    private static boolean isBodyTooLarge(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof BoundedInputStream.LimitExceededException) {
+                return true;
+            }
         }
-        return baos.toByteArray();
+        return false;
     }
 }
@@ -1,31 +1,61 @@
 package me.afoo.mcp4j.server;
 
-import com.sun.net.httpserver.HttpServer;
+import me.afoo.mcp4j.metrics.MetricsHttpHandler;
+import me.afoo.mcp4j.metrics.MetricsRegistry;
+import me.afoo.mcp4j.tool.Bulkhead;
 import me.afoo.mcp4j.tool.Tool;
 import me.afoo.mcp4j.tool.ToolRegistry;
+import me.afoo.mcp4j.transport.ConnectionStats;
+import me.afoo.mcp4j.transport.HttpTransport;
+import me.afoo.mcp4j.transport.SessionLimitPolicy;
 import me.afoo.mcp4j.transport.SessionManager;
+import me.afoo.mcp4j.transport.SessionStore;
+import me.afoo.mcp4j.transport.TransportOptions;
+import me.afoo.mcp4j.transport.TransportType;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.time.Duration;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.logging.Logger;
 
 /**
- * Main MCP server implementation using HttpServer.
+ * Main MCP server implementation.
+ *
+ * The HTTP engine is pluggable through {@link HttpTransport}; by default com.sun.net.httpserver is used.
+ * Metrics are always recorded in {@link #getMetrics()} and, when a metrics endpoint is configured,
+ * served from it on the same port.
  */
 public class McpServer {
+    private static final Logger LOG = Logger.getLogger(McpServer.class.getName());
+
     private final McpServerConfig config;
     private final ToolRegistry toolRegistry;
     private final SessionManager sessionManager;
-    private HttpServer httpServer;
-    private ThreadPoolExecutor executor;
+    private final MetricsRegistry metrics = new MetricsRegistry();
+    private HttpTransport transport;
+    private volatile McpHttpHandler handler;
+    private ExecutorService executor;
     private volatile boolean running = false;
 
     private McpServer(Builder builder) {
         this.config = builder.configBuilder.build();
         this.toolRegistry = builder.toolRegistry;
-        this.sessionManager = new SessionManager(config.getSessionTimeout().toMillis());
+        this.sessionManager = createSessionManager(config);
+    }
+
+    private static SessionManager createSessionManager(McpServerConfig config) {
+        long timeout = config.getSessionTimeout().toMillis();
+        if (config.getSessionSigningKey() == null) {
+            return new SessionManager(timeout, config.getMaxSessions(), config.getSessionLimitPolicy(),
+                    config.getMaxSessionsPerAddress(), config.getSessionStore());
+        }
+        if (config.getSessionStore() != null || config.getMaxSessions() > 0 || config.getMaxSessionsPerAddress() > 0) {
+            throw new IllegalStateException("Stateless sessions cannot be combined with a session store or limits");
+        }
+        return SessionManager.stateless(timeout, config.getSessionSigningKey());
     }
 
     public synchronized void start() throws IOException {
@@ -34,15 +64,22 @@ public class McpServer {
         }
 
         InetSocketAddress address = new InetSocketAddress(config.getHost(), config.getPort());
-        httpServer = HttpServer.create(address, config.getBacklog());
+        executor = createExecutor();
 
-        executor = (ThreadPoolExecutor) Executors.newFixedThreadPool(config.getThreadPoolSize());
-        httpServer.setExecutor(executor);
-
-        McpHttpHandler handler = new McpHttpHandler(config, toolRegistry, sessionManager);
-        httpServer.createContext(config.getEndpoint(), handler);
+        transport = config.getTransport().create(TransportOptions.builder()
+                .maxRequestBodySize(config.getMaxRequestBodySize())
+                .idleTimeout(config.getIdleConnectionTimeout())
+                .maxRequestsPerConnection(config.getMaxRequestsPerConnection())
+                .maxConnections(config.getMaxConnections())
+                .build());
+        handler = new McpHttpHandler(config, toolRegistry, sessionManager, executor, metrics);
+        transport.createContext(config.getEndpoint(), handler);
+        if (config.getMetricsEndpoint() != null) {
+            transport.createContext(config.getMetricsEndpoint(), new MetricsHttpHandler(metrics));
+        }
+        registerGauges(executor);
 
-        httpServer.start();
+        transport.start(address, config.getBacklog(), executor);
         running = true;
     }
 
@@ -50,23 +87,87 @@ public class McpServer {
         if (!running) {
             return;
         }
-        if (httpServer != null) {
-            httpServer.stop(0);
+        if (transport != null) {
+            transport.stop(0);
+        }
+        if (handler != null) {
+            handler.close();
         }
         if (executor != null) {
             executor.shutdown();
         }
-        sessionManager.shutdown();
+        sessionManager.stop();
         running = false;
     }
 
+    private void registerGauges(ExecutorService executor) {
+        metrics.gauge("mcp4j_sessions", "Sessions held by the session manager", sessionManager::getSessionCount);
+        metrics.counter("mcp4j_sessions_evicted_total", "Sessions ended to make room under the session cap",
+                sessionManager::getEvictionCount);
+        metrics.counter("mcp4j_sessions_rejected_total", "New sessions refused by a session limit",
+                sessionManager::getRejectionCount, "limit", "max_sessions");
+        metrics.counter("mcp4j_sessions_rejected_total", "New sessions refused by a session limit",
+                sessionManager::getAddressRejectionCount, "limit", "per_address");
+        ConnectionStats connections = transport.getConnectionStats();
+        if (connections != null) {
+            metrics.gauge("mcp4j_connections_open", "Open client connections", connections::getOpenCount);
+            metrics.counter("mcp4j_connections_opened_total", "Client connections accepted",
+                    connections::getOpenedCount);
+            metrics.counter("mcp4j_connections_closed_total", "Client connections closed",
+                    connections::getClosedCount);
+            metrics.counter("mcp4j_connections_reused_total", "Requests served on a kept-alive connection",
+                    connections::getReusedCount);
+        }
+        if (executor instanceof ThreadPoolExecutor) {
+            ThreadPoolExecutor pool = (ThreadPoolExecutor) executor;
+            metrics.gauge("mcp4j_executor_queue_depth", "Requests waiting for a worker thread",
+                    () -> pool.getQueue().size());
+            metrics.gauge("mcp4j_executor_active_threads", "Worker threads running a request", pool::getActiveCount);
+        }
+        for (Tool tool : toolRegistry.getAllTools()) {
+            Bulkhead bulkhead = tool.getBulkhead();
+            if (bulkhead != null) {
+                metrics.gauge("mcp4j_bulkhead_in_flight", "Calls running in a tool bulkhead",
+                        bulkhead::getInFlight, "bulkhead", bulkhead.getName());
+                metrics.gauge("mcp4j_bulkhead_queued", "Calls waiting in a tool bulkhead",
+                        bulkhead::getQueued, "bulkhead", bulkhead.getName());
+            }
+        }
+    }
+
+    private ExecutorService createExecutor() {
+        if (config.getExecutorMode() == ExecutorMode.VIRTUAL_THREADS) {
+            ExecutorService virtual = VirtualThreads.newExecutor();
+            if (virtual != null) {
+                return virtual;
+            }
+            LOG.warning("Virtual threads need JDK 21+, using a fixed pool of "
+                    + config.getThreadPoolSize() + " threads");
+        }
+        return Executors.newFixedThreadPool(config.getThreadPoolSize());
+    }
+
+    /**
+     * Push a JSON-RPC notification to a session over its GET event stream.
+     *
+     * @return false if the session has no open stream
+     */
+    public boolean sendNotification(String sessionId, String method, Object params) {
+        McpHttpHandler current = handler;
+        return current != null && current.sendNotification(sessionId, method, params);
+    }
+
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
     public boolean isRunning() {
         return running;
     }
 
     public String getAddress() {
-        if (httpServer != null) {
-            InetSocketAddress addr = httpServer.getAddress();
+        InetSocketAddress addr = transport != null ? transport.getAddress() : null;
+        if (addr != null) {
             return "http://" + addr.getHostString() + ":" + addr.getPort() + config.getEndpoint();
         }
         return null;
@@ -100,6 +201,40 @@ public class McpServer {
             return this;
         }
 
+        public Builder maxSessions(int max) {
+            configBuilder.maxSessions(max);
+            return this;
+        }
+
+        public Builder sessionLimitPolicy(SessionLimitPolicy policy) {
+            configBuilder.sessionLimitPolicy(policy);
+            return this;
+        }
+
+        public Builder maxSessionsPerAddress(int max) {
+            configBuilder.maxSessionsPerAddress(max);
+            return this;
+        }
+
+        /**
+         * Keep sessions in the given store so they survive restarts. The server flushes it on stop
+         * but leaves it open so it can be started again; close the store once done with the server.
+         */
+        public Builder sessionStore(SessionStore store) {
+            configBuilder.sessionStore(store);
+            return this;
+        }
+
+        /**
+         * Issue signed, self-expiring session IDs that any server with the same key accepts,
+         * instead of keeping sessions. Sessions then last one session timeout from initialize
+         * and cannot be deleted.
+         */
+        public Builder sessionSigningKey(byte[] key) {
+            configBuilder.sessionSigningKey(key);
+            return this;
+        }
+
         public Builder serverName(String serverName) {
             configBuilder.serverName(serverName);
             return this;
@@ -115,6 +250,61 @@ public class McpServer {
             return this;
         }
 
+        public Builder transport(TransportType transport) {
+            configBuilder.transport(transport);
+            return this;
+        }
+
+        public Builder maxRequestBodySize(long bytes) {
+            configBuilder.maxRequestBodySize(bytes);
+            return this;
+        }
+
+        public Builder idleConnectionTimeout(Duration timeout) {
+            configBuilder.idleConnectionTimeout(timeout);
+            return this;
+        }
+
+        public Builder maxRequestsPerConnection(int max) {
+            configBuilder.maxRequestsPerConnection(max);
+            return this;
+        }
+
+        public Builder maxConnections(int max) {
+            configBuilder.maxConnections(max);
+            return this;
+        }
+
+        public Builder responseCompressionThreshold(int bytes) {
+            configBuilder.responseCompressionThreshold(bytes);
+            return this;
+        }
+
+        public Builder executorMode(ExecutorMode executorMode) {
+            configBuilder.executorMode(executorMode);
+            return this;
+        }
+
+        public Builder maxConcurrentRequests(int max) {
+            configBuilder.maxConcurrentRequests(max);
+            return this;
+        }
+
+        public Builder toolTimeout(Duration toolTimeout) {
+            configBuilder.toolTimeout(toolTimeout);
+            return this;
+        }
+
+        public Builder toolResultCacheSize(int entries) {
+            configBuilder.toolResultCacheSize(entries);
+            return this;
+        }
+
+        public Builder metricsEndpoint(String metricsEndpoint) {
+            configBuilder.metricsEndpoint(metricsEndpoint);
+            return this;
+        }
+
         public Builder tool(Tool tool) {
             toolRegistry.register(tool);
             return this;
@@ -1,5 +1,9 @@
 package me.afoo.mcp4j.server;
 
+import me.afoo.mcp4j.transport.SessionLimitPolicy;
+import me.afoo.mcp4j.transport.SessionStore;
+import me.afoo.mcp4j.transport.TransportType;
+
 import java.time.Duration;
 
 /**
@@ -10,30 +14,104 @@ public class McpServerConfig {
     private final int port;
     private final String endpoint;
     private final Duration sessionTimeout;
+    private final int maxSessions;
+    private final SessionLimitPolicy sessionLimitPolicy;
+    private final int maxSessionsPerAddress;
+    private final SessionStore sessionStore;
+    private final byte[] sessionSigningKey;
     private final String serverName;
     private final String serverVersion;
     private final int backlog;
     private final int threadPoolSize;
+    private final TransportType transport;
+    private final long maxRequestBodySize;
+    private final Duration idleConnectionTimeout;
+    private final int maxRequestsPerConnection;
+    private final int maxConnections;
+    private final int responseCompressionThreshold;
+    private final ExecutorMode executorMode;
+    private final int maxConcurrentRequests;
+    private final Duration toolTimeout;
+    private final int toolResultCacheSize;
+    private final String metricsEndpoint;
 
     private McpServerConfig(Builder builder) {
         this.host = builder.host;
         this.port = builder.port;
         this.endpoint = builder.endpoint;
         this.sessionTimeout = builder.sessionTimeout;
+        this.maxSessions = builder.maxSessions;
+        this.sessionLimitPolicy = builder.sessionLimitPolicy;
+        this.maxSessionsPerAddress = builder.maxSessionsPerAddress;
+        this.sessionStore = builder.sessionStore;
+        this.sessionSigningKey = builder.sessionSigningKey;
         this.serverName = builder.serverName;
         this.serverVersion = builder.serverVersion;
         this.backlog = builder.backlog;
         this.threadPoolSize = builder.threadPoolSize;
+        this.transport = builder.transport;
+        this.maxRequestBodySize = builder.maxRequestBodySize;
+        this.idleConnectionTimeout = builder.idleConnectionTimeout;
+        this.maxRequestsPerConnection = builder.maxRequestsPerConnection;
+        this.maxConnections = builder.maxConnections;
+        this.responseCompressionThreshold = builder.responseCompressionThreshold;
+        this.executorMode = builder.executorMode;
+        this.maxConcurrentRequests = builder.maxConcurrentRequests;
+        this.toolTimeout = builder.toolTimeout;
+        this.toolResultCacheSize = builder.toolResultCacheSize;
+        this.metricsEndpoint = builder.metricsEndpoint;
     }
 
     public String getHost() { return host; }
     public int getPort() { return port; }
     public String getEndpoint() { return endpoint; }
     public Duration getSessionTimeout() { return sessionTimeout; }
+    /** Upper bound on live sessions; 0 means unbounded. */
+    public int getMaxSessions() { return maxSessions; }
+    /** Whether a new session at the cap is refused with 503 or evicts an idle one. */
+    public SessionLimitPolicy getSessionLimitPolicy() { return sessionLimitPolicy; }
+    /** Upper bound on live sessions per client address, answered with 429 beyond it; 0 means unbounded. */
+    public int getMaxSessionsPerAddress() { return maxSessionsPerAddress; }
+    /** Where sessions persist across restarts and are shared between servers; null keeps them in memory. */
+    public SessionStore getSessionStore() { return sessionStore; }
+    /**
+     * HMAC key for stateless sessions, whose IDs are signed tokens valid on every server with the
+     * key for one session timeout; null keeps sessions on the server.
+     */
+    public byte[] getSessionSigningKey() { return sessionSigningKey; }
     public String getServerName() { return serverName; }
     public String getServerVersion() { return serverVersion; }
     public int getBacklog() { return backlog; }
     public int getThreadPoolSize() { return threadPoolSize; }
+    public TransportType getTransport() { return transport; }
+    /** Largest request body, both as sent and after inflating a gzip or deflate body. */
+    public long getMaxRequestBodySize() { return maxRequestBodySize; }
+    /** How long an idle keep-alive connection stays open. NIO engine only. */
+    public Duration getIdleConnectionTimeout() { return idleConnectionTimeout; }
+    /** Requests per connection before it is closed; 0 means unlimited. NIO engine only. */
+    public int getMaxRequestsPerConnection() { return maxRequestsPerConnection; }
+    /**
+     * Upper bound on open connections, beyond which clients wait to be accepted; 0 means unbounded.
+     * NIO engine only.
+     */
+    public int getMaxConnections() { return maxConnections; }
+    /**
+     * Smallest JSON response, in bytes, sent gzip or deflate encoded to a client that accepts it;
+     * 0 disables compression.
+     */
+    public int getResponseCompressionThreshold() { return responseCompressionThreshold; }
+    public ExecutorMode getExecutorMode() { return executorMode; }
+    /**
+     * Upper bound on POST requests in flight, counted until their response is written; further
+     * requests are refused with 503. 0 means unbounded.
+     */
+    public int getMaxConcurrentRequests() { return maxConcurrentRequests; }
+    /** Default time limit of a tool call; Duration.ZERO means none. Tools can override it. */
+    public Duration getToolTimeout() { return toolTimeout; }
+    /** Maximum number of cached tool results, for tools with a cache TTL; 0 disables the cache. */
+    public int getToolResultCacheSize() { return toolResultCacheSize; }
+    /** Path serving metrics in Prometheus text format, e.g. "/metrics"; null disables it. */
+    public String getMetricsEndpoint() { return metricsEndpoint; }
 
     public static Builder builder() {
         return new Builder();
@@ -44,19 +122,51 @@ public class McpServerConfig {
         private int port = 8080;
         private String endpoint = "/mcp";
         private Duration sessionTimeout = Duration.ofMinutes(30);
+        private int maxSessions = 0;
+        private SessionLimitPolicy sessionLimitPolicy = SessionLimitPolicy.REJECT;
+        private int maxSessionsPerAddress = 0;
+        private SessionStore sessionStore;
+        private byte[] sessionSigningKey;
         private String serverName = "mcp4j-server";
         private String serverVersion = "0.1.0";
         private int backlog = 0;
         private int threadPoolSize = 10;
+        private TransportType transport = TransportType.JDK;
+        private long maxRequestBodySize = 16L * 1024 * 1024;
+        private Duration idleConnectionTimeout = Duration.ofSeconds(30);
+        private int maxRequestsPerConnection = 0;
+        private int maxConnections = 0;
+        private int responseCompressionThreshold = 1024;
+        private ExecutorMode executorMode = ExecutorMode.FIXED_POOL;
+        private int maxConcurrentRequests = 0;
+        private Duration toolTimeout = Duration.ZERO;
+        private int toolResultCacheSize = 1024;
+        private String metricsEndpoint;
 
         public Builder host(String host) { this.host = host; return this; }
         public Builder port(int port) { this.port = port; return this; }
         public Builder endpoint(String endpoint) { this.endpoint = endpoint; return this; }
         public Builder sessionTimeout(Duration sessionTimeout) { this.sessionTimeout = sessionTimeout; return this; }
+        public Builder maxSessions(int max) { this.maxSessions = max; return this; }
+        public Builder sessionLimitPolicy(SessionLimitPolicy policy) { this.sessionLimitPolicy = policy; return this; }
+        public Builder maxSessionsPerAddress(int max) { this.maxSessionsPerAddress = max; return this; }
+        public Builder sessionStore(SessionStore store) { this.sessionStore = store; return this; }
+        public Builder sessionSigningKey(byte[] key) { this.sessionSigningKey = key; return this; }
         public Builder serverName(String serverName) { this.serverName = serverName; return this; }
         public Builder serverVersion(String serverVersion) { this.serverVersion = serverVersion; return this; }
         public Builder backlog(int backlog) { this.backlog = backlog; return this; }
         public Builder threadPoolSize(int size) { this.threadPoolSize = size; return this; }
+        public Builder transport(TransportType transport) { this.transport = transport; return this; }
+        public Builder maxRequestBodySize(long bytes) { this.maxRequestBodySize = bytes; return this; }
+        public Builder idleConnectionTimeout(Duration timeout) { this.idleConnectionTimeout = timeout; return this; }
+        public Builder maxRequestsPerConnection(int max) { this.maxRequestsPerConnection = max; return this; }
+        public Builder maxConnections(int max) { this.maxConnections = max; return this; }
+        public Builder responseCompressionThreshold(int bytes) { this.responseCompressionThreshold = bytes; return this; }
+        public Builder executorMode(ExecutorMode executorMode) { this.executorMode = executorMode; return this; }
+        public Builder maxConcurrentRequests(int max) { this.maxConcurrentRequests = max; return this; }
+        public Builder toolTimeout(Duration toolTimeout) { this.toolTimeout = toolTimeout; return this; }
+        public Builder toolResultCacheSize(int entries) { this.toolResultCacheSize = entries; return this; }
+        public Builder metricsEndpoint(String metricsEndpoint) { this.metricsEndpoint = metricsEndpoint; return this; }
 
         public McpServerConfig build() {
             return new McpServerConfig(this);
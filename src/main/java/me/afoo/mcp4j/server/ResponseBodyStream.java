@@ -0,0 +1,124 @@
+package me.afoo.mcp4j.server;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Response body that serializes straight into the exchange.
+ *
+ * Output is collected in a pooled buffer first. If the whole body fits, it is sent with a
+ * Content-Length; as soon as it overflows, the headers are committed with chunked encoding
+ * and everything after that streams through. Memory per response is bounded by the buffer
+ * size, not by the size of the result.
+ *
+ * With a content encoding, a body that overflows the buffer or reaches the threshold by the time
+ * it is closed goes out compressed and chunked, encoded as it streams; a smaller one is sent as is.
+ */
+final class ResponseBodyStream extends OutputStream {
+    private final HttpExchange exchange;
+    private final int statusCode;
+    private final BufferPool pool;
+    private final String encoding;
+    private final int threshold;
+    private byte[] buffer;
+    private int count;
+    private OutputStream out;
+    private boolean closed;
+
+    ResponseBodyStream(HttpExchange exchange, int statusCode, BufferPool pool) {
+        this(exchange, statusCode, pool, null, 0);
+    }
+
+    /**
+     * @param encoding ResponseCompression.GZIP or DEFLATE, or null to never compress
+     * @param threshold smallest body that is compressed
+     */
+    ResponseBodyStream(HttpExchange exchange, int statusCode, BufferPool pool, String encoding, int threshold) {
+        this.exchange = exchange;
+        this.statusCode = statusCode;
+        this.pool = pool;
+        this.encoding = encoding;
+        this.threshold = threshold;
+        this.buffer = pool.acquire();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (out == null && count < buffer.length) {
+            buffer[count++] = (byte) b;
+            return;
+        }
+        commitChunked();
+        out.write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (out == null && len <= buffer.length - count) {
+            System.arraycopy(b, off, buffer, count, len);
+            count += len;
+            return;
+        }
+        commitChunked();
+        out.write(b, off, len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (out != null) {
+            out.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (out == null && encoding != null && count >= threshold) {
+                startChunked();
+            } else if (out == null) {
+                exchange.sendResponseHeaders(statusCode, count > 0 ? count : -1);
+                out = exchange.getResponseBody();
+                out.write(buffer, 0, count);
+            }
+            out.close();
+        } finally {
+            releaseBuffer();
+        }
+    }
+
+    private void commitChunked() throws IOException {
+        if (closed) {
+            throw new IOException("stream is closed");
+        }
+        if (out != null) {
+            return;
+        }
+        startChunked();
+    }
+
+    private void startChunked() throws IOException {
+        if (encoding != null) {
+            exchange.getResponseHeaders().set("Content-Encoding", encoding);
+        }
+        exchange.sendResponseHeaders(statusCode, 0);
+        out = exchange.getResponseBody();
+        if (encoding != null) {
+            out = ResponseCompression.encode(out, encoding);
+        }
+        out.write(buffer, 0, count);
+        releaseBuffer();
+    }
+
+    private void releaseBuffer() {
+        if (buffer != null) {
+            pool.release(buffer);
+            buffer = null;
+        }
+    }
+}
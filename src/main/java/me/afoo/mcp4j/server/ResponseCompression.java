@@ -0,0 +1,166 @@
+package me.afoo.mcp4j.server;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Content-Encoding negotiation and streaming gzip/deflate encoders.
+ *
+ * Deflaters hold native zlib memory that is only returned by end() or finalization, so they
+ * are pooled and reset between responses instead of being created per response.
+ */
+final class ResponseCompression {
+    static final String GZIP = "gzip";
+    static final String DEFLATE = "deflate";
+    private static final int POOL_SIZE = 32;
+    private static final int BUFFER_SIZE = 8192;
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0};
+
+    // gzip wraps a raw deflate stream; HTTP "deflate" is the zlib format
+    private static final ArrayBlockingQueue<Deflater> RAW_DEFLATERS = new ArrayBlockingQueue<>(POOL_SIZE);
+    private static final ArrayBlockingQueue<Deflater> ZLIB_DEFLATERS = new ArrayBlockingQueue<>(POOL_SIZE);
+
+    private ResponseCompression() {
+    }
+
+    /**
+     * Pick an encoding from Accept-Encoding header values, preferring gzip on equal weight.
+     *
+     * @return GZIP, DEFLATE or null for identity
+     */
+    static String negotiate(List<String> acceptEncoding) {
+        if (acceptEncoding == null) {
+            return null;
+        }
+        double gzip = -1;
+        double deflate = -1;
+        double any = -1;
+        for (String header : acceptEncoding) {
+            for (String element : header.split(",")) {
+                String[] parts = element.split(";");
+                String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+                double q = 1;
+                for (int i = 1; i < parts.length; i++) {
+                    String param = parts[i].trim();
+                    if (param.startsWith("q=")) {
+                        try {
+                            q = Double.parseDouble(param.substring(2));
+                        } catch (NumberFormatException e) {
+                            q = 0;
+                        }
+                    }
+                }
+                if (coding.equals(GZIP) || coding.equals("x-gzip")) {
+                    gzip = Math.max(gzip, q);
+                } else if (coding.equals(DEFLATE)) {
+                    deflate = Math.max(deflate, q);
+                } else if (coding.equals("*")) {
+                    any = q;
+                }
+            }
+        }
+        // An explicit weight wins over the wildcard
+        if (gzip < 0) {
+            gzip = any;
+        }
+        if (deflate < 0) {
+            deflate = any;
+        }
+        if (gzip > 0 && gzip >= deflate) {
+            return GZIP;
+        }
+        return deflate > 0 ? DEFLATE : null;
+    }
+
+    /**
+     * Wrap the stream in an encoder; closing the encoder finishes the encoding, returns its
+     * deflater to the pool and closes the target.
+     */
+    static OutputStream encode(OutputStream out, String encoding) throws IOException {
+        boolean gzip = GZIP.equals(encoding);
+        ArrayBlockingQueue<Deflater> pool = gzip ? RAW_DEFLATERS : ZLIB_DEFLATERS;
+        Deflater deflater = pool.poll();
+        if (deflater == null) {
+            deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, gzip);
+        }
+        return new EncodingStream(out, deflater, pool, gzip);
+    }
+
+    private static final class EncodingStream extends DeflaterOutputStream {
+        private final ArrayBlockingQueue<Deflater> pool;
+        private final CRC32 crc;
+        private boolean finished;
+        private boolean released;
+
+        EncodingStream(OutputStream out, Deflater deflater, ArrayBlockingQueue<Deflater> pool, boolean gzip)
+                throws IOException {
+            super(out, deflater, BUFFER_SIZE);
+            this.pool = pool;
+            this.crc = gzip ? new CRC32() : null;
+            if (gzip) {
+                try {
+                    out.write(GZIP_HEADER);
+                } catch (IOException e) {
+                    release();
+                    throw e;
+                }
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            super.write(b, off, len);
+            if (crc != null) {
+                crc.update(b, off, len);
+            }
+        }
+
+        @Override
+        public void finish() throws IOException {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            super.finish();
+            if (crc != null) {
+                byte[] trailer = new byte[8];
+                writeIntLe(trailer, 0, (int) crc.getValue());
+                writeIntLe(trailer, 4, (int) def.getBytesRead());
+                out.write(trailer);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                release();
+            }
+        }
+
+        private void release() {
+            if (released) {
+                return;
+            }
+            released = true;
+            def.reset();
+            if (!pool.offer(def)) {
+                def.end();
+            }
+        }
+
+        private static void writeIntLe(byte[] b, int off, int value) {
+            b[off] = (byte) value;
+            b[off + 1] = (byte) (value >>> 8);
+            b[off + 2] = (byte) (value >>> 16);
+            b[off + 3] = (byte) (value >>> 24);
+        }
+    }
+}
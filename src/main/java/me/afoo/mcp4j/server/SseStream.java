@@ -0,0 +1,163 @@
+package me.afoo.mcp4j.server;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * A text/event-stream response carrying one JSON-RPC message per event.
+ *
+ * Events are written straight to the exchange; nothing is queued on the server. A client
+ * that reads slowly makes {@link #send} block once the transport's buffers are full, which
+ * slows the producer down, while {@link #offer} skips the event instead of waiting.
+ */
+final class SseStream {
+    private static final byte[] DATA = "data: ".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] END = "\n\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final HttpExchange exchange;
+    private final ObjectMapper mapper;
+    private final OutputStream out;
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile boolean closed;
+    private Runnable closeCallback = () -> { };
+
+    private SseStream(HttpExchange exchange, ObjectMapper mapper) {
+        this.exchange = exchange;
+        this.mapper = mapper;
+        this.out = exchange.getResponseBody();
+    }
+
+    /**
+     * Commit the response headers and start the stream.
+     */
+    static SseStream open(HttpExchange exchange, ObjectMapper mapper) throws IOException {
+        return open(exchange, mapper, stream -> { });
+    }
+
+    /**
+     * Start the stream, handing it to registration before the headers go out. Events sent
+     * in the meantime wait, so anyone who sees the response can already reach the stream.
+     */
+    static SseStream open(HttpExchange exchange, ObjectMapper mapper, Consumer<SseStream> registration)
+            throws IOException {
+        SseStream stream = new SseStream(exchange, mapper);
+        stream.lock.lock();
+        try {
+            registration.accept(stream);
+            exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+            exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+            exchange.sendResponseHeaders(200, 0);
+            // Push the headers out now; engines may otherwise hold them until the first event
+            stream.out.flush();
+        } catch (IOException | RuntimeException e) {
+            stream.markClosed();
+            throw e;
+        } finally {
+            stream.lock.unlock();
+        }
+        return stream;
+    }
+
+    /**
+     * Write one event, waiting for the client if needed.
+     *
+     * @return false if the stream is closed or the client has gone away
+     */
+    boolean send(Object message) {
+        if (closed) {
+            return false;
+        }
+        byte[] json;
+        try {
+            json = mapper.writeValueAsBytes(message);
+        } catch (IOException e) {
+            return false;
+        }
+        lock.lock();
+        try {
+            return write(json);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Write one event unless another write is still in progress, which means the client is
+     * behind. Meant for messages a later one supersedes, such as progress.
+     *
+     * @return false if the event was skipped or the stream is closed
+     */
+    boolean offer(Object message) {
+        if (closed || !lock.tryLock()) {
+            return false;
+        }
+        try {
+            return write(mapper.writeValueAsBytes(message));
+        } catch (IOException e) {
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean write(byte[] json) {
+        if (closed) {
+            return false;
+        }
+        try {
+            out.write(DATA);
+            out.write(json);
+            out.write(END);
+            out.flush();
+            return true;
+        } catch (IOException e) {
+            markClosed();
+            exchange.close();
+            return false;
+        }
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Run callback once when the stream ends, whether closed here or by a failed write. Set it
+     * from the registration passed to {@link #open}.
+     */
+    void onClose(Runnable callback) {
+        closeCallback = callback;
+    }
+
+    // Called with the lock held
+    private void markClosed() {
+        closed = true;
+        closeCallback.run();
+    }
+
+    /**
+     * End the stream once any write in progress has finished.
+     */
+    void close() {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            markClosed();
+            try {
+                out.close();
+            } catch (IOException e) {
+                exchange.close();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+}
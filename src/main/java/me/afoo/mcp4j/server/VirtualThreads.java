@@ -0,0 +1,48 @@
+package me.afoo.mcp4j.server;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Virtual-thread executor lookup for the Java 8 baseline.
+ *
+ * The multi-release JAR carries a JDK 21 version of this class that calls
+ * Executors.newVirtualThreadPerTaskExecutor() directly; this one finds it reflectively so
+ * that exploded class directories and older JARs still get virtual threads on JDK 21+.
+ */
+final class VirtualThreads {
+    private static final MethodHandle FACTORY = lookupFactory();
+
+    private VirtualThreads() {
+    }
+
+    static boolean isSupported() {
+        return FACTORY != null;
+    }
+
+    /**
+     * @return a virtual-thread-per-task executor, or null if the runtime has none
+     */
+    static ExecutorService newExecutor() {
+        if (FACTORY == null) {
+            return null;
+        }
+        try {
+            return (ExecutorService) FACTORY.invoke();
+        } catch (Throwable t) {
+            return null;
+        }
+    }
+
+    private static MethodHandle lookupFactory() {
+        try {
+            return MethodHandles.publicLookup().findStatic(Executors.class,
+                    "newVirtualThreadPerTaskExecutor", MethodType.methodType(ExecutorService.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+}
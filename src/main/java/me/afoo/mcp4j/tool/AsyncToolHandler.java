@@ -0,0 +1,22 @@
+package me.afoo.mcp4j.tool;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking variant of {@link ToolHandler}.
+ *
+ * The request thread is released as soon as the future is returned; the response is sent
+ * when it completes. A future completed exceptionally is reported like a thrown exception.
+ */
+@FunctionalInterface
+public interface AsyncToolHandler {
+    /**
+     * Start executing the tool with given arguments.
+     *
+     * @param arguments Tool input arguments
+     * @return Future of the tool execution result
+     * @throws Exception if execution cannot be started
+     */
+    CompletableFuture<Object> executeAsync(Map<String, Object> arguments) throws Exception;
+}
@@ -0,0 +1,158 @@
+package me.afoo.mcp4j.tool;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Isolates the calls of one tool, or of a group of tools sharing the instance.
+ *
+ * At most maxConcurrent calls are in flight; up to maxQueued more wait in line, and anything
+ * beyond that is rejected at once with {@link BulkheadFullException}. Synchronous handlers run
+ * on the bulkhead's own threads, so a saturated tool never holds the server's request threads.
+ * For async handlers a call stays in flight until its future completes.
+ */
+public final class Bulkhead {
+    private static final long KEEP_ALIVE_SECONDS = 60;
+
+    private final String name;
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final ThreadPoolExecutor threads;
+    private final ArrayDeque<Call<?>> queue = new ArrayDeque<>();
+    private int inFlight;
+
+    private Bulkhead(Builder builder) {
+        this.name = builder.name;
+        this.maxConcurrent = builder.maxConcurrent;
+        this.maxQueued = builder.maxQueued;
+        this.threads = new ThreadPoolExecutor(maxConcurrent, maxConcurrent,
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), new DaemonThreadFactory(name));
+        this.threads.allowCoreThreadTimeOut(true);
+    }
+
+    public String getName() { return name; }
+    public int getMaxConcurrent() { return maxConcurrent; }
+    public int getMaxQueued() { return maxQueued; }
+
+    public synchronized int getInFlight() { return inFlight; }
+    public synchronized int getQueued() { return queue.size(); }
+
+    /**
+     * Run the call inside the bulkhead.
+     *
+     * @throws BulkheadFullException if all slots and queue places are taken
+     */
+    <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> action) {
+        Call<T> call = new Call<>(action);
+        synchronized (this) {
+            if (inFlight < maxConcurrent) {
+                inFlight++;
+            } else if (queue.size() < maxQueued) {
+                queue.add(call);
+                return call.result;
+            } else {
+                throw new BulkheadFullException("Tool bulkhead '" + name + "' is full ("
+                        + maxConcurrent + " running, " + maxQueued + " queued)");
+            }
+        }
+        start(call);
+        return call.result;
+    }
+
+    private void start(Call<?> call) {
+        threads.execute(call);
+    }
+
+    private void release() {
+        Call<?> next;
+        synchronized (this) {
+            next = queue.poll();
+            if (next == null) {
+                inFlight--;
+                return;
+            }
+        }
+        start(next);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private String name = "default";
+        private int maxConcurrent = 4;
+        private int maxQueued = 0;
+
+        public Builder name(String name) { this.name = name; return this; }
+        public Builder maxConcurrent(int maxConcurrent) { this.maxConcurrent = maxConcurrent; return this; }
+        public Builder maxQueued(int maxQueued) { this.maxQueued = maxQueued; return this; }
+
+        public Bulkhead build() {
+            if (maxConcurrent < 1) {
+                throw new IllegalArgumentException("maxConcurrent must be at least 1");
+            }
+            if (maxQueued < 0) {
+                throw new IllegalArgumentException("maxQueued must not be negative");
+            }
+            return new Bulkhead(this);
+        }
+    }
+
+    private final class Call<T> implements Runnable {
+        private final Supplier<CompletableFuture<T>> action;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+
+        Call(Supplier<CompletableFuture<T>> action) {
+            this.action = action;
+        }
+
+        @Override
+        public void run() {
+            CompletableFuture<T> future;
+            try {
+                future = action.get();
+            } catch (Throwable t) {
+                future = new CompletableFuture<>();
+                future.completeExceptionally(t);
+            }
+            future.whenComplete((value, error) -> {
+                release();
+                if (error != null) {
+                    result.completeExceptionally(error);
+                } else {
+                    result.complete(value);
+                }
+            });
+        }
+    }
+
+    private static final class DaemonThreadFactory implements ThreadFactory {
+        private final String prefix;
+        private final AtomicInteger counter = new AtomicInteger();
+
+        DaemonThreadFactory(String name) {
+            this.prefix = "mcp4j-bulkhead-" + name + "-";
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    /**
+     * Thrown when a call is rejected because the bulkhead is saturated.
+     */
+    public static class BulkheadFullException extends RuntimeException {
+        public BulkheadFullException(String message) { super(message); }
+    }
+}
@@ -2,6 +2,9 @@ package me.afoo.mcp4j.tool;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import me.afoo.mcp4j.protocol.mcp.ToolAnnotations;
+import me.afoo.mcp4j.schema.SchemaValidator;
+
+import java.time.Duration;
 
 /**
  * Represents an MCP tool with its metadata and execution handler.
@@ -11,21 +14,39 @@ public class Tool {
     private final String description;
     private final JsonNode inputSchema;
     private final ToolHandler handler;
+    private final AsyncToolHandler asyncHandler;
     private final ToolAnnotations annotations;
+    private final Bulkhead bulkhead;
+    private final Duration timeout;
+    private final Duration cacheTtl;
+    private final SchemaValidator validator;
 
     private Tool(Builder builder) {
         this.name = builder.name;
         this.description = builder.description;
         this.inputSchema = builder.inputSchema;
         this.handler = builder.handler;
+        this.asyncHandler = builder.asyncHandler;
         this.annotations = builder.annotations;
+        this.bulkhead = builder.bulkhead;
+        this.timeout = builder.timeout;
+        this.cacheTtl = builder.cacheTtl;
+        this.validator = SchemaValidator.compile(builder.inputSchema);
     }
 
     public String getName() { return name; }
     public String getDescription() { return description; }
     public JsonNode getInputSchema() { return inputSchema; }
     public ToolHandler getHandler() { return handler; }
+    public AsyncToolHandler getAsyncHandler() { return asyncHandler; }
+    public boolean isAsync() { return asyncHandler != null; }
     public ToolAnnotations getAnnotations() { return annotations; }
+    public Bulkhead getBulkhead() { return bulkhead; }
+    /** Null when the server's default timeout applies. */
+    public Duration getTimeout() { return timeout; }
+    /** Null when results are not cached. */
+    public Duration getCacheTtl() { return cacheTtl; }
+    public SchemaValidator getValidator() { return validator; }
 
     public static Builder builder() {
         return new Builder();
@@ -36,21 +57,43 @@ public class Tool {
         private String description;
         private JsonNode inputSchema;
         private ToolHandler handler;
+        private AsyncToolHandler asyncHandler;
         private ToolAnnotations annotations;
+        private Bulkhead bulkhead;
+        private Duration timeout;
+        private Duration cacheTtl;
 
         public Builder name(String name) { this.name = name; return this; }
         public Builder description(String description) { this.description = description; return this; }
         public Builder inputSchema(JsonNode inputSchema) { this.inputSchema = inputSchema; return this; }
         public Builder handler(ToolHandler handler) { this.handler = handler; return this; }
+        public Builder asyncHandler(AsyncToolHandler asyncHandler) { this.asyncHandler = asyncHandler; return this; }
         public Builder annotations(ToolAnnotations annotations) { this.annotations = annotations; return this; }
+        /** Run calls in the given bulkhead; tools sharing an instance form one group. */
+        public Builder bulkhead(Bulkhead bulkhead) { this.bulkhead = bulkhead; return this; }
+        /** Overrides the server's default tool timeout; Duration.ZERO disables it for this tool. */
+        public Builder timeout(Duration timeout) { this.timeout = timeout; return this; }
+        /**
+         * Reuse a successful result for identical arguments for this long. Only allowed for tools
+         * annotated both read-only and idempotent.
+         */
+        public Builder cacheTtl(Duration cacheTtl) { this.cacheTtl = cacheTtl; return this; }
 
         public Tool build() {
             if (name == null || name.trim().isEmpty()) {
                 throw new IllegalArgumentException("Tool name is required");
             }
-            if (handler == null) {
+            if (handler == null && asyncHandler == null) {
                 throw new IllegalArgumentException("Tool handler is required");
             }
+            if (handler != null && asyncHandler != null) {
+                throw new IllegalArgumentException("Tool cannot have both a handler and an async handler");
+            }
+            if (cacheTtl != null && !cacheTtl.isZero() && (annotations == null
+                    || !Boolean.TRUE.equals(annotations.getReadOnlyHint())
+                    || !Boolean.TRUE.equals(annotations.getIdempotentHint()))) {
+                throw new IllegalArgumentException("Only read-only, idempotent tools can have a cache TTL");
+            }
             return new Tool(this);
         }
     }
@@ -0,0 +1,241 @@
+package me.afoo.mcp4j.tool;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Per-call context for reporting progress and partial output while a tool runs, and for
+ * noticing that the client has cancelled the call.
+ *
+ * Handlers get it from {@link #current()} on the thread they are invoked on; async handlers
+ * can keep the reference and report from any thread. When the client did not ask for a
+ * streamed response, or the call has already completed, reports are silently dropped, so
+ * handlers can report unconditionally.
+ *
+ * Cancellation is cooperative: a synchronous handler is interrupted, so blocking calls throw
+ * InterruptedException, and long computations should check {@link #isCancelled()}. Async
+ * handlers register {@link #onCancel} to abort their downstream work.
+ */
+public final class ToolContext {
+    private static final ToolContext NONE = builder().build();
+    private static final ThreadLocal<ToolContext> CURRENT = new ThreadLocal<>();
+
+    private final String sessionId;
+    private final Object requestId;
+    private final String toolName;
+    private final Object progressToken;
+    private final Sink sink;
+    private final List<Runnable> cancelCallbacks = new CopyOnWriteArrayList<>();
+    private volatile boolean cancelled;
+    private boolean relaying;
+    private Thread worker;
+
+    private ToolContext(Builder builder) {
+        this.sessionId = builder.sessionId;
+        this.requestId = builder.requestId;
+        this.toolName = builder.toolName;
+        this.progressToken = builder.progressToken;
+        this.sink = builder.sink;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * The context of the call running on this thread, or a no-op context outside of one.
+     */
+    public static ToolContext current() {
+        ToolContext context = CURRENT.get();
+        return context != null ? context : NONE;
+    }
+
+    static ToolContext enter(ToolContext context) {
+        ToolContext previous = CURRENT.get();
+        CURRENT.set(context);
+        return previous;
+    }
+
+    static void exit(ToolContext previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * A fresh context for an execution shared by several calls: it keeps this call's identity
+     * but none of its cancellation state, and reports to the relay, which passes each
+     * notification on to the callers through {@link #relay}.
+     */
+    ToolContext shared(Sink relay) {
+        ToolContext context = builder().sessionId(sessionId).requestId(requestId).toolName(toolName)
+                .progressToken(progressToken).sink(relay).build();
+        context.relaying = true;
+        return context;
+    }
+
+    /**
+     * Pass on a notification of a shared execution, under this call's own progress token.
+     */
+    void relay(String method, Object params, boolean droppable) {
+        if (!isStreaming()) {
+            return;
+        }
+        if (params instanceof Map && ((Map<?, ?>) params).containsKey("progressToken")) {
+            Map<String, Object> own = new LinkedHashMap<>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) params).entrySet()) {
+                own.put((String) entry.getKey(), entry.getValue());
+            }
+            own.put("progressToken", progressToken);
+            params = own;
+        }
+        sink.notify(method, params, droppable);
+    }
+
+    public String getSessionId() { return sessionId; }
+    public Object getRequestId() { return requestId; }
+    public String getToolName() { return toolName; }
+    public Object getProgressToken() { return progressToken; }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Run the callback when the call is cancelled, or right away if it already is. Outside of a
+     * call nothing can cancel, so the callback is not kept.
+     */
+    public void onCancel(Runnable callback) {
+        if (this == NONE) {
+            return;
+        }
+        cancelCallbacks.add(callback);
+        if (cancelled && cancelCallbacks.remove(callback)) {
+            callback.run();
+        }
+    }
+
+    /**
+     * Mark the call cancelled, interrupt its synchronous handler and run the cancel callbacks.
+     *
+     * @return false if it was already cancelled
+     */
+    boolean cancel() {
+        synchronized (this) {
+            if (cancelled || this == NONE) {
+                return false;
+            }
+            cancelled = true;
+            if (worker != null) {
+                worker.interrupt();
+            }
+        }
+        for (Runnable callback : cancelCallbacks) {
+            if (cancelCallbacks.remove(callback)) {
+                callback.run();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Record the thread a synchronous handler runs on, so that cancel() can interrupt it.
+     */
+    synchronized void bindWorker(Thread thread) {
+        this.worker = thread;
+    }
+
+    /**
+     * Forget the worker; an interrupt aimed at the finished handler is not left behind on a
+     * pooled thread.
+     */
+    void unbindWorker() {
+        synchronized (this) {
+            worker = null;
+        }
+        if (cancelled) {
+            Thread.interrupted();
+        }
+    }
+
+    /**
+     * @return true if reports reach the client
+     */
+    public boolean isStreaming() {
+        return sink != null && (progressToken != null || relaying);
+    }
+
+    /**
+     * Send notifications/progress. Progress should increase with every call; updates may be
+     * dropped when the client is reading slower than they are produced.
+     *
+     * @param total null if unknown
+     * @param message null for none
+     */
+    public void progress(double progress, Double total, String message) {
+        if (!isStreaming()) {
+            return;
+        }
+        Map<String, Object> params = new LinkedHashMap<>();
+        params.put("progressToken", progressToken);
+        params.put("progress", progress);
+        if (total != null) {
+            params.put("total", total);
+        }
+        if (message != null) {
+            params.put("message", message);
+        }
+        sink.notify("notifications/progress", params, true);
+    }
+
+    /**
+     * Send a piece of output ahead of the final result, as a notifications/message log entry at
+     * level info, which the server drops if the client set a higher level with logging/setLevel.
+     * Unlike progress, partial output is never skipped for a slow client; it slows the tool down.
+     */
+    public void partial(String text) {
+        if (!isStreaming()) {
+            return;
+        }
+        Map<String, Object> params = new LinkedHashMap<>();
+        params.put("level", "info");
+        params.put("logger", toolName);
+        params.put("data", text);
+        sink.notify("notifications/message", params, false);
+    }
+
+    public static class Builder {
+        private String sessionId;
+        private Object requestId;
+        private String toolName;
+        private Object progressToken;
+        private Sink sink;
+
+        /** Session and JSON-RPC id identify the call for notifications/cancelled. */
+        public Builder sessionId(String sessionId) { this.sessionId = sessionId; return this; }
+        public Builder requestId(Object requestId) { this.requestId = requestId; return this; }
+        public Builder toolName(String toolName) { this.toolName = toolName; return this; }
+        public Builder progressToken(Object progressToken) { this.progressToken = progressToken; return this; }
+        /** Receives the notifications; null discards them. */
+        public Builder sink(Sink sink) { this.sink = sink; return this; }
+
+        public ToolContext build() {
+            return new ToolContext(this);
+        }
+    }
+
+    /**
+     * Destination of a call's notifications, provided by the transport.
+     */
+    @FunctionalInterface
+    public interface Sink {
+        /**
+         * @param droppable true if the notification may be skipped instead of waiting for the client
+         */
+        void notify(String method, Object params, boolean droppable);
+    }
+}
@@ -1,10 +1,23 @@
 package me.afoo.mcp4j.tool;
 
+import me.afoo.mcp4j.metrics.Counter;
+import me.afoo.mcp4j.metrics.LatencyHistogram;
+import me.afoo.mcp4j.metrics.MetricsRegistry;
 import me.afoo.mcp4j.protocol.mcp.ToolsCallResult;
 import me.afoo.mcp4j.schema.SchemaValidator;
+import me.afoo.mcp4j.util.TimerWheel;
 
+import java.time.Duration;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Executes MCP tools with validation and error handling.
@@ -12,12 +25,126 @@ import java.util.Map;
  * Distinguishes between:
  * - Protocol errors (unknown tool, invalid params) → thrown as exceptions for JSON-RPC error response
  * - Tool execution errors (business logic failures) → returned as isError=true in ToolsCallResult
+ *
+ * Protocol errors are always thrown before any handler runs; futures returned by
+ * {@link #executeAsync} never complete exceptionally.
+ *
+ * Calls whose context names a session and request id are tracked while in flight, so that
+ * {@link #cancel} can reach them.
+ *
+ * A call that outlives its timeout (the tool's own, else the executor's default) completes with
+ * an isError result and is then cancelled like any other. Deadlines are kept on one shared
+ * {@link TimerWheel}, so a call costs no scheduled task of its own.
+ *
+ * Tools with a cache TTL are answered from the {@link ToolResultCache}, when one is given,
+ * for as long as an identical earlier call's successful result is fresh.
+ *
+ * Concurrent identical calls of an idempotent tool share one execution: a call arriving while
+ * another with the same arguments is running waits for that run's result instead of starting
+ * its own. Each caller can still be cancelled or time out on its own; the shared handler is
+ * cancelled only once every caller has gone. Its progress and partial output reach every caller
+ * still waiting, each under its own progress token.
+ *
+ * Calls, error results, validation failures and latency are recorded per tool in the
+ * {@link MetricsRegistry} given at construction.
  */
 public class ToolExecutor {
+    private static final long TIMER_TICK_MILLIS = 50;
+    private static final int TIMER_TICKS_PER_WHEEL = 512;
+
     private final ToolRegistry registry;
+    private final Duration defaultTimeout;
+    private final ToolResultCache resultCache;
+    private final MetricsRegistry metrics;
+    private final Executor timeoutExecutor;
+    private final Map<String, ToolMetrics> toolMetrics = new ConcurrentHashMap<>();
+    private final Counter unknownTools;
+    private final Map<CallKey, ToolContext> inFlight = new ConcurrentHashMap<>();
+    private final Map<ToolResultCache.Key, Flight> flights = new ConcurrentHashMap<>();
+    private final TimerWheel timer = new TimerWheel("mcp4j-tool-timeout",
+            TIMER_TICK_MILLIS, TimeUnit.MILLISECONDS, TIMER_TICKS_PER_WHEEL);
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
 
     public ToolExecutor(ToolRegistry registry) {
+        this(registry, Duration.ZERO);
+    }
+
+    /**
+     * @param defaultTimeout applies to tools without a timeout of their own; zero or null for none
+     */
+    public ToolExecutor(ToolRegistry registry, Duration defaultTimeout) {
+        this(registry, defaultTimeout, null);
+    }
+
+    /**
+     * @param resultCache holds results of tools with a cache TTL; null disables caching
+     */
+    public ToolExecutor(ToolRegistry registry, Duration defaultTimeout, ToolResultCache resultCache) {
+        this(registry, defaultTimeout, resultCache, null);
+    }
+
+    /**
+     * @param metrics receives the executor's metrics; null keeps them private
+     */
+    public ToolExecutor(ToolRegistry registry, Duration defaultTimeout, ToolResultCache resultCache,
+                        MetricsRegistry metrics) {
+        this(registry, defaultTimeout, resultCache, metrics, null);
+    }
+
+    /**
+     * @param timeoutExecutor completes calls that ran past their timeout, which may write their
+     *                        responses; null completes them on the timer thread
+     */
+    public ToolExecutor(ToolRegistry registry, Duration defaultTimeout, ToolResultCache resultCache,
+                        MetricsRegistry metrics, Executor timeoutExecutor) {
         this.registry = registry;
+        this.timeoutExecutor = timeoutExecutor != null ? timeoutExecutor : Runnable::run;
+        this.defaultTimeout = defaultTimeout != null ? defaultTimeout : Duration.ZERO;
+        this.resultCache = resultCache;
+        this.metrics = metrics != null ? metrics : new MetricsRegistry();
+        this.unknownTools = this.metrics.counter("mcp4j_tool_unknown_total", "Calls naming an unregistered tool");
+        this.metrics.counter("mcp4j_tool_timeouts_total", "Tool calls that ran past their timeout",
+                timedOut::sum);
+        this.metrics.counter("mcp4j_tool_coalesced_total", "Tool calls that joined an identical call in flight",
+                coalesced::sum);
+        if (resultCache != null) {
+            this.metrics.counter("mcp4j_tool_cache_hits_total", "Tool calls answered from the result cache",
+                    resultCache::getHitCount);
+            this.metrics.counter("mcp4j_tool_cache_misses_total", "Cacheable tool calls not found in the result cache",
+                    resultCache::getMissCount);
+            this.metrics.counter("mcp4j_tool_cache_evictions_total", "Results evicted from the full result cache",
+                    resultCache::getEvictionCount);
+            this.metrics.gauge("mcp4j_tool_cache_entries", "Results held in the result cache", resultCache::size);
+        }
+    }
+
+    /**
+     * @return null if caching is disabled
+     */
+    public ToolResultCache getResultCache() {
+        return resultCache;
+    }
+
+    /**
+     * Number of calls that have completed because they ran past their timeout.
+     */
+    public long getTimedOutCount() {
+        return timedOut.sum();
+    }
+
+    /**
+     * Number of calls that were answered by joining an identical call already in flight.
+     */
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+
+    /**
+     * Stop the timer thread; calls still running are no longer timed out.
+     */
+    public void close() {
+        timer.stop();
     }
 
     /**
@@ -25,29 +152,242 @@ public class ToolExecutor {
      * @throws InvalidToolArgumentsException if arguments fail schema validation
      */
     public ToolsCallResult execute(String toolName, Map<String, Object> arguments) {
+        return executeAsync(toolName, arguments).join();
+    }
+
+    /**
+     * Run the tool without waiting for it. Synchronous handlers run on the calling thread
+     * and return an already completed future, unless the tool has a bulkhead.
+     *
+     * @throws ToolNotFoundException if tool name is not registered
+     * @throws InvalidToolArgumentsException if arguments fail schema validation
+     * @throws Bulkhead.BulkheadFullException if the tool's bulkhead rejects the call
+     */
+    public CompletableFuture<ToolsCallResult> executeAsync(String toolName, Map<String, Object> arguments) {
+        return executeAsync(toolName, arguments, null);
+    }
+
+    /**
+     * Like {@link #executeAsync(String, Map)}, with a context the handler can report progress
+     * through (see {@link ToolContext#current()}).
+     */
+    public CompletableFuture<ToolsCallResult> executeAsync(String toolName, Map<String, Object> arguments,
+                                                           ToolContext context) {
         Tool tool = registry.getTool(toolName);
 
         if (tool == null) {
+            unknownTools.increment();
             throw new ToolNotFoundException("Unknown tool: " + toolName);
         }
 
+        long startNanos = System.nanoTime();
+        ToolMetrics stats = metricsFor(tool);
+        stats.calls.increment();
+
         Map<String, Object> args = arguments != null ? arguments : Collections.emptyMap();
 
-        if (tool.getInputSchema() != null) {
-            SchemaValidator.ValidationResult validation =
-                    SchemaValidator.validate(tool.getInputSchema(), args);
-            if (!validation.isValid()) {
-                throw new InvalidToolArgumentsException(
-                        "Invalid arguments: " + String.join(", ", validation.getErrors()));
+        SchemaValidator.ValidationResult validation = tool.getValidator().validate(args);
+        if (!validation.isValid()) {
+            stats.validationFailures.increment();
+            throw new InvalidToolArgumentsException(
+                    "Invalid arguments: " + String.join(", ", validation.getErrors()));
+        }
+
+        ToolResultCache.Key cacheKey = cacheKey(tool, args);
+        if (cacheKey != null) {
+            ToolsCallResult cached = resultCache.get(cacheKey);
+            if (cached != null) {
+                stats.latency.record(System.nanoTime() - startNanos);
+                return CompletableFuture.completedFuture(cached);
+            }
+        }
+
+        ToolContext callContext = context != null ? context : ToolContext.builder().toolName(toolName).build();
+        CallKey key = CallKey.of(callContext.getSessionId(), callContext.getRequestId());
+        if (key != null) {
+            inFlight.put(key, callContext);
+        }
+
+        // Answer as soon as the call is cancelled, without waiting for the handler to give up
+        CompletableFuture<ToolsCallResult> result = new CompletableFuture<>();
+        callContext.onCancel(() -> result.complete(createErrorResult("Tool call cancelled")));
+        result.whenComplete((r, e) -> {
+            if (key != null) {
+                inFlight.remove(key, callContext);
+            }
+        });
+        // Returned to the caller, so that the call is counted before the caller sees its result
+        CompletableFuture<ToolsCallResult> recorded = result.whenComplete((r, e) -> {
+            stats.latency.record(System.nanoTime() - startNanos);
+            if (r == null || Boolean.TRUE.equals(r.getIsError())) {
+                stats.errors.increment();
+            }
+        });
+        long timeoutMillis = timeoutMillis(tool);
+        if (timeoutMillis > 0) {
+            TimerWheel.Timeout timeout = timer.schedule(
+                    () -> timeoutExecutor.execute(() -> expire(result, callContext, timeoutMillis)),
+                    timeoutMillis, TimeUnit.MILLISECONDS);
+            result.whenComplete((r, e) -> timeout.cancel());
+        }
+
+        CompletableFuture<ToolsCallResult> call;
+        try {
+            call = isIdempotent(tool) ? joinFlight(tool, args, callContext) : start(tool, args, callContext);
+        } catch (RuntimeException e) {
+            result.cancel(false);
+            throw e;
+        }
+        call.whenComplete((r, e) -> result.complete(r != null ? r
+                : createErrorResult("Tool execution failed: " + (e != null ? unwrap(e).getMessage() : "no result"))));
+        if (cacheKey != null) {
+            long ttlNanos = tool.getCacheTtl().toNanos();
+            result.thenAccept(r -> {
+                if (!Boolean.TRUE.equals(r.getIsError())) {
+                    resultCache.put(cacheKey, r, ttlNanos);
+                }
+            });
+        }
+        return recorded;
+    }
+
+    /**
+     * Cancel an in-flight call: its handler is interrupted or notified through
+     * {@link ToolContext#onCancel}, and its result completes right away as an error.
+     *
+     * @return false if no such call is running
+     */
+    public boolean cancel(String sessionId, Object requestId) {
+        CallKey key = CallKey.of(sessionId, requestId);
+        ToolContext context = key != null ? inFlight.remove(key) : null;
+        return context != null && context.cancel();
+    }
+
+    private ToolMetrics metricsFor(Tool tool) {
+        ToolMetrics stats = toolMetrics.get(tool.getName());
+        return stats != null ? stats : toolMetrics.computeIfAbsent(tool.getName(), name -> new ToolMetrics(metrics, name));
+    }
+
+    private CompletableFuture<ToolsCallResult> start(Tool tool, Map<String, Object> args, ToolContext context) {
+        return tool.getBulkhead() != null
+                ? tool.getBulkhead().submit(() -> invoke(tool, args, context))
+                : invoke(tool, args, context);
+    }
+
+    private static boolean isIdempotent(Tool tool) {
+        return tool.getAnnotations() != null && Boolean.TRUE.equals(tool.getAnnotations().getIdempotentHint());
+    }
+
+    /**
+     * Attach the call to a running execution with the same arguments, or start one.
+     */
+    private CompletableFuture<ToolsCallResult> joinFlight(Tool tool, Map<String, Object> args,
+                                                          ToolContext callContext) {
+        ToolResultCache.Key key = ToolResultCache.key(tool.getName(), args);
+        while (true) {
+            Flight current = flights.get(key);
+            if (current != null && current.join(callContext)) {
+                coalesced.increment();
+                callContext.onCancel(() -> current.leave(callContext));
+                return current.execution;
+            }
+            // The handler runs under a context of its own, so that cancelling the first caller
+            // does not stop it for the others
+            Flight flight = new Flight(callContext);
+            boolean installed = current == null
+                    ? flights.putIfAbsent(key, flight) == null
+                    : flights.replace(key, current, flight);
+            if (!installed) {
+                continue;
+            }
+            flight.execution.whenComplete((r, e) -> flights.remove(key, flight));
+            callContext.onCancel(() -> flight.leave(callContext));
+            CompletableFuture<ToolsCallResult> call;
+            try {
+                call = start(tool, args, flight.context);
+            } catch (RuntimeException e) {
+                flight.execution.completeExceptionally(e);
+                throw e;
+            }
+            call.whenComplete((r, e) -> {
+                if (e != null) {
+                    flight.execution.completeExceptionally(e);
+                } else {
+                    flight.execution.complete(r);
+                }
+            });
+            return flight.execution;
+        }
+    }
+
+    private ToolResultCache.Key cacheKey(Tool tool, Map<String, Object> args) {
+        Duration ttl = tool.getCacheTtl();
+        if (resultCache == null || ttl == null || ttl.isZero() || ttl.isNegative()) {
+            return null;
+        }
+        return ToolResultCache.key(tool.getName(), args);
+    }
+
+    private long timeoutMillis(Tool tool) {
+        Duration timeout = tool.getTimeout() != null ? tool.getTimeout() : defaultTimeout;
+        return timeout.isNegative() ? 0 : timeout.toMillis();
+    }
+
+    private void expire(CompletableFuture<ToolsCallResult> result, ToolContext context, long timeoutMillis) {
+        if (result.complete(createErrorResult("Tool call timed out after " + timeoutMillis + " ms"))) {
+            timedOut.increment();
+            context.cancel();
+        }
+    }
+
+    private CompletableFuture<ToolsCallResult> invoke(Tool tool, Map<String, Object> args, ToolContext context) {
+        if (context.isCancelled()) {
+            // Cancelled while waiting in the bulkhead queue
+            return CompletableFuture.completedFuture(createErrorResult("Tool call cancelled"));
+        }
+        ToolContext previous = ToolContext.enter(context);
+        if (!tool.isAsync()) {
+            context.bindWorker(Thread.currentThread());
+        }
+        try {
+            return invoke(tool, args);
+        } finally {
+            if (!tool.isAsync()) {
+                context.unbindWorker();
+            }
+            ToolContext.exit(previous);
+        }
+    }
+
+    private CompletableFuture<ToolsCallResult> invoke(Tool tool, Map<String, Object> args) {
+        if (!tool.isAsync()) {
+            try {
+                Object result = tool.getHandler().execute(args);
+                return CompletableFuture.completedFuture(createSuccessResult(result));
+            } catch (Exception e) {
+                return CompletableFuture.completedFuture(createErrorResult("Tool execution failed: " + e.getMessage()));
             }
         }
 
+        CompletableFuture<Object> future;
         try {
-            Object result = tool.getHandler().execute(args);
-            return createSuccessResult(result);
+            future = tool.getAsyncHandler().executeAsync(args);
         } catch (Exception e) {
-            return createErrorResult("Tool execution failed: " + e.getMessage());
+            return CompletableFuture.completedFuture(createErrorResult("Tool execution failed: " + e.getMessage()));
+        }
+        if (future == null) {
+            return CompletableFuture.completedFuture(createErrorResult("Tool execution failed: no result"));
         }
+        // Cancelling the handler's future lets it stop downstream work and frees its bulkhead slot
+        CompletableFuture<Object> pending = future;
+        ToolContext.current().onCancel(() -> pending.cancel(true));
+        return future.handle((result, error) -> error == null
+                ? createSuccessResult(result)
+                : createErrorResult("Tool execution failed: " + unwrap(error).getMessage()));
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
     }
 
     private ToolsCallResult createSuccessResult(Object result) {
@@ -64,6 +404,100 @@ public class ToolExecutor {
         return result;
     }
 
+    private static final class ToolMetrics {
+        final Counter calls;
+        final Counter errors;
+        final Counter validationFailures;
+        final LatencyHistogram latency;
+
+        ToolMetrics(MetricsRegistry metrics, String tool) {
+            calls = metrics.counter("mcp4j_tool_calls_total", "Tool calls received", "tool", tool);
+            errors = metrics.counter("mcp4j_tool_errors_total",
+                    "Tool calls that ended in an error result, including timeouts and cancellations", "tool", tool);
+            validationFailures = metrics.counter("mcp4j_tool_validation_failures_total",
+                    "Tool calls rejected by input schema validation", "tool", tool);
+            latency = metrics.histogram("mcp4j_tool_call_duration_seconds", "Tool call latency", "tool", tool);
+        }
+    }
+
+    /**
+     * One execution of an idempotent tool shared by all callers with the same arguments. Its
+     * notifications are relayed to the callers that have not left.
+     */
+    private static final class Flight {
+        final ToolContext context;
+        final CompletableFuture<ToolsCallResult> execution = new CompletableFuture<>();
+        private final List<ToolContext> callers = new CopyOnWriteArrayList<>();
+
+        Flight(ToolContext first) {
+            callers.add(first);
+            this.context = first.shared((method, params, droppable) -> {
+                for (ToolContext caller : callers) {
+                    caller.relay(method, params, droppable);
+                }
+            });
+        }
+
+        /**
+         * @return false if the execution is over or every caller has already left
+         */
+        synchronized boolean join(ToolContext caller) {
+            if (callers.isEmpty() || execution.isDone()) {
+                return false;
+            }
+            callers.add(caller);
+            return true;
+        }
+
+        void leave(ToolContext caller) {
+            synchronized (this) {
+                if (!callers.remove(caller) || !callers.isEmpty()) {
+                    return;
+                }
+            }
+            context.cancel();
+        }
+    }
+
+    /**
+     * Identity of a call within a session. Numeric ids compare by value, so 7 and 7L match.
+     */
+    private static final class CallKey {
+        private final String sessionId;
+        private final Object requestId;
+
+        private CallKey(String sessionId, Object requestId) {
+            this.sessionId = sessionId;
+            this.requestId = requestId;
+        }
+
+        static CallKey of(String sessionId, Object requestId) {
+            if (sessionId == null || requestId == null) {
+                return null;
+            }
+            if (requestId instanceof Number) {
+                Number number = (Number) requestId;
+                double d = number.doubleValue();
+                requestId = d == Math.rint(d) ? (Object) number.longValue() : (Object) d;
+            }
+            return new CallKey(sessionId, requestId);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof CallKey)) {
+                return false;
+            }
+            CallKey other = (CallKey) o;
+            return sessionId.equals(other.sessionId) && requestId.equals(other.requestId);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * sessionId.hashCode() + requestId.hashCode();
+        }
+    }
+
     public static class ToolNotFoundException extends RuntimeException {
         public ToolNotFoundException(String message) { super(message); }
     }
@@ -4,18 +4,24 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Registry for managing MCP tools.
+ *
+ * Every change bumps a version stamp so that derived data (such as the serialized
+ * tools/list result) can be cached and rebuilt only when the tool set changes.
  */
 public class ToolRegistry {
     private final Map<String, Tool> tools = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
 
     public void register(Tool tool) {
         if (tool == null) {
             throw new IllegalArgumentException("Tool cannot be null");
         }
         tools.put(tool.getName(), tool);
+        version.incrementAndGet();
     }
 
     public Tool getTool(String name) {
@@ -32,5 +38,13 @@ public class ToolRegistry {
 
     public void clear() {
         tools.clear();
+        version.incrementAndGet();
+    }
+
+    /**
+     * @return a stamp that changes whenever a tool is registered or the registry is cleared
+     */
+    public long getVersion() {
+        return version.get();
     }
 }
@@ -0,0 +1,179 @@
+package me.afoo.mcp4j.tool;
+
+import me.afoo.mcp4j.protocol.mcp.ToolsCallResult;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Size-bounded LRU cache of successful tool results.
+ *
+ * Entries are keyed on the tool name and a canonical form of the arguments, in which map keys
+ * are sorted and numbers compare by value, so {"a":1,"b":2} and {"b":2.0,"a":1} share an entry.
+ * Each entry expires after the TTL of the tool that produced it. Results are shared across
+ * sessions; only tools whose output depends on nothing but their arguments should opt in.
+ */
+public final class ToolResultCache {
+    private final int maxEntries;
+    private final Map<Key, Entry> entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public ToolResultCache(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, ToolResultCache.Entry> eldest) {
+                if (size() > ToolResultCache.this.maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public int getMaxEntries() { return maxEntries; }
+    public long getHitCount() { return hits.sum(); }
+    public long getMissCount() { return misses.sum(); }
+    public long getEvictionCount() { return evictions.sum(); }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    /**
+     * @return the cached result, or null on a miss
+     */
+    ToolsCallResult get(Key key) {
+        long now = System.nanoTime();
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+            if (entry != null && now - entry.expiresAt >= 0) {
+                entries.remove(key);
+                entry = null;
+            }
+        }
+        (entry != null ? hits : misses).increment();
+        return entry != null ? entry.result : null;
+    }
+
+    void put(Key key, ToolsCallResult result, long ttlNanos) {
+        Entry entry = new Entry(result, System.nanoTime() + ttlNanos);
+        synchronized (this) {
+            entries.put(key, entry);
+        }
+    }
+
+    static Key key(String toolName, Map<String, Object> arguments) {
+        StringBuilder canonical = new StringBuilder();
+        appendCanonical(canonical, arguments);
+        return new Key(toolName, canonical.toString());
+    }
+
+    private static void appendCanonical(StringBuilder out, Object value) {
+        if (value instanceof Map) {
+            List<Map.Entry<?, ?>> fields = new ArrayList<>(((Map<?, ?>) value).entrySet());
+            Collections.sort(fields, (a, b) -> String.valueOf(a.getKey()).compareTo(String.valueOf(b.getKey())));
+            out.append('{');
+            for (int i = 0; i < fields.size(); i++) {
+                if (i > 0) {
+                    out.append(',');
+                }
+                appendString(out, String.valueOf(fields.get(i).getKey()));
+                out.append(':');
+                appendCanonical(out, fields.get(i).getValue());
+            }
+            out.append('}');
+        } else if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            out.append('[');
+            for (int i = 0; i < list.size(); i++) {
+                if (i > 0) {
+                    out.append(',');
+                }
+                appendCanonical(out, list.get(i));
+            }
+            out.append(']');
+        } else if (value instanceof String) {
+            appendString(out, (String) value);
+        } else if (value instanceof BigDecimal || value instanceof BigInteger) {
+            out.append(new BigDecimal(value.toString()).stripTrailingZeros().toPlainString());
+        } else if (value instanceof Number) {
+            double d = ((Number) value).doubleValue();
+            if (d == Math.rint(d) && !Double.isInfinite(d) && Math.abs(d) < 0x1p53) {
+                out.append((long) d);
+            } else if (value instanceof Long || value instanceof Integer
+                    || value instanceof Short || value instanceof Byte) {
+                out.append(((Number) value).longValue());
+            } else {
+                out.append(d);
+            }
+        } else {
+            out.append(value);
+        }
+    }
+
+    private static void appendString(StringBuilder out, String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\');
+            }
+            out.append(c);
+        }
+        out.append('"');
+    }
+
+    static final class Key {
+        private final String toolName;
+        private final String arguments;
+        private final int hash;
+
+        private Key(String toolName, String arguments) {
+            this.toolName = toolName;
+            this.arguments = arguments;
+            this.hash = 31 * toolName.hashCode() + arguments.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return hash == other.hash && toolName.equals(other.toolName) && arguments.equals(other.arguments);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class Entry {
+        final ToolsCallResult result;
+        final long expiresAt;
+
+        Entry(ToolsCallResult result, long expiresAt) {
+            this.result = result;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
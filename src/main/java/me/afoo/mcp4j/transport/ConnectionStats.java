@@ -0,0 +1,31 @@
+package me.afoo.mcp4j.transport;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Connection counters of an {@link HttpTransport}.
+ */
+public final class ConnectionStats {
+    private final LongAdder opened = new LongAdder();
+    private final LongAdder closed = new LongAdder();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder reusedRequests = new LongAdder();
+
+    void connectionOpened() { opened.increment(); }
+    void connectionClosed() { closed.increment(); }
+
+    void requestStarted(boolean reused) {
+        requests.increment();
+        if (reused) {
+            reusedRequests.increment();
+        }
+    }
+
+    public long getOpenedCount() { return opened.sum(); }
+    public long getClosedCount() { return closed.sum(); }
+    /** Connections currently open. */
+    public long getOpenCount() { return opened.sum() - closed.sum(); }
+    public long getRequestCount() { return requests.sum(); }
+    /** Requests served on a connection that had already carried one, i.e. kept alive. */
+    public long getReusedCount() { return reusedRequests.sum(); }
+}
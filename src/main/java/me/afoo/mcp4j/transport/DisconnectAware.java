@@ -0,0 +1,17 @@
+package me.afoo.mcp4j.transport;
+
+/**
+ * Implemented by exchanges whose engine notices when the client goes away mid-request.
+ * The JDK engine cannot tell, so its exchanges do not implement it.
+ *
+ * A client that shuts down only its sending side after the request still expects the response,
+ * and a clean close looks the same from the server, so neither counts as going away. A client is
+ * noticed going away when the connection is reset or a write to it fails.
+ */
+public interface DisconnectAware {
+    /**
+     * Run the callback if the connection closes before the response is complete. Callbacks
+     * run on the thread that closes the connection and must not block.
+     */
+    void onDisconnect(Runnable callback);
+}
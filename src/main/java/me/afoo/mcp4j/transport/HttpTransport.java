@@ -0,0 +1,46 @@
+package me.afoo.mcp4j.transport;
+
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.Executor;
+
+/**
+ * HTTP engine SPI used by McpServer.
+ *
+ * Implementations accept connections, parse HTTP/1.1 requests and hand each one to the
+ * registered {@link HttpHandler} as a {@link com.sun.net.httpserver.HttpExchange}, so the same
+ * handler code runs unchanged on every engine.
+ */
+public interface HttpTransport {
+
+    /**
+     * Register a handler for all request paths starting with the given prefix.
+     * Must be called before {@link #start}.
+     */
+    void createContext(String path, HttpHandler handler);
+
+    /**
+     * Bind to the given address and start serving. Handlers are invoked on the given executor.
+     */
+    void start(InetSocketAddress address, int backlog, Executor executor) throws IOException;
+
+    /**
+     * Stop accepting connections and close the engine, waiting at most delaySeconds
+     * for in-flight exchanges to finish.
+     */
+    void stop(int delaySeconds);
+
+    /**
+     * @return the bound address, or null if not started
+     */
+    InetSocketAddress getAddress();
+
+    /**
+     * @return connection counters, or null if the engine does not track connections
+     */
+    default ConnectionStats getConnectionStats() {
+        return null;
+    }
+}
@@ -0,0 +1,58 @@
+package me.afoo.mcp4j.transport;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Session store on the heap. It lets several servers in one JVM share sessions and keeps
+ * them across a server restart, but not across a process restart. Sessions that expire while
+ * no server holds them are swept from {@link #flush} once a minute.
+ */
+public final class InMemorySessionStore implements SessionStore {
+    private static final long SWEEP_INTERVAL_MILLIS = 60_000;
+
+    private final Map<String, Long> expiries = new ConcurrentHashMap<>();
+    private volatile long nextSweep = System.currentTimeMillis() + SWEEP_INTERVAL_MILLIS;
+
+    @Override
+    public boolean create(String sessionId, long expiresAt) {
+        expiries.put(sessionId, expiresAt);
+        return true;
+    }
+
+    @Override
+    public long getExpiry(String sessionId) {
+        Long expiresAt = expiries.get(sessionId);
+        if (expiresAt == null) {
+            return -1;
+        }
+        if (expiresAt <= System.currentTimeMillis()) {
+            expiries.remove(sessionId, expiresAt);
+            return -1;
+        }
+        return expiresAt;
+    }
+
+    @Override
+    public void touch(String sessionId, long expiresAt) {
+        expiries.computeIfPresent(sessionId, (id, current) -> Math.max(current, expiresAt));
+    }
+
+    @Override
+    public void flush() {
+        long now = System.currentTimeMillis();
+        if (now >= nextSweep) {
+            nextSweep = now + SWEEP_INTERVAL_MILLIS;
+            expiries.values().removeIf(expiresAt -> expiresAt <= now);
+        }
+    }
+
+    @Override
+    public void remove(String sessionId) {
+        expiries.remove(sessionId);
+    }
+
+    @Override
+    public void close() {
+    }
+}
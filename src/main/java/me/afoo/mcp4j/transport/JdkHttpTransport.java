@@ -0,0 +1,71 @@
+package me.afoo.mcp4j.transport;
+
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.logging.Logger;
+
+/**
+ * Transport backed by com.sun.net.httpserver.HttpServer.
+ *
+ * That server takes its idle timeout, connection cap and TCP_NODELAY from sun.net.httpserver.*
+ * and jdk.httpserver.* system properties, read once per JVM and shared by every HttpServer in
+ * it. This transport leaves them alone, so the idle timeout, connection cap and per-connection
+ * request limit of the options are not supported here; set those properties on the command line
+ * to tune the JDK engine for the whole process, or use the NIO engine for per-server limits and
+ * connection counters.
+ */
+public class JdkHttpTransport implements HttpTransport {
+    private static final Logger LOG = Logger.getLogger(JdkHttpTransport.class.getPackage().getName());
+
+    private final Map<String, HttpHandler> contexts = new LinkedHashMap<>();
+    private final TransportOptions options;
+    private HttpServer httpServer;
+
+    public JdkHttpTransport() {
+        this(TransportOptions.builder().build());
+    }
+
+    public JdkHttpTransport(TransportOptions options) {
+        this.options = options;
+    }
+
+    @Override
+    public void createContext(String path, HttpHandler handler) {
+        contexts.put(path, handler);
+    }
+
+    @Override
+    public void start(InetSocketAddress address, int backlog, Executor executor) throws IOException {
+        warnUnsupportedOptions();
+        httpServer = HttpServer.create(address, backlog);
+        httpServer.setExecutor(executor);
+        for (Map.Entry<String, HttpHandler> entry : contexts.entrySet()) {
+            httpServer.createContext(entry.getKey(), entry.getValue());
+        }
+        httpServer.start();
+    }
+
+    private void warnUnsupportedOptions() {
+        if (options.getMaxConnections() > 0 || options.getMaxRequestsPerConnection() > 0) {
+            LOG.warning("Connection limits are not supported on the JDK engine and are ignored; use the NIO engine");
+        }
+    }
+
+    @Override
+    public void stop(int delaySeconds) {
+        if (httpServer != null) {
+            httpServer.stop(delaySeconds);
+        }
+    }
+
+    @Override
+    public InetSocketAddress getAddress() {
+        return httpServer != null ? httpServer.getAddress() : null;
+    }
+}
@@ -0,0 +1,410 @@
+package me.afoo.mcp4j.transport;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Session store in a memory-mapped file. It keeps sessions across restarts and is shared by
+ * every server on the host that opens the same file, in this process or another one.
+ *
+ * The file is an open-addressing hash table of fixed 64-byte slots behind a 64-byte header;
+ * a slot holds the expiry time, a sequence number and the session ID. Creating and removing
+ * sessions take an exclusive lock on the file. Touches are buffered and written out under a
+ * single lock per {@link #flush}, so a busy session costs one write per expiry tick instead of
+ * one per request. Writes land in the page cache: they survive a crash of the process, and are
+ * forced to disk when the last store on the file is closed.
+ *
+ * Stores opened on the same file in one process share a single mapping, and access to it is
+ * ordered by a read-write lock, so only one of them holds the file lock at a time. Lookups take
+ * just the read lock. Against writers in other processes they rely on the sequence number:
+ * a writer makes it odd while it rewrites the slot's ID and even again afterwards, and a lookup
+ * that sees it odd or changed reads the slot again. Expiry updates leave it alone, so extending
+ * a busy session never makes a concurrent lookup miss it.
+ */
+public final class MappedSessionStore implements SessionStore {
+    private static final int MAGIC = 0x4d435053; // "MCPS"
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 64;
+    private static final int SLOT_SIZE = 64;
+    private static final int SEQUENCE_OFFSET = 8;
+    private static final int ID_LENGTH_OFFSET = 12;
+    private static final int ID_OFFSET = 13;
+    private static final int MAX_ID_LENGTH = SLOT_SIZE - ID_OFFSET;
+    private static final int MAX_SLOTS = 1 << 24;
+    // A writer that died mid-rewrite leaves the sequence odd until the slot is rewritten again;
+    // a lookup stops waiting for it after this many attempts
+    private static final int MAX_READ_ATTEMPTS = 100;
+    // Expiry values with special meaning; real expiry times are positive
+    private static final long EMPTY = 0;
+    private static final long REMOVED = -1;
+
+    private static final Map<Path, Table> OPEN_TABLES = new HashMap<>();
+
+    private final Table table;
+    private final Map<String, Long> pendingTouches = new ConcurrentHashMap<>();
+    private boolean closed;
+
+    /**
+     * Open the store, creating the file if needed. An existing file keeps the size it was
+     * created with.
+     *
+     * @param maxSessions sessions a new file must hold; the table is sized at twice that
+     * @throws IOException if the file cannot be mapped or is not a session store
+     */
+    public MappedSessionStore(Path file, int maxSessions) throws IOException {
+        if (maxSessions <= 0 || maxSessions > MAX_SLOTS / 2) {
+            throw new IllegalArgumentException("maxSessions must be in (0, " + MAX_SLOTS / 2 + "]");
+        }
+        this.table = Table.open(file, Integer.highestOneBit(maxSessions * 4 - 1));
+    }
+
+    @Override
+    public boolean create(String sessionId, long expiresAt) {
+        byte[] id = encode(sessionId);
+        if (id == null) {
+            throw new IllegalArgumentException("Session ID longer than " + MAX_ID_LENGTH + " bytes");
+        }
+        return table.create(id, expiresAt);
+    }
+
+    @Override
+    public long getExpiry(String sessionId) {
+        byte[] id = encode(sessionId);
+        long expiry = id != null ? table.lookup(id) : -1;
+        Long pending = pendingTouches.get(sessionId);
+        if (pending != null && expiry > 0) {
+            expiry = Math.max(expiry, pending);
+        }
+        return expiry > System.currentTimeMillis() ? expiry : -1;
+    }
+
+    @Override
+    public void touch(String sessionId, long expiresAt) {
+        pendingTouches.merge(sessionId, expiresAt, Math::max);
+    }
+
+    @Override
+    public void flush() {
+        if (!pendingTouches.isEmpty()) {
+            table.flush(pendingTouches);
+        }
+    }
+
+    @Override
+    public void remove(String sessionId) {
+        pendingTouches.remove(sessionId);
+        byte[] id = encode(sessionId);
+        if (id != null) {
+            table.remove(id);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        try {
+            flush();
+        } finally {
+            table.release();
+        }
+    }
+
+    private static byte[] encode(String sessionId) {
+        byte[] id = sessionId.getBytes(StandardCharsets.UTF_8);
+        return id.length <= MAX_ID_LENGTH ? id : null;
+    }
+
+    /**
+     * The mapped file, shared by all stores of this process that opened it.
+     */
+    private static final class Table {
+        private final Path key;
+        private final FileChannel channel;
+        private final MappedByteBuffer map;
+        private final int mask;
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        private int references = 1;
+
+        private Table(Path key, FileChannel channel, MappedByteBuffer map, int slots) {
+            this.key = key;
+            this.channel = channel;
+            this.map = map;
+            this.mask = slots - 1;
+        }
+
+        static Table open(Path file, int slots) throws IOException {
+            Path absolute = file.toAbsolutePath();
+            // The file may not exist yet, so identify it by its real directory
+            Path key = absolute.getParent().toRealPath().resolve(absolute.getFileName());
+            synchronized (OPEN_TABLES) {
+                Table table = OPEN_TABLES.get(key);
+                if (table != null) {
+                    table.references++;
+                    return table;
+                }
+                FileChannel channel = FileChannel.open(key,
+                        StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                try {
+                    int existingSlots = openTable(channel, slots);
+                    MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                            HEADER_SIZE + (long) existingSlots * SLOT_SIZE);
+                    table = new Table(key, channel, map, existingSlots);
+                } catch (IOException | RuntimeException e) {
+                    channel.close();
+                    throw e;
+                }
+                OPEN_TABLES.put(key, table);
+                return table;
+            }
+        }
+
+        /**
+         * Write the header of a new file, or validate the header of an existing one.
+         *
+         * @return the number of slots in the table
+         */
+        private static int openTable(FileChannel channel, int slots) throws IOException {
+            try (FileLock ignored = channel.lock()) {
+                if (channel.size() == 0) {
+                    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                    header.putInt(MAGIC).putInt(VERSION).putInt(slots).putInt(SLOT_SIZE);
+                    ((Buffer) header).rewind();
+                    channel.write(header, 0);
+                    // Extend to full size; the table starts out zeroed, i.e. all slots empty
+                    channel.write(ByteBuffer.allocate(1), HEADER_SIZE + (long) slots * SLOT_SIZE - 1);
+                    return slots;
+                }
+                ByteBuffer header = ByteBuffer.allocate(16);
+                channel.read(header, 0);
+                ((Buffer) header).flip();
+                if (header.remaining() < 16 || header.getInt() != MAGIC) {
+                    throw new IOException("Not a session store file");
+                }
+                int version = header.getInt();
+                int existingSlots = header.getInt();
+                int slotSize = header.getInt();
+                if (version != VERSION || slotSize != SLOT_SIZE || Integer.bitCount(existingSlots) != 1
+                        || existingSlots > MAX_SLOTS
+                        || channel.size() < HEADER_SIZE + (long) existingSlots * SLOT_SIZE) {
+                    throw new IOException("Unsupported or truncated session store file");
+                }
+                return existingSlots;
+            }
+        }
+
+        boolean create(byte[] id, long expiresAt) {
+            lock.writeLock().lock();
+            try (FileLock ignored = channel.lock()) {
+                long now = System.currentTimeMillis();
+                int free = -1;
+                int index = hash(id);
+                for (int probes = 0; probes <= mask; probes++, index = (index + 1) & mask) {
+                    long expiry = map.getLong(offset(index));
+                    if (expiry == EMPTY) {
+                        if (free < 0) {
+                            free = index;
+                        }
+                        break;
+                    }
+                    if (isLive(expiry, now) && idEquals(offset(index), id)) {
+                        free = index;
+                        break;
+                    }
+                    if (free < 0 && !isLive(expiry, now)) {
+                        free = index;
+                    }
+                }
+                if (free < 0) {
+                    return false;
+                }
+                int slot = offset(free);
+                // An odd sequence tells lookups in other processes the ID is being rewritten
+                int sequence = (map.getInt(slot + SEQUENCE_OFFSET) + 1) | 1;
+                map.putInt(slot + SEQUENCE_OFFSET, sequence);
+                map.putLong(slot, REMOVED);
+                map.put(slot + ID_LENGTH_OFFSET, (byte) id.length);
+                for (int i = 0; i < id.length; i++) {
+                    map.put(slot + ID_OFFSET + i, id[i]);
+                }
+                map.putLong(slot, expiresAt);
+                map.putInt(slot + SEQUENCE_OFFSET, sequence + 1);
+                return true;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        /**
+         * @return the expiry recorded for the session, which may be in the past, or -1
+         */
+        long lookup(byte[] id) {
+            lock.readLock().lock();
+            try {
+                int index = hash(id);
+                for (int probes = 0; probes <= mask; probes++, index = (index + 1) & mask) {
+                    int slot = offset(index);
+                    for (int attempt = 0; attempt < MAX_READ_ATTEMPTS; attempt++) {
+                        int sequence = map.getInt(slot + SEQUENCE_OFFSET);
+                        if ((sequence & 1) != 0) {
+                            Thread.yield();
+                            continue;
+                        }
+                        long expiry = map.getLong(slot);
+                        if (expiry == EMPTY) {
+                            return -1;
+                        }
+                        boolean match = expiry != REMOVED && idEquals(slot, id);
+                        if (map.getInt(slot + SEQUENCE_OFFSET) == sequence) {
+                            if (match) {
+                                return expiry;
+                            }
+                            break;
+                        }
+                    }
+                }
+                return -1;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        void flush(Map<String, Long> pendingTouches) {
+            lock.writeLock().lock();
+            try (FileLock ignored = channel.lock()) {
+                for (Map.Entry<String, Long> touch : pendingTouches.entrySet()) {
+                    if (!pendingTouches.remove(touch.getKey(), touch.getValue())) {
+                        // Touched again meanwhile; the newer value goes out with the next flush
+                        continue;
+                    }
+                    byte[] id = encode(touch.getKey());
+                    int index = id != null ? find(id) : -1;
+                    if (index >= 0) {
+                        int slot = offset(index);
+                        if (touch.getValue() > map.getLong(slot)) {
+                            map.putLong(slot, touch.getValue());
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void remove(byte[] id) {
+            lock.writeLock().lock();
+            try (FileLock ignored = channel.lock()) {
+                int index = find(id);
+                if (index >= 0) {
+                    map.putLong(offset(index), REMOVED);
+                    reclaim(index);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void release() throws IOException {
+            synchronized (OPEN_TABLES) {
+                if (--references > 0) {
+                    return;
+                }
+                OPEN_TABLES.remove(key);
+            }
+            try {
+                map.force();
+            } finally {
+                channel.close();
+            }
+        }
+
+        /**
+         * Turn the dead slot at index, and dead slots before it, back into empty ones if no probe
+         * sequence runs past them; otherwise lookups would never stop early again after churn.
+         */
+        private void reclaim(int index) {
+            if (map.getLong(offset((index + 1) & mask)) != EMPTY) {
+                return;
+            }
+            long now = System.currentTimeMillis();
+            for (int i = index, n = 0; n <= mask; i = (i - 1) & mask, n++) {
+                long expiry = map.getLong(offset(i));
+                if (expiry == EMPTY || isLive(expiry, now)) {
+                    break;
+                }
+                map.putLong(offset(i), EMPTY);
+            }
+        }
+
+        /**
+         * Find a session while holding the file lock, when no slot can change underneath.
+         *
+         * @return the slot index holding the session, or -1; expired sessions are still found
+         */
+        private int find(byte[] id) {
+            int index = hash(id);
+            for (int probes = 0; probes <= mask; probes++, index = (index + 1) & mask) {
+                int slot = offset(index);
+                long expiry = map.getLong(slot);
+                if (expiry == EMPTY) {
+                    return -1;
+                }
+                if (expiry != REMOVED && idEquals(slot, id)) {
+                    return index;
+                }
+            }
+            return -1;
+        }
+
+        private boolean idEquals(int slot, byte[] id) {
+            if (map.get(slot + ID_LENGTH_OFFSET) != id.length) {
+                return false;
+            }
+            for (int i = 0; i < id.length; i++) {
+                if (map.get(slot + ID_OFFSET + i) != id[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private int hash(byte[] id) {
+            int h = 1;
+            for (byte b : id) {
+                h = 31 * h + b;
+            }
+            return (h ^ (h >>> 16)) & mask;
+        }
+    }
+
+    private static boolean isLive(long expiry, long now) {
+        return expiry > now;
+    }
+
+    private static int offset(int index) {
+        return HEADER_SIZE + index * SLOT_SIZE;
+    }
+}
@@ -0,0 +1,487 @@
+package me.afoo.mcp4j.transport;
+
+import com.sun.net.httpserver.Headers;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * One HTTP/1.1 connection of {@link NioHttpTransport}.
+ *
+ * Reading and parsing happen on the selector thread only. Writes may come from any thread:
+ * they go straight to the socket when nothing is queued and the socket accepts them, otherwise
+ * they are queued for the selector. Writers block once more than HIGH_WATERMARK bytes are
+ * queued, so a slow client cannot make the server buffer unbounded output.
+ *
+ * End of input only stops reading: a client may shut down its sending side after the request
+ * and still expects the response. The connection is closed once the requests already received
+ * have been answered. A reset connection is closed at once, which is how a client that went away
+ * mid-request is noticed.
+ */
+final class NioConnection {
+    private static final int INITIAL_BUFFER_SIZE = 8192;
+    private static final long HIGH_WATERMARK = 256 * 1024;
+    private static final long LOW_WATERMARK = 64 * 1024;
+    private static final byte[] CONTINUE_100 = "HTTP/1.1 100 Continue\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1);
+
+    private final NioHttpTransport transport;
+    private final SocketChannel channel;
+    private final SelectionKey key;
+
+    // Read side, selector thread only
+    private byte[] inBuf = new byte[INITIAL_BUFFER_SIZE];
+    private int inLen;
+    private int scanFrom;
+    private int headEnd = -1;
+    private String method;
+    private URI requestUri;
+    private String protocol;
+    private Headers requestHeaders;
+    private long contentLength;
+    private boolean chunked;
+    private int chunkCursor;
+    private int bodyWrite;
+    private boolean keepAlive;
+    private int requestCount;
+    private boolean inputShutdown;
+    private volatile NioHttpExchange exchange;
+    private volatile long lastActivity = System.currentTimeMillis();
+
+    // Write side, guarded by writeLock
+    private final Object writeLock = new Object();
+    private final ArrayDeque<ByteBuffer> writeQueue = new ArrayDeque<>();
+    private long queuedBytes;
+    private boolean closeAfterWrite;
+    private volatile boolean closed;
+
+    NioConnection(NioHttpTransport transport, SocketChannel channel, SelectionKey key) {
+        this.transport = transport;
+        this.channel = channel;
+        this.key = key;
+    }
+
+    InetSocketAddress getRemoteAddress() {
+        try {
+            return (InetSocketAddress) channel.getRemoteAddress();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    InetSocketAddress getLocalAddress() {
+        try {
+            return (InetSocketAddress) channel.getLocalAddress();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    boolean isIdleSince(long threshold) {
+        return exchange == null && lastActivity < threshold;
+    }
+
+    // --- reading (selector thread) ---
+
+    void onReadable() throws IOException {
+        if (exchange != null && inLen == inBuf.length) {
+            // Pipelined input is waiting on the current exchange; resume once it completes
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+            return;
+        }
+        if (inLen == inBuf.length && !growInput()) {
+            return;
+        }
+        int n = channel.read(ByteBuffer.wrap(inBuf, inLen, inBuf.length - inLen));
+        if (n < 0) {
+            inputShutdown = true;
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+            if (exchange == null) {
+                closeWhenFlushed();
+            }
+            return;
+        }
+        inLen += n;
+        lastActivity = System.currentTimeMillis();
+        processInput();
+    }
+
+    private void processInput() throws IOException {
+        if (exchange != null || closed) {
+            return;
+        }
+        if (headEnd < 0) {
+            int end = indexOfHeadEnd();
+            if (end < 0) {
+                if (inLen >= NioHttpTransport.MAX_HEADER_SIZE) {
+                    sendErrorAndClose(431, "Request header fields too large");
+                }
+                return;
+            }
+            if (!parseHead(end)) {
+                return;
+            }
+        }
+        if (chunked) {
+            if (!decodeChunks()) {
+                return;
+            }
+        } else if (inLen - headEnd < contentLength) {
+            // contentLength is at most the body limit, which keeps this within an int
+            ensureInputCapacity(headEnd + (int) contentLength);
+            return;
+        }
+        dispatchRequest();
+    }
+
+    private int indexOfHeadEnd() {
+        for (int i = Math.max(scanFrom, 3); i < inLen; i++) {
+            if (inBuf[i] == '\n' && inBuf[i - 1] == '\r' && inBuf[i - 2] == '\n' && inBuf[i - 3] == '\r') {
+                return i + 1;
+            }
+        }
+        scanFrom = inLen;
+        return -1;
+    }
+
+    private boolean parseHead(int end) throws IOException {
+        String head = new String(inBuf, 0, end - 4, StandardCharsets.ISO_8859_1);
+        String[] lines = head.split("\r\n");
+        String[] requestLine = lines[0].split(" ");
+        if (requestLine.length != 3 || !requestLine[2].startsWith("HTTP/1.")) {
+            sendErrorAndClose(400, "Bad request line");
+            return false;
+        }
+        Headers headers = new Headers();
+        for (int i = 1; i < lines.length; i++) {
+            int colon = lines[i].indexOf(':');
+            if (colon <= 0) {
+                sendErrorAndClose(400, "Bad header line");
+                return false;
+            }
+            headers.add(lines[i].substring(0, colon).trim(), lines[i].substring(colon + 1).trim());
+        }
+
+        try {
+            requestUri = new URI(requestLine[1]);
+        } catch (Exception e) {
+            sendErrorAndClose(400, "Bad request URI");
+            return false;
+        }
+        method = requestLine[0];
+        protocol = requestLine[2];
+        requestHeaders = headers;
+        headEnd = end;
+
+        String connection = headers.getFirst("Connection");
+        keepAlive = "HTTP/1.1".equals(protocol)
+                ? !"close".equalsIgnoreCase(connection)
+                : "keep-alive".equalsIgnoreCase(connection);
+
+        String transferEncoding = headers.getFirst("Transfer-Encoding");
+        String lengthHeader = headers.getFirst("Content-Length");
+        chunked = transferEncoding != null && transferEncoding.toLowerCase().contains("chunked");
+        contentLength = 0;
+        if (chunked) {
+            chunkCursor = headEnd;
+            bodyWrite = headEnd;
+        } else if (lengthHeader != null) {
+            try {
+                contentLength = Long.parseLong(lengthHeader);
+            } catch (NumberFormatException e) {
+                contentLength = -1;
+            }
+            if (contentLength < 0) {
+                sendErrorAndClose(400, "Bad Content-Length");
+                return false;
+            }
+            if (contentLength > transport.getMaxBodySize()) {
+                sendErrorAndClose(413, "Request body too large");
+                return false;
+            }
+        }
+
+        boolean bodyPending = chunked || inLen - headEnd < contentLength;
+        if (bodyPending && "100-continue".equalsIgnoreCase(headers.getFirst("Expect"))) {
+            write(ByteBuffer.wrap(CONTINUE_100));
+        }
+        return true;
+    }
+
+    /**
+     * Decode chunked body in place: chunk payloads are moved left over their framing, so the
+     * decoded body ends up contiguous right after the head.
+     *
+     * @return true once the terminating chunk and trailers have been consumed
+     */
+    private boolean decodeChunks() throws IOException {
+        while (true) {
+            int lineEnd = indexOfCrlf(chunkCursor);
+            if (lineEnd < 0) {
+                return needMoreChunkInput();
+            }
+            String sizeLine = new String(inBuf, chunkCursor, lineEnd - chunkCursor, StandardCharsets.ISO_8859_1);
+            int semicolon = sizeLine.indexOf(';');
+            long size;
+            try {
+                size = Long.parseLong((semicolon >= 0 ? sizeLine.substring(0, semicolon) : sizeLine).trim(), 16);
+            } catch (NumberFormatException e) {
+                sendErrorAndClose(400, "Bad chunk size");
+                return false;
+            }
+            if (size < 0 || (bodyWrite - headEnd) + size > transport.getMaxBodySize()) {
+                sendErrorAndClose(413, "Request body too large");
+                return false;
+            }
+            int dataStart = lineEnd + 2;
+            if (size == 0) {
+                // Skip optional trailers up to the empty line
+                int cursor = dataStart;
+                while (true) {
+                    int trailerEnd = indexOfCrlf(cursor);
+                    if (trailerEnd < 0) {
+                        return needMoreChunkInput();
+                    }
+                    if (trailerEnd == cursor) {
+                        chunkCursor = trailerEnd + 2;
+                        return true;
+                    }
+                    cursor = trailerEnd + 2;
+                }
+            }
+            if (inLen < dataStart + size + 2) {
+                // Chunk framing counts against the input limit too, so the sum fits an int
+                if (dataStart + size + 2 > inputLimit()) {
+                    sendErrorAndClose(413, "Request too large");
+                    return false;
+                }
+                ensureInputCapacity(dataStart + (int) size + 2);
+                return false;
+            }
+            System.arraycopy(inBuf, dataStart, inBuf, bodyWrite, (int) size);
+            bodyWrite += (int) size;
+            chunkCursor = dataStart + (int) size + 2;
+        }
+    }
+
+    private boolean needMoreChunkInput() throws IOException {
+        if (inLen - chunkCursor > NioHttpTransport.MAX_HEADER_SIZE) {
+            sendErrorAndClose(400, "Bad chunked encoding");
+        }
+        return false;
+    }
+
+    private int indexOfCrlf(int from) {
+        for (int i = from; i + 1 < inLen; i++) {
+            if (inBuf[i] == '\r' && inBuf[i + 1] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private long inputLimit() {
+        return headEnd < 0
+                ? NioHttpTransport.MAX_HEADER_SIZE
+                : headEnd + transport.getMaxBodySize() + NioHttpTransport.MAX_HEADER_SIZE;
+    }
+
+    private boolean growInput() throws IOException {
+        long limit = inputLimit();
+        if (inBuf.length >= limit) {
+            sendErrorAndClose(headEnd < 0 ? 431 : 413, "Request too large");
+            return false;
+        }
+        ensureInputCapacity((int) Math.min(limit, (long) inBuf.length * 2));
+        return true;
+    }
+
+    private void ensureInputCapacity(int capacity) {
+        if (inBuf.length < capacity) {
+            inBuf = Arrays.copyOf(inBuf, capacity);
+        }
+    }
+
+    private void dispatchRequest() throws IOException {
+        int bodyEnd = chunked ? bodyWrite : headEnd + (int) contentLength;
+        int next = chunked ? chunkCursor : bodyEnd;
+        byte[] requestBytes = inBuf;
+        int bodyStart = headEnd;
+
+        // Hand the current buffer over as the request body and keep any pipelined bytes
+        int leftover = inLen - next;
+        inBuf = new byte[Math.max(INITIAL_BUFFER_SIZE, leftover)];
+        System.arraycopy(requestBytes, next, inBuf, 0, leftover);
+        inLen = leftover;
+        scanFrom = 0;
+        headEnd = -1;
+
+        NioHttpContext context = transport.findContext(requestUri.getPath() != null ? requestUri.getPath() : "/");
+        if (context == null) {
+            sendErrorAndClose(404, "No context found for request");
+            return;
+        }
+
+        requestCount++;
+        transport.stats().requestStarted(requestCount > 1);
+        int maxRequests = transport.getMaxRequestsPerConnection();
+        if (maxRequests > 0 && requestCount >= maxRequests) {
+            // Last request allowed on this connection: answer with Connection: close
+            keepAlive = false;
+        }
+        exchange = new NioHttpExchange(this, context, method, requestUri, protocol, requestHeaders,
+                new ByteArrayInputStream(requestBytes, bodyStart, bodyEnd - bodyStart), keepAlive);
+        // Reading stays on while the exchange runs, so a client hanging up is noticed
+        transport.dispatch(exchange);
+    }
+
+    /**
+     * Called by the exchange once its response is complete (any thread).
+     */
+    void exchangeCompleted(boolean reuse) {
+        transport.exchangeFinished();
+        transport.runOnSelector(() -> {
+            exchange = null;
+            lastActivity = System.currentTimeMillis();
+            if (!reuse) {
+                closeWhenFlushed();
+                return;
+            }
+            try {
+                processInput();
+                if (exchange != null || closed) {
+                    return;
+                }
+                if (inputShutdown) {
+                    // Every request the client sent has been answered
+                    closeWhenFlushed();
+                } else if (key.isValid()) {
+                    key.interestOps(key.interestOps() | SelectionKey.OP_READ);
+                }
+            } catch (IOException | RuntimeException e) {
+                close();
+            }
+        });
+    }
+
+    private void sendErrorAndClose(int code, String message) throws IOException {
+        byte[] body = message.getBytes(StandardCharsets.UTF_8);
+        String head = "HTTP/1.1 " + code + " " + NioHttpExchange.reasonPhrase(code) + "\r\n"
+                + "Content-Type: text/plain\r\n"
+                + "Content-Length: " + body.length + "\r\n"
+                + "Connection: close\r\n\r\n";
+        byte[] headBytes = head.getBytes(StandardCharsets.ISO_8859_1);
+        ByteBuffer buffer = ByteBuffer.allocate(headBytes.length + body.length);
+        buffer.put(headBytes).put(body);
+        ((Buffer) buffer).flip();
+        if (key.isValid()) {
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+        }
+        write(buffer);
+        closeWhenFlushed();
+    }
+
+    // --- writing (any thread) ---
+
+    void write(ByteBuffer buffer) throws IOException {
+        synchronized (writeLock) {
+            if (closed) {
+                throw new IOException("Connection closed");
+            }
+            if (writeQueue.isEmpty()) {
+                channel.write(buffer);
+                if (!buffer.hasRemaining()) {
+                    lastActivity = System.currentTimeMillis();
+                    return;
+                }
+            }
+            writeQueue.add(buffer);
+            queuedBytes += buffer.remaining();
+            requestWriteInterest();
+
+            if (!transport.isSelectorThread()) {
+                while (queuedBytes > HIGH_WATERMARK && !closed) {
+                    try {
+                        writeLock.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException("Interrupted while waiting for client to read");
+                    }
+                }
+                if (closed) {
+                    throw new IOException("Connection closed");
+                }
+            }
+        }
+    }
+
+    private void requestWriteInterest() {
+        transport.runOnSelector(() -> {
+            if (key.isValid()) {
+                key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+            }
+        });
+    }
+
+    void onWritable() throws IOException {
+        synchronized (writeLock) {
+            while (!writeQueue.isEmpty()) {
+                ByteBuffer head = writeQueue.peek();
+                queuedBytes -= channel.write(head);
+                if (head.hasRemaining()) {
+                    break;
+                }
+                writeQueue.poll();
+            }
+            lastActivity = System.currentTimeMillis();
+            if (queuedBytes <= LOW_WATERMARK) {
+                writeLock.notifyAll();
+            }
+            if (writeQueue.isEmpty()) {
+                key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+                if (closeAfterWrite) {
+                    close();
+                }
+            }
+        }
+    }
+
+    void closeWhenFlushed() {
+        synchronized (writeLock) {
+            if (writeQueue.isEmpty()) {
+                close();
+            } else {
+                closeAfterWrite = true;
+            }
+        }
+    }
+
+    void close() {
+        synchronized (writeLock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            writeQueue.clear();
+            writeLock.notifyAll();
+        }
+        key.cancel();
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        }
+        transport.connectionClosed(this);
+        NioHttpExchange current = exchange;
+        if (current != null) {
+            current.connectionLost();
+        }
+    }
+}
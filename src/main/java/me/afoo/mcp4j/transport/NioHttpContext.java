@@ -0,0 +1,56 @@
+package me.afoo.mcp4j.transport;
+
+import com.sun.net.httpserver.Authenticator;
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * HttpContext of {@link NioHttpTransport}. There is no backing HttpServer, so getServer() returns null.
+ */
+final class NioHttpContext extends HttpContext {
+    private final String path;
+    private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+    private final List<Filter> filters = new CopyOnWriteArrayList<>();
+    private volatile HttpHandler handler;
+    private volatile Authenticator authenticator;
+
+    NioHttpContext(String path, HttpHandler handler) {
+        this.path = path;
+        this.handler = handler;
+    }
+
+    @Override
+    public HttpHandler getHandler() { return handler; }
+
+    @Override
+    public void setHandler(HttpHandler handler) { this.handler = handler; }
+
+    @Override
+    public String getPath() { return path; }
+
+    @Override
+    public HttpServer getServer() { return null; }
+
+    @Override
+    public Map<String, Object> getAttributes() { return attributes; }
+
+    @Override
+    public List<Filter> getFilters() { return filters; }
+
+    @Override
+    public Authenticator setAuthenticator(Authenticator auth) {
+        Authenticator previous = this.authenticator;
+        this.authenticator = auth;
+        return previous;
+    }
+
+    @Override
+    public Authenticator getAuthenticator() { return authenticator; }
+}
@@ -0,0 +1,399 @@
+package me.afoo.mcp4j.transport;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpPrincipal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+
+/**
+ * HttpExchange of {@link NioHttpTransport}.
+ *
+ * The request body is fully buffered by the selector before dispatch. The response is written
+ * through an 8 KB buffer; head and small bodies go out in a single socket write. Follows the
+ * sendResponseHeaders length convention of com.sun.net.httpserver: &gt;0 fixed length,
+ * 0 chunked, -1 no body.
+ */
+final class NioHttpExchange extends HttpExchange implements DisconnectAware {
+    private static final int BUFFER_SIZE = 8192;
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final byte[] LAST_CHUNK = "0\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1);
+    private static volatile long cachedDateSecond;
+    private static volatile String cachedDate;
+
+    private final NioConnection connection;
+    private final NioHttpContext context;
+    private final String method;
+    private final URI requestUri;
+    private final String protocol;
+    private final Headers requestHeaders;
+    private final Headers responseHeaders = new Headers();
+    private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+    private final boolean requestKeepAlive;
+    private final ResponseStream responseStream = new ResponseStream();
+    private final AtomicBoolean finished = new AtomicBoolean();
+    private final List<Runnable> disconnectCallbacks = new CopyOnWriteArrayList<>();
+    private InputStream requestBody;
+    private OutputStream responseBody = responseStream;
+    private volatile int responseCode = -1;
+
+    NioHttpExchange(NioConnection connection, NioHttpContext context, String method, URI requestUri,
+                    String protocol, Headers requestHeaders, InputStream requestBody, boolean requestKeepAlive) {
+        this.connection = connection;
+        this.context = context;
+        this.method = method;
+        this.requestUri = requestUri;
+        this.protocol = protocol;
+        this.requestHeaders = requestHeaders;
+        this.requestBody = requestBody;
+        this.requestKeepAlive = requestKeepAlive;
+    }
+
+    @Override
+    public Headers getRequestHeaders() { return requestHeaders; }
+
+    @Override
+    public Headers getResponseHeaders() { return responseHeaders; }
+
+    @Override
+    public URI getRequestURI() { return requestUri; }
+
+    @Override
+    public String getRequestMethod() { return method; }
+
+    @Override
+    public HttpContext getHttpContext() { return context; }
+
+    @Override
+    public InputStream getRequestBody() { return requestBody; }
+
+    @Override
+    public OutputStream getResponseBody() { return responseBody; }
+
+    @Override
+    public int getResponseCode() { return responseCode; }
+
+    @Override
+    public InetSocketAddress getRemoteAddress() { return connection.getRemoteAddress(); }
+
+    @Override
+    public InetSocketAddress getLocalAddress() { return connection.getLocalAddress(); }
+
+    @Override
+    public String getProtocol() { return protocol; }
+
+    @Override
+    public Object getAttribute(String name) { return attributes.get(name); }
+
+    @Override
+    public void setAttribute(String name, Object value) {
+        if (value == null) {
+            attributes.remove(name);
+        } else {
+            attributes.put(name, value);
+        }
+    }
+
+    @Override
+    public void setStreams(InputStream i, OutputStream o) {
+        if (i != null) {
+            requestBody = i;
+        }
+        if (o != null) {
+            responseBody = o;
+        }
+    }
+
+    @Override
+    public HttpPrincipal getPrincipal() { return null; }
+
+    @Override
+    public void sendResponseHeaders(int rCode, long responseLength) throws IOException {
+        if (responseCode >= 0) {
+            throw new IOException("headers already sent");
+        }
+        responseCode = rCode;
+
+        boolean bodyAllowed = rCode >= 200 && rCode != 204 && rCode != 304;
+        boolean noBody = !bodyAllowed || responseLength < 0 || "HEAD".equals(method);
+        boolean chunked = !noBody && responseLength == 0;
+        boolean keepAlive = requestKeepAlive && !"close".equalsIgnoreCase(responseHeaders.getFirst("Connection"));
+
+        StringBuilder head = new StringBuilder(256);
+        head.append("HTTP/1.1 ").append(rCode).append(' ').append(reasonPhrase(rCode)).append("\r\n");
+        head.append("Date: ").append(currentDate()).append("\r\n");
+        for (Map.Entry<String, List<String>> header : responseHeaders.entrySet()) {
+            String name = header.getKey();
+            if ("Content-length".equalsIgnoreCase(name) || "Transfer-encoding".equalsIgnoreCase(name)
+                    || "Connection".equalsIgnoreCase(name)) {
+                continue;
+            }
+            for (String value : header.getValue()) {
+                head.append(name).append(": ").append(value).append("\r\n");
+            }
+        }
+        if (bodyAllowed) {
+            if (chunked) {
+                head.append("Transfer-Encoding: chunked\r\n");
+            } else {
+                head.append("Content-Length: ").append(Math.max(0, responseLength)).append("\r\n");
+            }
+        }
+        if (!keepAlive) {
+            head.append("Connection: close\r\n");
+        } else if (!"HTTP/1.1".equals(protocol)) {
+            head.append("Connection: keep-alive\r\n");
+        }
+        head.append("\r\n");
+
+        responseStream.begin(head.toString().getBytes(StandardCharsets.ISO_8859_1),
+                chunked, noBody ? 0 : responseLength, noBody, keepAlive);
+        if (noBody) {
+            responseStream.close();
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            requestBody.close();
+        } catch (IOException ignored) {
+        }
+        if (responseCode < 0) {
+            abort();
+            return;
+        }
+        try {
+            responseBody.close();
+        } catch (IOException e) {
+            abort();
+        }
+    }
+
+    /**
+     * Register a callback run by {@link #connectionLost} if the client goes away first.
+     */
+    @Override
+    public void onDisconnect(Runnable callback) {
+        disconnectCallbacks.add(callback);
+    }
+
+    /**
+     * Called by the connection when it closes; a no-op once the response is complete.
+     */
+    void connectionLost() {
+        if (finished.get()) {
+            return;
+        }
+        for (Runnable callback : disconnectCallbacks) {
+            try {
+                callback.run();
+            } catch (RuntimeException e) {
+                NioHttpTransport.LOG.log(Level.WARNING, "Disconnect callback failed", e);
+            }
+        }
+        disconnectCallbacks.clear();
+    }
+
+    /**
+     * Drop the connection without completing the response.
+     */
+    void abort() {
+        connection.close();
+        finish(false);
+    }
+
+    private void finish(boolean reuse) {
+        if (finished.compareAndSet(false, true)) {
+            connection.exchangeCompleted(reuse);
+        }
+    }
+
+    private static String currentDate() {
+        long second = System.currentTimeMillis() / 1000;
+        String date = cachedDate;
+        if (date == null || second != cachedDateSecond) {
+            date = DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC));
+            cachedDate = date;
+            cachedDateSecond = second;
+        }
+        return date;
+    }
+
+    static String reasonPhrase(int code) {
+        switch (code) {
+            case 100: return "Continue";
+            case 200: return "OK";
+            case 202: return "Accepted";
+            case 204: return "No Content";
+            case 304: return "Not Modified";
+            case 400: return "Bad Request";
+            case 404: return "Not Found";
+            case 405: return "Method Not Allowed";
+            case 406: return "Not Acceptable";
+            case 413: return "Payload Too Large";
+            case 415: return "Unsupported Media Type";
+            case 429: return "Too Many Requests";
+            case 431: return "Request Header Fields Too Large";
+            case 500: return "Internal Server Error";
+            case 503: return "Service Unavailable";
+            default: return "Status " + code;
+        }
+    }
+
+    /**
+     * Response body stream. Buffers up to BUFFER_SIZE bytes (the head included) and frames
+     * them as chunks when the length is unknown.
+     */
+    private final class ResponseStream extends OutputStream {
+        private byte[] buf = new byte[BUFFER_SIZE];
+        private int count;
+        private int bodyStart;
+        private boolean started;
+        private boolean chunked;
+        private boolean discard;
+        private boolean reuse;
+        private long remaining;
+        private boolean closed;
+
+        void begin(byte[] head, boolean chunked, long length, boolean discard, boolean reuse) {
+            if (head.length > buf.length) {
+                buf = new byte[head.length + BUFFER_SIZE];
+            }
+            System.arraycopy(head, 0, buf, 0, head.length);
+            this.count = head.length;
+            this.bodyStart = head.length;
+            this.chunked = chunked;
+            this.remaining = length;
+            this.discard = discard;
+            this.reuse = reuse;
+            this.started = true;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) throws IOException {
+            if (!started) {
+                throw new IOException("response headers not sent yet");
+            }
+            if (closed) {
+                throw new IOException("stream is closed");
+            }
+            if (discard || len == 0) {
+                return;
+            }
+            if (!chunked) {
+                if (len > remaining) {
+                    throw new IOException("too many bytes to write to stream");
+                }
+                remaining -= len;
+            }
+            if (len <= buf.length - count) {
+                System.arraycopy(b, off, buf, count, len);
+                count += len;
+                return;
+            }
+            flushBuffer(false);
+            if (len <= buf.length - count) {
+                System.arraycopy(b, off, buf, count, len);
+                count += len;
+            } else {
+                connection.write(frame(b, off, len, false));
+            }
+        }
+
+        @Override
+        public synchronized void flush() throws IOException {
+            if (started && !closed) {
+                flushBuffer(false);
+            }
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            if (closed || !started) {
+                return;
+            }
+            closed = true;
+            boolean completed = false;
+            try {
+                if (!chunked && !discard && remaining > 0) {
+                    throw new IOException("insufficient bytes written to stream");
+                }
+                flushBuffer(true);
+                completed = true;
+            } finally {
+                if (completed) {
+                    finish(reuse);
+                } else {
+                    abort();
+                }
+            }
+        }
+
+        private void flushBuffer(boolean last) throws IOException {
+            int bodyLength = count - bodyStart;
+            if (!chunked || discard) {
+                if (count > 0) {
+                    byte[] bytes = new byte[count];
+                    System.arraycopy(buf, 0, bytes, 0, count);
+                    connection.write(ByteBuffer.wrap(bytes));
+                }
+            } else if (count > 0 || last) {
+                ByteBuffer framed = frame(buf, bodyStart, bodyLength, last);
+                if (bodyStart > 0) {
+                    ByteBuffer withHead = ByteBuffer.allocate(bodyStart + framed.remaining());
+                    withHead.put(buf, 0, bodyStart).put(framed);
+                    ((Buffer) withHead).flip();
+                    framed = withHead;
+                }
+                connection.write(framed);
+            }
+            count = 0;
+            bodyStart = 0;
+        }
+
+        private ByteBuffer frame(byte[] b, int off, int len, boolean last) {
+            if (!chunked) {
+                byte[] bytes = new byte[len];
+                System.arraycopy(b, off, bytes, 0, len);
+                return ByteBuffer.wrap(bytes);
+            }
+            byte[] sizeLine = len > 0
+                    ? (Integer.toHexString(len) + "\r\n").getBytes(StandardCharsets.ISO_8859_1)
+                    : new byte[0];
+            int size = sizeLine.length + len + (len > 0 ? CRLF.length : 0) + (last ? LAST_CHUNK.length : 0);
+            ByteBuffer out = ByteBuffer.allocate(size);
+            out.put(sizeLine).put(b, off, len);
+            if (len > 0) {
+                out.put(CRLF);
+            }
+            if (last) {
+                out.put(LAST_CHUNK);
+            }
+            ((Buffer) out).flip();
+            return out;
+        }
+    }
+}
@@ -0,0 +1,326 @@
+package me.afoo.mcp4j.transport;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Selector-based HTTP/1.1 transport.
+ *
+ * A single selector thread accepts connections, reads and parses requests and drains pending
+ * writes. Only complete requests are handed to the executor, so idle and slow-sending
+ * connections never occupy a worker thread. Handlers see a regular HttpExchange and can
+ * complete it from any thread.
+ *
+ * Failures are logged to java.util.logging under this package's name, the channel the JDK
+ * engine's own server logs to as well.
+ */
+public class NioHttpTransport implements HttpTransport {
+    static final Logger LOG = Logger.getLogger(NioHttpTransport.class.getPackage().getName());
+    static final int MAX_HEADER_SIZE = 64 * 1024;
+    // Requests are buffered whole in one array, which also holds the head and pipelined input
+    static final long MAX_BUFFERED_BODY_SIZE = Integer.MAX_VALUE - 4L * MAX_HEADER_SIZE;
+    private static final long MIN_SWEEP_INTERVAL_MILLIS = 10;
+    private static final long MAX_SWEEP_INTERVAL_MILLIS = 1_000;
+
+    private final TransportOptions options;
+    private final long idleTimeoutMillis;
+    private final long sweepIntervalMillis;
+    private final ConnectionStats stats = new ConnectionStats();
+    private final Map<String, NioHttpContext> contexts = new ConcurrentHashMap<>();
+    private final Queue<Runnable> selectorTasks = new ConcurrentLinkedQueue<>();
+    private final Set<NioConnection> connections = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger activeExchanges = new AtomicInteger();
+    private ServerSocketChannel serverChannel;
+    private SelectionKey acceptKey;
+    private Selector selector;
+    private Thread selectorThread;
+    private Executor executor;
+    private volatile boolean running = false;
+
+    public NioHttpTransport() {
+        this(TransportOptions.builder().build());
+    }
+
+    public NioHttpTransport(TransportOptions options) {
+        this.options = options;
+        this.idleTimeoutMillis = options.getIdleTimeout().toMillis();
+        this.sweepIntervalMillis = Math.max(MIN_SWEEP_INTERVAL_MILLIS,
+                Math.min(MAX_SWEEP_INTERVAL_MILLIS, idleTimeoutMillis / 4));
+    }
+
+    @Override
+    public void createContext(String path, HttpHandler handler) {
+        contexts.put(path, new NioHttpContext(path, handler));
+    }
+
+    @Override
+    public synchronized void start(InetSocketAddress address, int backlog, Executor executor) throws IOException {
+        if (running) {
+            throw new IllegalStateException("Transport is already running");
+        }
+        this.executor = executor;
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        serverChannel.configureBlocking(false);
+        serverChannel.bind(address, backlog);
+        acceptKey = serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+
+        running = true;
+        selectorThread = new Thread(this::runSelectorLoop, "mcp4j-nio-selector");
+        selectorThread.setDaemon(true);
+        selectorThread.start();
+    }
+
+    @Override
+    public synchronized void stop(int delaySeconds) {
+        if (!running) {
+            return;
+        }
+        try {
+            serverChannel.close();
+        } catch (IOException ignored) {
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(Math.max(0, delaySeconds));
+        while (activeExchanges.get() > 0 && System.nanoTime() < deadline) {
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        running = false;
+        selector.wakeup();
+        try {
+            selectorThread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public ConnectionStats getConnectionStats() {
+        return stats;
+    }
+
+    @Override
+    public InetSocketAddress getAddress() {
+        if (serverChannel == null) {
+            return null;
+        }
+        try {
+            return (InetSocketAddress) serverChannel.getLocalAddress();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    // --- selector thread ---
+
+    private void runSelectorLoop() {
+        long lastSweep = System.currentTimeMillis();
+        while (running) {
+            try {
+                selector.select(sweepIntervalMillis);
+                runSelectorTasks();
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (key.isValid() && key.isAcceptable()) {
+                        accept();
+                    } else {
+                        handleConnectionKey(key);
+                    }
+                }
+
+                long now = System.currentTimeMillis();
+                if (now - lastSweep >= sweepIntervalMillis) {
+                    closeIdleConnections(now);
+                    lastSweep = now;
+                }
+            } catch (IOException e) {
+                if (running) {
+                    LOG.log(Level.WARNING, "Selector loop failed", e);
+                }
+            }
+        }
+        closeAll();
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while (!atConnectionLimit() && (channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+            NioConnection connection = new NioConnection(this, channel, key);
+            key.attach(connection);
+            connections.add(connection);
+            stats.connectionOpened();
+        }
+        if (atConnectionLimit()) {
+            // Leave further clients in the listen backlog until a connection closes
+            acceptKey.interestOps(0);
+        }
+    }
+
+    private boolean atConnectionLimit() {
+        return options.getMaxConnections() > 0 && connections.size() >= options.getMaxConnections();
+    }
+
+    private void handleConnectionKey(SelectionKey key) {
+        NioConnection connection = (NioConnection) key.attachment();
+        try {
+            if (key.isValid() && key.isReadable()) {
+                connection.onReadable();
+            }
+            if (key.isValid() && key.isWritable()) {
+                connection.onWritable();
+            }
+        } catch (IOException | RuntimeException e) {
+            connection.close();
+        }
+    }
+
+    private void runSelectorTasks() {
+        Runnable task;
+        while ((task = selectorTasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                LOG.log(Level.WARNING, "Selector task failed", e);
+            }
+        }
+    }
+
+    private void closeIdleConnections(long now) {
+        for (NioConnection connection : connections) {
+            if (connection.isIdleSince(now - idleTimeoutMillis)) {
+                connection.close();
+            }
+        }
+    }
+
+    private void closeAll() {
+        for (NioConnection connection : new ArrayList<>(connections)) {
+            connection.close();
+        }
+        try {
+            selector.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    // --- callbacks from connections ---
+
+    /**
+     * Run the task on the selector thread. Interest-op changes and connection recycling go
+     * through here so that only the selector thread mutates selection state.
+     */
+    void runOnSelector(Runnable task) {
+        if (Thread.currentThread() == selectorThread) {
+            task.run();
+            return;
+        }
+        selectorTasks.add(task);
+        selector.wakeup();
+    }
+
+    boolean isSelectorThread() {
+        return Thread.currentThread() == selectorThread;
+    }
+
+    long getMaxBodySize() {
+        return Math.min(options.getMaxRequestBodySize(), MAX_BUFFERED_BODY_SIZE);
+    }
+
+    int getMaxRequestsPerConnection() {
+        return options.getMaxRequestsPerConnection();
+    }
+
+    ConnectionStats stats() {
+        return stats;
+    }
+
+    NioHttpContext findContext(String path) {
+        NioHttpContext best = null;
+        for (NioHttpContext context : contexts.values()) {
+            if (path.startsWith(context.getPath())
+                    && (best == null || context.getPath().length() > best.getPath().length())) {
+                best = context;
+            }
+        }
+        return best;
+    }
+
+    void dispatch(NioHttpExchange exchange) {
+        activeExchanges.incrementAndGet();
+        try {
+            executor.execute(() -> {
+                try {
+                    NioHttpContext context = (NioHttpContext) exchange.getHttpContext();
+                    List<Filter> filters = context.getFilters();
+                    new Filter.Chain(filters, context.getHandler()).doFilter(exchange);
+                } catch (IOException e) {
+                    // Usually the client went away while the response was written
+                    LOG.log(Level.FINE, "I/O error handling " + describe(exchange), e);
+                    exchange.abort();
+                } catch (RuntimeException e) {
+                    LOG.log(Level.WARNING, "Handler failed on " + describe(exchange), e);
+                    exchange.abort();
+                } catch (Error e) {
+                    exchange.abort();
+                    throw e;
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            LOG.log(Level.FINE, "Executor rejected " + describe(exchange), e);
+            exchange.abort();
+        }
+    }
+
+    private static String describe(NioHttpExchange exchange) {
+        return exchange.getRequestMethod() + " " + exchange.getRequestURI();
+    }
+
+    void exchangeFinished() {
+        activeExchanges.decrementAndGet();
+    }
+
+    void connectionClosed(NioConnection connection) {
+        if (!connections.remove(connection)) {
+            return;
+        }
+        stats.connectionClosed();
+        if (options.getMaxConnections() > 0) {
+            runOnSelector(() -> {
+                if (acceptKey.isValid() && acceptKey.interestOps() == 0 && !atConnectionLimit()) {
+                    acceptKey.interestOps(SelectionKey.OP_ACCEPT);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package me.afoo.mcp4j.transport;
+
+/**
+ * What {@link SessionManager} does with a new session once the session cap is reached.
+ */
+public enum SessionLimitPolicy {
+    /**
+     * Refuse the new session; the client is told to retry later.
+     */
+    REJECT,
+
+    /**
+     * Make room by ending an idle session, approximately the least recently used one.
+     */
+    EVICT_LEAST_RECENTLY_USED
+}
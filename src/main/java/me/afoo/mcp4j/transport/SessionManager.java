@@ -1,34 +1,199 @@
 package me.afoo.mcp4j.transport;
 
+import me.afoo.mcp4j.util.TimerWheel;
+
+import java.io.IOException;
 import java.util.Map;
+import java.util.Queue;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * Manages MCP sessions with timeout support.
  * Sessions are identified by Mcp-Session-Id header per Streamable HTTP transport spec.
+ *
+ * Expiry runs on a timer wheel: each session holds one timeout that is never rescheduled on
+ * access. When it fires, a session that was touched since is re-armed for the rest of its idle
+ * time and any other is removed, so the wheel only ever visits sessions that are due. Access
+ * times come from a clock the wheel advances once per tick, and a touch only writes when that
+ * clock has moved, which keeps {@link #isValidSession} to a map lookup on the hot path.
+ * Sessions expire between zero and two ticks late.
+ *
+ * {@link #stop} ends expiry and forgets the sessions held in memory; the next session created
+ * or adopted starts expiry again on a fresh wheel, so a stopped server can be started again.
+ *
+ * The number of sessions can be capped overall and per remote address. At the overall cap,
+ * {@link SessionLimitPolicy} decides between refusing the new session and evicting an idle one;
+ * eviction uses the CLOCK approximation of LRU, giving a session that was used since the hand
+ * last passed it a second chance. The per-address quota always refuses.
+ *
+ * With a {@link SessionStore}, sessions outlive this manager and can be shared with other
+ * servers using the same store. New sessions are written through; a session this manager does
+ * not hold is adopted from the store on first use, and one that looks idle here is checked
+ * against the store before it is rejected or dropped. Touches reach the store at most once per
+ * tick per session and are flushed after the tick on a thread of their own, so a slow store does
+ * not hold up expiry. Limits count only the sessions held here, and
+ * all servers sharing a store should use the same session timeout.
+ *
+ * A manager created with {@link #stateless} keeps no sessions at all: session IDs are signed
+ * tokens (see {@link SessionTokens}) that every server with the key accepts until they expire.
+ * The session timeout then bounds the lifetime of a session rather than its idle time, and
+ * sessions cannot be ended early.
  */
 public class SessionManager {
+    private static final Logger LOG = Logger.getLogger(SessionManager.class.getName());
+    private static final long MIN_TICK_MILLIS = 10;
+    private static final long MAX_TICK_MILLIS = 1000;
+    private static final long MAX_RETRY_AFTER_SECONDS = 60;
+
     private final Map<String, Session> sessions = new ConcurrentHashMap<>();
     private final long sessionTimeoutMillis;
-    private final ScheduledExecutorService cleanupExecutor;
+    private final int maxSessions;
+    private final SessionLimitPolicy limitPolicy;
+    private final int maxSessionsPerAddress;
+    private final SessionStore store;
+    private final SessionTokens tokens;
+    // Runs store flushes; its thread ends when idle, so it needs no shutting down
+    private final ThreadPoolExecutor flusher;
+    private final AtomicBoolean flushPending = new AtomicBoolean();
+    private final long tickMillis;
+    // Null while stopped; replaced rather than restarted, as a stopped wheel stays stopped
+    private volatile TimerWheel wheel;
+    private volatile long clock = System.currentTimeMillis();
+
+    private final AtomicInteger sessionCount = new AtomicInteger();
+    private final Map<String, Integer> sessionsPerAddress = new ConcurrentHashMap<>();
+    // Sessions in creation order for the CLOCK hand; only kept when evicting
+    private final Queue<Session> ring;
+    private final AtomicInteger ringSize = new AtomicInteger();
+    private final AtomicBoolean purging = new AtomicBoolean();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+    private final LongAdder addressRejections = new LongAdder();
 
     public SessionManager(long sessionTimeoutMillis) {
+        this(sessionTimeoutMillis, 0, SessionLimitPolicy.REJECT, 0);
+    }
+
+    /**
+     * @param maxSessions cap on live sessions; 0 means unbounded
+     * @param limitPolicy what to do with a new session at the cap
+     * @param maxSessionsPerAddress cap on live sessions of one remote address; 0 means unbounded
+     */
+    public SessionManager(long sessionTimeoutMillis, int maxSessions, SessionLimitPolicy limitPolicy,
+                          int maxSessionsPerAddress) {
+        this(sessionTimeoutMillis, maxSessions, limitPolicy, maxSessionsPerAddress, null);
+    }
+
+    /**
+     * @param store where sessions are kept beyond this manager; null keeps them in memory only.
+     *              {@link #stop} flushes it and {@link #shutdown} closes it.
+     */
+    public SessionManager(long sessionTimeoutMillis, int maxSessions, SessionLimitPolicy limitPolicy,
+                          int maxSessionsPerAddress, SessionStore store) {
+        this(sessionTimeoutMillis, maxSessions, limitPolicy, maxSessionsPerAddress, store, null);
+    }
+
+    private SessionManager(long sessionTimeoutMillis, int maxSessions, SessionLimitPolicy limitPolicy,
+                           int maxSessionsPerAddress, SessionStore store, SessionTokens tokens) {
+        if (maxSessions < 0 || maxSessionsPerAddress < 0) {
+            throw new IllegalArgumentException("Session limits must not be negative");
+        }
         this.sessionTimeoutMillis = sessionTimeoutMillis;
-        this.cleanupExecutor = Executors.newSingleThreadScheduledExecutor();
-        startCleanupTask();
+        this.maxSessions = maxSessions;
+        this.limitPolicy = limitPolicy;
+        this.maxSessionsPerAddress = maxSessionsPerAddress;
+        this.store = store;
+        this.tokens = tokens;
+        this.ring = maxSessions > 0 && limitPolicy == SessionLimitPolicy.EVICT_LEAST_RECENTLY_USED
+                ? new ConcurrentLinkedQueue<>() : null;
+        this.flusher = store == null ? null : newFlusher();
+        this.tickMillis = Math.max(MIN_TICK_MILLIS, Math.min(MAX_TICK_MILLIS, sessionTimeoutMillis / 32));
+        if (tokens == null) {
+            wheel();
+        }
+    }
+
+    /**
+     * Manager issuing signed session tokens instead of keeping sessions.
+     *
+     * @param signingKey HMAC key of at least 32 bytes, the same on every server
+     */
+    public static SessionManager stateless(long sessionLifetimeMillis, byte[] signingKey) {
+        return new SessionManager(sessionLifetimeMillis, 0, SessionLimitPolicy.REJECT, 0, null,
+                new SessionTokens(signingKey));
+    }
+
+    /**
+     * @return true if sessions are signed tokens that cannot be ended before they expire
+     */
+    public boolean isStateless() {
+        return tokens != null;
     }
 
     /**
      * Create a new session and return its ID.
-     * The ID is a UUID suitable for use as Mcp-Session-Id header value.
+     * The ID is a UUID, or a signed token when stateless, suitable for use as Mcp-Session-Id header value.
      */
     public String createSession() {
+        return createSession(null);
+    }
+
+    /**
+     * Create a session on behalf of a client.
+     *
+     * @param remoteAddress client address the per-address quota is counted against; null to exempt
+     * @throws SessionLimitException if a session limit refuses it
+     */
+    public String createSession(String remoteAddress) {
+        if (tokens != null) {
+            return tokens.issue(System.currentTimeMillis() + sessionTimeoutMillis);
+        }
+        String address = maxSessionsPerAddress > 0 ? remoteAddress : null;
+        if (address != null && !acquireAddress(address)) {
+            addressRejections.increment();
+            throw new SessionLimitException("Too many sessions for " + address, true, retryAfterSeconds());
+        }
+        if (!acquireSlot()) {
+            releaseAddress(address);
+            rejections.increment();
+            throw new SessionLimitException("Too many sessions", false, retryAfterSeconds());
+        }
+
         String sessionId = UUID.randomUUID().toString();
-        sessions.put(sessionId, new Session(sessionId, System.currentTimeMillis()));
+        long now = clock;
+        if (store != null) {
+            boolean stored = false;
+            try {
+                stored = store.create(sessionId, now + sessionTimeoutMillis);
+            } finally {
+                if (!stored) {
+                    sessionCount.decrementAndGet();
+                    releaseAddress(address);
+                }
+            }
+            if (!stored) {
+                rejections.increment();
+                throw new SessionLimitException("Session store is full", false, retryAfterSeconds());
+            }
+        }
+        Session session = new Session(sessionId, address, now);
+        sessions.put(sessionId, session);
+        track(session);
+        if (!session.arm(sessionTimeoutMillis)) {
+            rejections.increment();
+            throw new IllegalStateException("Session manager stopped while creating a session");
+        }
         return sessionId;
     }
 
@@ -36,14 +201,17 @@ public class SessionManager {
         if (sessionId == null) {
             return false;
         }
+        if (tokens != null) {
+            return tokens.verify(sessionId, System.currentTimeMillis());
+        }
         Session session = sessions.get(sessionId);
         if (session == null) {
-            return false;
+            return store != null && adopt(sessionId);
         }
 
-        long now = System.currentTimeMillis();
-        if (now - session.getLastAccessTime() > sessionTimeoutMillis) {
-            sessions.remove(sessionId);
+        long now = clock;
+        if (now - session.lastAccessTime > sessionTimeoutMillis && !session.refresh(now)) {
+            // Idle too long but the wheel has not got to it yet
             return false;
         }
 
@@ -51,47 +219,400 @@ public class SessionManager {
         return true;
     }
 
+    /**
+     * Record the lowest log severity the client wants, as sent with logging/setLevel.
+     *
+     * @param severity 0 for everything, growing with severity
+     * @return false if no session with that ID is held here, which is always the case when stateless
+     */
+    public boolean setLogLevel(String sessionId, int severity) {
+        Session session = sessionId == null ? null : sessions.get(sessionId);
+        if (session == null) {
+            return false;
+        }
+        session.logLevel = (byte) severity;
+        return true;
+    }
+
+    /**
+     * @return the severity set by {@link #setLogLevel}, or 0 if none was
+     */
+    public int getLogLevel(String sessionId) {
+        Session session = sessionId == null ? null : sessions.get(sessionId);
+        return session == null ? 0 : session.logLevel;
+    }
+
     public void removeSession(String sessionId) {
-        sessions.remove(sessionId);
+        Session session = sessions.get(sessionId);
+        if (session != null) {
+            remove(session);
+        } else if (store != null) {
+            store.remove(sessionId);
+        }
+    }
+
+    /**
+     * Number of sessions held, including expired ones not yet swept.
+     */
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    /** Sessions ended to make room for new ones. */
+    public long getEvictionCount() { return evictions.sum(); }
+    /** New sessions refused at the overall cap. */
+    public long getRejectionCount() { return rejections.sum(); }
+    /** New sessions refused by the per-address quota. */
+    public long getAddressRejectionCount() { return addressRejections.sum(); }
+
+    /**
+     * Stop expiring sessions and forget the ones held in memory; the store, if any, is flushed
+     * and keeps them. The manager can be used again afterwards.
+     */
+    public synchronized void stop() {
+        TimerWheel stopped = wheel;
+        wheel = null;
+        if (stopped != null) {
+            stopped.stop();
+        }
+        for (Session session : sessions.values()) {
+            forget(session);
+        }
+        if (ring != null) {
+            ring.clear();
+            ringSize.set(0);
+        }
+        if (store != null) {
+            store.flush();
+        }
     }
 
+    /**
+     * Stop, then close the store, which keeps the sessions.
+     */
     public void shutdown() {
-        cleanupExecutor.shutdown();
+        stop();
+        if (store != null) {
+            try {
+                store.close();
+            } catch (IOException | RuntimeException e) {
+                LOG.log(Level.WARNING, "Failed to close session store", e);
+            }
+        }
+    }
+
+    /**
+     * The running wheel, started with its tick on first use after construction or {@link #stop}.
+     */
+    private TimerWheel wheel() {
+        TimerWheel current = wheel;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (wheel == null) {
+                TimerWheel started = new TimerWheel("mcp4j-session-expiry", tickMillis, TimeUnit.MILLISECONDS, 1024);
+                clock = System.currentTimeMillis();
+                started.schedule(() -> tick(started), tickMillis, TimeUnit.MILLISECONDS);
+                wheel = started;
+            }
+            return wheel;
+        }
+    }
+
+    private void tick(TimerWheel current) {
+        clock = System.currentTimeMillis();
+        if (wheel != current) {
+            return;
+        }
         try {
-            if (!cleanupExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
-                cleanupExecutor.shutdownNow();
+            current.schedule(() -> tick(current), tickMillis, TimeUnit.MILLISECONDS);
+        } catch (IllegalStateException e) {
+            // Stopped since the check above
+            return;
+        }
+        if (flusher != null && flushPending.compareAndSet(false, true)) {
+            try {
+                flusher.execute(this::flush);
+            } catch (RejectedExecutionException e) {
+                flushPending.set(false);
             }
-        } catch (InterruptedException e) {
-            cleanupExecutor.shutdownNow();
-            Thread.currentThread().interrupt();
         }
-        sessions.clear();
     }
 
-    private void startCleanupTask() {
-        cleanupExecutor.scheduleAtFixedRate(() -> {
-            long now = System.currentTimeMillis();
-            sessions.entrySet().removeIf(entry ->
-                now - entry.getValue().getLastAccessTime() > sessionTimeoutMillis
-            );
-        }, 1, 1, TimeUnit.MINUTES);
+    private void flush() {
+        flushPending.set(false);
+        try {
+            store.flush();
+        } catch (RuntimeException e) {
+            LOG.log(Level.WARNING, "Failed to flush session store", e);
+        }
     }
 
-    private static class Session {
+    private static ThreadPoolExecutor newFlusher() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                task -> {
+                    Thread thread = new Thread(task, "mcp4j-session-flush");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Take over a session from the store, e.g. one created before a restart or by another server.
+     */
+    private boolean adopt(String sessionId) {
+        long now = clock;
+        long expiresAt = store.getExpiry(sessionId);
+        if (expiresAt <= now || !acquireSlot()) {
+            return false;
+        }
+        Session session = new Session(sessionId, null, expiresAt - sessionTimeoutMillis);
+        Session existing = sessions.putIfAbsent(sessionId, session);
+        if (existing != null) {
+            // Adopted concurrently by another request
+            sessionCount.decrementAndGet();
+            existing.touch(now);
+            return true;
+        }
+        track(session);
+        if (!session.arm(expiresAt - now)) {
+            return false;
+        }
+        session.touch(now);
+        return true;
+    }
+
+    private void track(Session session) {
+        if (ring != null) {
+            ring.add(session);
+            if (ringSize.incrementAndGet() > 2 * sessionCount.get() + 1024) {
+                purgeRing();
+            }
+        }
+    }
+
+    private boolean acquireSlot() {
+        if (maxSessions == 0) {
+            sessionCount.incrementAndGet();
+            return true;
+        }
+        while (true) {
+            int count = sessionCount.get();
+            if (count < maxSessions) {
+                if (sessionCount.compareAndSet(count, count + 1)) {
+                    return true;
+                }
+            } else if (ring == null || !evictOne()) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Advance the CLOCK hand to the first session not used since the hand last passed it and
+     * end that session. The hand goes round at most twice before taking whatever is next.
+     */
+    private boolean evictOne() {
+        int budget = 2 * ringSize.get();
+        Session session;
+        while ((session = ring.poll()) != null) {
+            ringSize.decrementAndGet();
+            if (session.removed) {
+                continue;
+            }
+            long lastAccess = session.lastAccessTime;
+            if (lastAccess != session.seenAccessTime && budget-- > 0) {
+                session.seenAccessTime = lastAccess;
+                ring.add(session);
+                ringSize.incrementAndGet();
+                continue;
+            }
+            if (remove(session)) {
+                evictions.increment();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Drop ended sessions from the ring when they pile up between evictions.
+     */
+    private void purgeRing() {
+        if (!purging.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            ring.removeIf(session -> session.removed);
+            ringSize.set(ring.size());
+        } finally {
+            purging.set(false);
+        }
+    }
+
+    private boolean acquireAddress(String address) {
+        boolean[] acquired = new boolean[1];
+        sessionsPerAddress.compute(address, (key, count) -> {
+            int current = count == null ? 0 : count;
+            if (current >= maxSessionsPerAddress) {
+                return count;
+            }
+            acquired[0] = true;
+            return current + 1;
+        });
+        return acquired[0];
+    }
+
+    private void releaseAddress(String address) {
+        if (address != null) {
+            sessionsPerAddress.computeIfPresent(address, (key, count) -> count > 1 ? count - 1 : null);
+        }
+    }
+
+    /**
+     * End a session once, whichever of expiry, eviction or DELETE gets there first.
+     */
+    private boolean remove(Session session) {
+        if (!forget(session)) {
+            return false;
+        }
+        if (store != null) {
+            store.remove(session.id);
+        }
+        return true;
+    }
+
+    /**
+     * Drop a session from memory and give back its slot and address quota; the store keeps it.
+     */
+    private boolean forget(Session session) {
+        if (!sessions.remove(session.id, session)) {
+            return false;
+        }
+        session.removed = true;
+        session.disarm();
+        sessionCount.decrementAndGet();
+        releaseAddress(session.address);
+        return true;
+    }
+
+    private long retryAfterSeconds() {
+        return Math.max(1, Math.min(MAX_RETRY_AFTER_SECONDS, TimeUnit.MILLISECONDS.toSeconds(sessionTimeoutMillis)));
+    }
+
+    /**
+     * A session is its own expiry task, so each one costs the map entry, this object and its
+     * wheel timeout.
+     */
+    private final class Session implements Runnable {
         private final String id;
+        private final String address;
         private volatile long lastAccessTime;
+        private volatile TimerWheel.Timeout expiry;
+        private volatile boolean removed;
+        private volatile byte logLevel;
+        // Access time the CLOCK hand saw on its last pass
+        private long seenAccessTime;
 
-        Session(String id, long lastAccessTime) {
+        Session(String id, String address, long lastAccessTime) {
             this.id = id;
+            this.address = address;
             this.lastAccessTime = lastAccessTime;
+            this.seenAccessTime = lastAccessTime;
         }
 
-        long getLastAccessTime() {
-            return lastAccessTime;
+        void touch(long now) {
+            // Skip the volatile write while the coarse clock has not moved
+            if (lastAccessTime != now) {
+                lastAccessTime = now;
+                if (store != null) {
+                    store.touch(id, now + sessionTimeoutMillis);
+                }
+            }
         }
 
-        void touch(long time) {
-            this.lastAccessTime = time;
+        /**
+         * Catch up with use of the session through other servers sharing the store.
+         *
+         * @return true if the session is still valid
+         */
+        boolean refresh(long now) {
+            if (store == null) {
+                return false;
+            }
+            long expiresAt = store.getExpiry(id);
+            if (expiresAt <= now) {
+                return false;
+            }
+            long lastAccess = expiresAt - sessionTimeoutMillis;
+            if (lastAccess > lastAccessTime) {
+                lastAccessTime = lastAccess;
+            }
+            return true;
         }
+
+        /**
+         * @return false if the manager stopped meanwhile, in which case the session is forgotten
+         */
+        boolean arm(long delayMillis) {
+            return arm(wheel(), delayMillis);
+        }
+
+        private boolean arm(TimerWheel on, long delayMillis) {
+            if (on != null) {
+                try {
+                    expiry = on.schedule(this, delayMillis, TimeUnit.MILLISECONDS);
+                    return true;
+                } catch (IllegalStateException e) {
+                    // Stopped after we read it
+                }
+            }
+            // The store, if any, keeps the session
+            forget(this);
+            return false;
+        }
+
+        void disarm() {
+            TimerWheel.Timeout timeout = expiry;
+            if (timeout != null) {
+                timeout.cancel();
+            }
+        }
+
+        @Override
+        public void run() {
+            long now = clock;
+            if (lastAccessTime + sessionTimeoutMillis - now <= 0 && !removed) {
+                refresh(now);
+            }
+            long remaining = lastAccessTime + sessionTimeoutMillis - now;
+            if (remaining > 0 && !removed) {
+                // Re-arm only on a running wheel; expiry that fires while stopping must not restart it
+                arm(wheel, remaining);
+            } else {
+                remove(this);
+            }
+        }
+    }
+
+    /**
+     * Thrown when a new session is refused by a session limit.
+     */
+    public static class SessionLimitException extends RuntimeException {
+        private final boolean addressQuota;
+        private final long retryAfterSeconds;
+
+        public SessionLimitException(String message, boolean addressQuota, long retryAfterSeconds) {
+            super(message);
+            this.addressQuota = addressQuota;
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+
+        /** True if the per-address quota refused the session rather than the overall cap. */
+        public boolean isAddressQuota() { return addressQuota; }
+        public long getRetryAfterSeconds() { return retryAfterSeconds; }
     }
 }
@@ -0,0 +1,47 @@
+package me.afoo.mcp4j.transport;
+
+import java.io.IOException;
+
+/**
+ * Session persistence SPI used by {@link SessionManager}.
+ *
+ * The manager keeps live sessions in memory and uses the store as the shared record behind
+ * them: new sessions are written through, sessions it does not hold are looked up on first
+ * use, and an expiring session is checked against the store before it is dropped, so a
+ * session stays valid while any server sharing the store keeps using it. Times are epoch
+ * milliseconds at which a session expires unless it is touched again.
+ *
+ * All methods may be called concurrently. {@link #touch} is called on the request path and
+ * must not block; {@link #flush} runs after each expiry tick on a dedicated thread.
+ */
+public interface SessionStore {
+
+    /**
+     * Record a new session.
+     *
+     * @return false if the store has no room for it
+     */
+    boolean create(String sessionId, long expiresAt);
+
+    /**
+     * @return when the session expires, or -1 if the store does not hold it or it has expired
+     */
+    long getExpiry(String sessionId);
+
+    /**
+     * Move a session's expiry forward. May be buffered until the next {@link #flush}.
+     */
+    void touch(String sessionId, long expiresAt);
+
+    /**
+     * Write out buffered touches.
+     */
+    void flush();
+
+    void remove(String sessionId);
+
+    /**
+     * Flush and release the store. Sessions it holds stay valid for the next server to open it.
+     */
+    void close() throws IOException;
+}
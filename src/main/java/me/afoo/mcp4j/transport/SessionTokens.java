@@ -0,0 +1,88 @@
+package me.afoo.mcp4j.transport;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Self-contained session IDs: a random nonce and an expiry time, signed with HMAC-SHA256.
+ *
+ * Any server holding the key can check a token without shared state. Tokens are URL-safe
+ * base64 of nonce (16 bytes), expiry in epoch millis (8 bytes) and the MAC of both (32 bytes).
+ * The MAC is compared in constant time.
+ */
+final class SessionTokens {
+    static final int MIN_KEY_LENGTH = 32;
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int NONCE_LENGTH = 16;
+    private static final int PAYLOAD_LENGTH = NONCE_LENGTH + 8;
+    private static final int MAC_LENGTH = 32;
+    private static final int TOKEN_BYTES = PAYLOAD_LENGTH + MAC_LENGTH;
+    private static final int TOKEN_LENGTH = (TOKEN_BYTES * 4 + 2) / 3;
+
+    private final SecureRandom random = new SecureRandom();
+    private final ThreadLocal<Mac> macs;
+
+    SessionTokens(byte[] key) {
+        if (key == null || key.length < MIN_KEY_LENGTH) {
+            throw new IllegalArgumentException("Session signing key must be at least " + MIN_KEY_LENGTH + " bytes");
+        }
+        SecretKeySpec spec = new SecretKeySpec(key.clone(), ALGORITHM);
+        // Fail on a bad key now rather than on the first request
+        newMac(spec);
+        this.macs = ThreadLocal.withInitial(() -> newMac(spec));
+    }
+
+    String issue(long expiresAt) {
+        byte[] token = new byte[TOKEN_BYTES];
+        byte[] nonce = new byte[NONCE_LENGTH];
+        random.nextBytes(nonce);
+        ByteBuffer.wrap(token).put(nonce).putLong(expiresAt);
+        Mac mac = macs.get();
+        mac.update(token, 0, PAYLOAD_LENGTH);
+        try {
+            mac.doFinal(token, PAYLOAD_LENGTH);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(token);
+    }
+
+    /**
+     * @return true if the token was signed with this key and has not expired
+     */
+    boolean verify(String token, long now) {
+        if (token.length() != TOKEN_LENGTH) {
+            return false;
+        }
+        byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(token);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        Mac mac = macs.get();
+        mac.update(bytes, 0, PAYLOAD_LENGTH);
+        byte[] expected = mac.doFinal();
+        byte[] actual = new byte[MAC_LENGTH];
+        System.arraycopy(bytes, PAYLOAD_LENGTH, actual, 0, MAC_LENGTH);
+        if (!MessageDigest.isEqual(expected, actual)) {
+            return false;
+        }
+        return ByteBuffer.wrap(bytes, NONCE_LENGTH, 8).getLong() > now;
+    }
+
+    private static Mac newMac(SecretKeySpec spec) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(spec);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalArgumentException("Cannot use session signing key", e);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package me.afoo.mcp4j.transport;
+
+import java.time.Duration;
+
+/**
+ * Engine-level limits passed to an {@link HttpTransport} when it is created.
+ */
+public class TransportOptions {
+    private final long maxRequestBodySize;
+    private final Duration idleTimeout;
+    private final int maxRequestsPerConnection;
+    private final int maxConnections;
+
+    private TransportOptions(Builder builder) {
+        this.maxRequestBodySize = builder.maxRequestBodySize;
+        this.idleTimeout = builder.idleTimeout;
+        this.maxRequestsPerConnection = builder.maxRequestsPerConnection;
+        this.maxConnections = builder.maxConnections;
+    }
+
+    /** Largest request body; the NIO engine buffers bodies whole and caps this just under 2 GiB. */
+    public long getMaxRequestBodySize() { return maxRequestBodySize; }
+    /** How long a kept-alive connection may sit without a request before it is closed. */
+    public Duration getIdleTimeout() { return idleTimeout; }
+    /** Requests served on one connection before it is closed; 0 means unlimited. */
+    public int getMaxRequestsPerConnection() { return maxRequestsPerConnection; }
+    /** Connections open at once; further clients wait in the accept backlog. 0 means unlimited. */
+    public int getMaxConnections() { return maxConnections; }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private long maxRequestBodySize = 16L * 1024 * 1024;
+        private Duration idleTimeout = Duration.ofSeconds(30);
+        private int maxRequestsPerConnection = 0;
+        private int maxConnections = 0;
+
+        public Builder maxRequestBodySize(long bytes) {
+            if (bytes < 0) {
+                throw new IllegalArgumentException("maxRequestBodySize must not be negative");
+            }
+            this.maxRequestBodySize = bytes;
+            return this;
+        }
+
+        public Builder idleTimeout(Duration idleTimeout) { this.idleTimeout = idleTimeout; return this; }
+        public Builder maxRequestsPerConnection(int max) { this.maxRequestsPerConnection = max; return this; }
+        public Builder maxConnections(int max) { this.maxConnections = max; return this; }
+
+        public TransportOptions build() {
+            return new TransportOptions(this);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package me.afoo.mcp4j.transport;
+
+/**
+ * Built-in HTTP engines selectable through McpServerConfig.
+ */
+public enum TransportType {
+    /** com.sun.net.httpserver.HttpServer (default). */
+    JDK,
+    /** Selector-based NIO engine without a thread per connection. */
+    NIO;
+
+    public HttpTransport create(TransportOptions options) {
+        switch (this) {
+            case NIO:
+                return new NioHttpTransport(options);
+            case JDK:
+            default:
+                return new JdkHttpTransport(options);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package me.afoo.mcp4j.load;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Minimal keep-alive HTTP/1.1 client connection for driving load.
+ *
+ * Each request goes out in a single write with TCP_NODELAY, so measured latency is the
+ * server's and not the client's buffering. Responses are read in full; fixed-length and
+ * chunked bodies are supported, which is all the MCP endpoint produces for JSON replies.
+ */
+final class HttpClientConnection implements Closeable {
+    private final URL url;
+    private final Socket socket;
+    private final OutputStream out;
+    private final InputStream in;
+    private final ByteArrayOutputStream request = new ByteArrayOutputStream(1024);
+
+    HttpClientConnection(URL url, int timeoutMillis) throws IOException {
+        this.url = url;
+        this.socket = new Socket();
+        socket.setTcpNoDelay(true);
+        socket.setSoTimeout(timeoutMillis);
+        socket.connect(new InetSocketAddress(url.getHost(), url.getPort()), timeoutMillis);
+        this.out = socket.getOutputStream();
+        this.in = new BufferedInputStream(socket.getInputStream(), 16 * 1024);
+    }
+
+    Response post(byte[] body, String sessionId) throws IOException {
+        StringBuilder head = new StringBuilder(256)
+                .append("POST ").append(url.getPath()).append(" HTTP/1.1\r\n")
+                .append("Host: ").append(url.getHost()).append(':').append(url.getPort()).append("\r\n")
+                .append("Content-Type: application/json\r\n")
+                .append("Accept: application/json, text/event-stream\r\n")
+                .append("Content-Length: ").append(body.length).append("\r\n");
+        if (sessionId != null) {
+            head.append("Mcp-Session-Id: ").append(sessionId).append("\r\n");
+        }
+        head.append("\r\n");
+        request.reset();
+        request.write(head.toString().getBytes(StandardCharsets.US_ASCII));
+        request.write(body);
+        request.writeTo(out);
+        out.flush();
+        return readResponse();
+    }
+
+    private Response readResponse() throws IOException {
+        String status = readLine();
+        String[] parts = status.split(" ", 3);
+        if (parts.length < 2 || !parts[0].startsWith("HTTP/")) {
+            throw new IOException("Malformed status line: " + status);
+        }
+        Response response = new Response(Integer.parseInt(parts[1]));
+        long contentLength = 0;
+        boolean chunked = false;
+        boolean close = false;
+        String line;
+        while (!(line = readLine()).isEmpty()) {
+            int colon = line.indexOf(':');
+            if (colon < 0) {
+                continue;
+            }
+            String name = line.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+            String value = line.substring(colon + 1).trim();
+            switch (name) {
+                case "content-length":
+                    contentLength = Long.parseLong(value);
+                    break;
+                case "transfer-encoding":
+                    chunked = value.equalsIgnoreCase("chunked");
+                    break;
+                case "connection":
+                    close = value.equalsIgnoreCase("close");
+                    break;
+                case "mcp-session-id":
+                    response.sessionId = value;
+                    break;
+                default:
+                    break;
+            }
+        }
+        ByteArrayOutputStream body = new ByteArrayOutputStream((int) Math.min(contentLength, 1 << 20) + 16);
+        if (chunked) {
+            long size;
+            while ((size = Long.parseLong(readLine().split(";")[0].trim(), 16)) > 0) {
+                copy(size, body);
+                readLine();
+            }
+            while (!readLine().isEmpty()) {
+                // trailers
+            }
+        } else if (response.status != 204 && response.status != 304) {
+            copy(contentLength, body);
+        }
+        response.body = body.toByteArray();
+        response.connectionClosed = close;
+        return response;
+    }
+
+    private String readLine() throws IOException {
+        StringBuilder line = new StringBuilder(64);
+        int c;
+        while ((c = in.read()) != '\n') {
+            if (c < 0) {
+                throw new IOException("Connection closed by server");
+            }
+            if (c != '\r') {
+                line.append((char) c);
+            }
+        }
+        return line.toString();
+    }
+
+    private void copy(long count, ByteArrayOutputStream to) throws IOException {
+        byte[] buffer = new byte[(int) Math.min(8192, Math.max(1, count))];
+        while (count > 0) {
+            int n = in.read(buffer, 0, (int) Math.min(buffer.length, count));
+            if (n < 0) {
+                throw new IOException("Connection closed by server");
+            }
+            to.write(buffer, 0, n);
+            count -= n;
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    static final class Response {
+        final int status;
+        String sessionId;
+        byte[] body;
+        boolean connectionClosed;
+
+        Response(int status) {
+            this.status = status;
+        }
+
+        String bodyText() {
+            return new String(body, StandardCharsets.UTF_8);
+        }
+    }
+}
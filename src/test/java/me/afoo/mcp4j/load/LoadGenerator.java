@@ -0,0 +1,440 @@
+package me.afoo.mcp4j.load;
+
+import me.afoo.mcp4j.metrics.LatencyHistogram;
+import me.afoo.mcp4j.metrics.MetricsRegistry;
+import me.afoo.mcp4j.schema.JsonSchema;
+import me.afoo.mcp4j.server.McpServer;
+import me.afoo.mcp4j.tool.Tool;
+import me.afoo.mcp4j.transport.TransportType;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop load generator for an MCP endpoint.
+ *
+ * Initializes a pool of sessions, then issues tools/call and tools/list at a fixed arrival
+ * rate for a fixed time, spread over a number of keep-alive connections. Requests are
+ * scheduled independently of responses, and latency is measured from each request's intended
+ * start, so a stalled server shows up as queueing delay instead of silently lowering the rate
+ * (coordinated omission). Service time, measured from the actual send, is reported alongside.
+ *
+ * Without --url an embedded server with ExampleServer-style tools is started on a free port.
+ * Run from the test classpath, e.g.
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=me.afoo.mcp4j.load.LoadGenerator -Dexec.args="--rate=5000 --duration=30"}.
+ *
+ * Options (all --name=value): url, transport (JDK or NIO, embedded server only), sessions,
+ * connections, rate (requests per second), duration and warmup (seconds), payload (bytes of
+ * text sent to the echo tool) and listRatio (share of requests that are tools/list).
+ */
+public final class LoadGenerator {
+    private static final int SOCKET_TIMEOUT_MILLIS = 30_000;
+
+    private final Options options;
+    private final MetricsRegistry metrics = new MetricsRegistry();
+    private final LatencyHistogram latency = metrics.histogram("load_latency", "Latency from intended start");
+    private final LatencyHistogram serviceTime = metrics.histogram("load_service_time", "Latency from send");
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final AtomicLong requestIds = new AtomicLong(1);
+    private final Queue<HttpClientConnection> connections = new ConcurrentLinkedQueue<>();
+    private final String payload;
+
+    private LoadGenerator(Options options) {
+        this.options = options;
+        char[] text = new char[options.payloadBytes];
+        Arrays.fill(text, 'x');
+        this.payload = new String(text);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        Report report = run(options);
+        report.print(System.out);
+        if (report.getCompleted() == 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Run one load test and return its measurements, which cover only the period after warmup.
+     */
+    public static Report run(Options options) throws Exception {
+        McpServer server = null;
+        String url = options.url;
+        if (url == null) {
+            server = embeddedServer(options.transport);
+            server.start();
+            url = server.getAddress();
+        }
+        try {
+            return new LoadGenerator(options).drive(new URL(url));
+        } finally {
+            if (server != null) {
+                server.stop();
+            }
+        }
+    }
+
+    private Report drive(URL url) throws Exception {
+        List<HttpClientConnection> pool = new ArrayList<>(options.connections);
+        ExecutorService workers = Executors.newFixedThreadPool(options.connections, r -> {
+            Thread thread = new Thread(r, "mcp4j-load-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            for (int i = 0; i < options.connections; i++) {
+                pool.add(new HttpClientConnection(url, SOCKET_TIMEOUT_MILLIS));
+            }
+            connections.addAll(pool);
+            String[] sessions = initializeSessions(pool, workers);
+
+            BlockingQueue<Long> arrivals = new LinkedBlockingQueue<>();
+            AtomicBoolean schedulerDone = new AtomicBoolean();
+            long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+            long measureFrom = start + options.warmup.toNanos();
+            long end = measureFrom + options.duration.toNanos();
+
+            List<Future<?>> running = new ArrayList<>();
+            for (HttpClientConnection connection : pool) {
+                running.add(workers.submit(() -> work(url, connection, sessions, arrivals, schedulerDone, measureFrom)));
+            }
+            long scheduled = schedule(arrivals, start, end);
+            schedulerDone.set(true);
+
+            // Give queued requests as long as the test itself to drain, then count the rest as lost
+            long drainDeadline = System.nanoTime() + options.duration.toNanos();
+            for (Future<?> worker : running) {
+                long remaining = drainDeadline - System.nanoTime();
+                try {
+                    worker.get(Math.max(1, remaining), TimeUnit.NANOSECONDS);
+                } catch (TimeoutException e) {
+                    break;
+                }
+            }
+            long unsent = arrivals.size();
+            arrivals.clear();
+            return new Report(options, scheduled, unsent, completed.sum(), errors.sum(), latency, serviceTime);
+        } finally {
+            workers.shutdownNow();
+            for (HttpClientConnection connection : connections) {
+                connection.close();
+            }
+        }
+    }
+
+    /**
+     * Put one arrival time on the queue per interval, regardless of how the server keeps up.
+     *
+     * @return number of requests scheduled
+     */
+    private long schedule(BlockingQueue<Long> arrivals, long start, long end) {
+        double intervalNanos = TimeUnit.SECONDS.toNanos(1) / options.rate;
+        long count = 0;
+        while (true) {
+            long intended = start + (long) (count * intervalNanos);
+            if (intended >= end) {
+                return count;
+            }
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            arrivals.add(intended);
+            count++;
+        }
+    }
+
+    private void work(URL url, HttpClientConnection first, String[] sessions, BlockingQueue<Long> arrivals,
+                      AtomicBoolean schedulerDone, long measureFrom) {
+        HttpClientConnection connection = first;
+        while (!Thread.currentThread().isInterrupted()) {
+            Long intended;
+            try {
+                intended = arrivals.poll(50, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (intended == null) {
+                if (schedulerDone.get()) {
+                    return;
+                }
+                continue;
+            }
+            String session = sessions[ThreadLocalRandom.current().nextInt(sessions.length)];
+            long sent = System.nanoTime();
+            boolean ok;
+            try {
+                HttpClientConnection.Response response = connection.post(nextRequest(), session);
+                String body = response.bodyText();
+                ok = response.status == 200 && !body.contains("\"error\"") && !body.contains("\"isError\":true");
+                if (response.connectionClosed) {
+                    connection = reconnect(url, connection);
+                }
+            } catch (IOException e) {
+                ok = false;
+                connection = reconnect(url, connection);
+            }
+            long done = System.nanoTime();
+            if (intended >= measureFrom) {
+                latency.record(done - intended);
+                serviceTime.record(done - sent);
+                completed.increment();
+                if (!ok) {
+                    errors.increment();
+                }
+            }
+        }
+    }
+
+    private HttpClientConnection reconnect(URL url, HttpClientConnection broken) {
+        broken.close();
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                HttpClientConnection connection = new HttpClientConnection(url, SOCKET_TIMEOUT_MILLIS);
+                connections.add(connection);
+                return connection;
+            } catch (IOException e) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+            }
+        }
+        return broken;
+    }
+
+    private byte[] nextRequest() {
+        long id = requestIds.getAndIncrement();
+        String json;
+        if (ThreadLocalRandom.current().nextDouble() < options.listRatio) {
+            json = "{\"jsonrpc\":\"2.0\",\"id\":" + id + ",\"method\":\"tools/list\"}";
+        } else {
+            json = "{\"jsonrpc\":\"2.0\",\"id\":" + id + ",\"method\":\"tools/call\","
+                    + "\"params\":{\"name\":\"echo\",\"arguments\":{\"message\":\"" + payload + "\"}}}";
+        }
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Open the sessions in parallel, one connection per worker.
+     */
+    private String[] initializeSessions(List<HttpClientConnection> pool, ExecutorService workers)
+            throws InterruptedException, ExecutionException {
+        String[] sessions = new String[options.sessions];
+        AtomicInteger next = new AtomicInteger();
+        byte[] initialize = ("{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"initialize\","
+                + "\"params\":{\"protocolVersion\":\"2025-03-26\","
+                + "\"clientInfo\":{\"name\":\"mcp4j-load\",\"version\":\"1.0\"}}}").getBytes(StandardCharsets.UTF_8);
+        byte[] initialized = "{\"jsonrpc\":\"2.0\",\"method\":\"notifications/initialized\"}"
+                .getBytes(StandardCharsets.UTF_8);
+
+        List<Future<?>> tasks = new ArrayList<>();
+        for (HttpClientConnection connection : pool) {
+            tasks.add(workers.submit(() -> {
+                int i;
+                while ((i = next.getAndIncrement()) < sessions.length) {
+                    HttpClientConnection.Response response = connection.post(initialize, null);
+                    if (response.status != 200 || response.sessionId == null) {
+                        throw new IOException("initialize failed with status " + response.status);
+                    }
+                    sessions[i] = response.sessionId;
+                    connection.post(initialized, response.sessionId);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> task : tasks) {
+            task.get();
+        }
+        return sessions;
+    }
+
+    private static McpServer embeddedServer(TransportType transport) {
+        return McpServer.builder()
+                .port(0)
+                .transport(transport)
+                .serverName("mcp4j-load-target")
+                .tool(Tool.builder()
+                        .name("echo")
+                        .description("Echo back the input message")
+                        .inputSchema(JsonSchema.object()
+                                .property("message", JsonSchema.string().required())
+                                .build())
+                        .handler(params -> params.get("message"))
+                        .build())
+                .tool(Tool.builder()
+                        .name("add")
+                        .description("Add two numbers together")
+                        .inputSchema(JsonSchema.object()
+                                .property("a", JsonSchema.number().required())
+                                .property("b", JsonSchema.number().required())
+                                .build())
+                        .handler(params -> ((Number) params.get("a")).doubleValue()
+                                + ((Number) params.get("b")).doubleValue())
+                        .build())
+                .tool(Tool.builder()
+                        .name("reverse")
+                        .description("Reverse a string")
+                        .inputSchema(JsonSchema.object()
+                                .property("text", JsonSchema.string().required())
+                                .build())
+                        .handler(params -> new StringBuilder((String) params.get("text")).reverse().toString())
+                        .build())
+                .build();
+    }
+
+    public static final class Options {
+        private final String url;
+        private final TransportType transport;
+        private final int sessions;
+        private final int connections;
+        private final double rate;
+        private final Duration duration;
+        private final Duration warmup;
+        private final int payloadBytes;
+        private final double listRatio;
+
+        private Options(Builder builder) {
+            this.url = builder.url;
+            this.transport = builder.transport;
+            this.sessions = builder.sessions;
+            this.connections = builder.connections;
+            this.rate = builder.rate;
+            this.duration = builder.duration;
+            this.warmup = builder.warmup;
+            this.payloadBytes = builder.payloadBytes;
+            this.listRatio = builder.listRatio;
+        }
+
+        public static Builder builder() {
+            return new Builder();
+        }
+
+        static Options parse(String[] args) {
+            Builder builder = builder();
+            for (String arg : args) {
+                if (!arg.startsWith("--") || arg.indexOf('=') < 0) {
+                    throw new IllegalArgumentException("Expected --name=value, got " + arg);
+                }
+                String name = arg.substring(2, arg.indexOf('='));
+                String value = arg.substring(arg.indexOf('=') + 1);
+                switch (name) {
+                    case "url": builder.url(value); break;
+                    case "transport": builder.transport(TransportType.valueOf(value.toUpperCase())); break;
+                    case "sessions": builder.sessions(Integer.parseInt(value)); break;
+                    case "connections": builder.connections(Integer.parseInt(value)); break;
+                    case "rate": builder.rate(Double.parseDouble(value)); break;
+                    case "duration": builder.duration(Duration.ofSeconds(Long.parseLong(value))); break;
+                    case "warmup": builder.warmup(Duration.ofSeconds(Long.parseLong(value))); break;
+                    case "payload": builder.payloadBytes(Integer.parseInt(value)); break;
+                    case "listRatio": builder.listRatio(Double.parseDouble(value)); break;
+                    default: throw new IllegalArgumentException("Unknown option: " + name);
+                }
+            }
+            return builder.build();
+        }
+
+        public static class Builder {
+            private String url;
+            private TransportType transport = TransportType.NIO;
+            private int sessions = 1000;
+            private int connections = 64;
+            private double rate = 1000;
+            private Duration duration = Duration.ofSeconds(30);
+            private Duration warmup = Duration.ofSeconds(5);
+            private int payloadBytes = 64;
+            private double listRatio = 0.1;
+
+            /** Endpoint of a running server; null starts an embedded one. */
+            public Builder url(String url) { this.url = url; return this; }
+            public Builder transport(TransportType transport) { this.transport = transport; return this; }
+            public Builder sessions(int sessions) { this.sessions = sessions; return this; }
+            public Builder connections(int connections) { this.connections = connections; return this; }
+            /** Arrivals per second, independent of response times. */
+            public Builder rate(double rate) { this.rate = rate; return this; }
+            public Builder duration(Duration duration) { this.duration = duration; return this; }
+            public Builder warmup(Duration warmup) { this.warmup = warmup; return this; }
+            public Builder payloadBytes(int bytes) { this.payloadBytes = bytes; return this; }
+            public Builder listRatio(double ratio) { this.listRatio = ratio; return this; }
+
+            public Options build() {
+                if (sessions <= 0 || connections <= 0 || rate <= 0) {
+                    throw new IllegalArgumentException("sessions, connections and rate must be positive");
+                }
+                return new Options(this);
+            }
+        }
+    }
+
+    public static final class Report {
+        private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999, 1.0};
+
+        private final Options options;
+        private final long scheduled;
+        private final long unsent;
+        private final long completed;
+        private final long errors;
+        private final LatencyHistogram latency;
+        private final LatencyHistogram serviceTime;
+
+        Report(Options options, long scheduled, long unsent, long completed, long errors,
+               LatencyHistogram latency, LatencyHistogram serviceTime) {
+            this.options = options;
+            this.scheduled = scheduled;
+            this.unsent = unsent;
+            this.completed = completed;
+            this.errors = errors;
+            this.latency = latency;
+            this.serviceTime = serviceTime;
+        }
+
+        /** Requests answered within the measured period, including error answers. */
+        public long getCompleted() { return completed; }
+        public long getErrors() { return errors; }
+        /** Requests still queued when the drain period ran out. */
+        public long getUnsent() { return unsent; }
+        public double getThroughput() { return completed / (options.duration.toNanos() / 1e9); }
+        /** Corrected for coordinated omission: measured from each request's intended start. */
+        public LatencyHistogram getLatency() { return latency; }
+        public LatencyHistogram getServiceTime() { return serviceTime; }
+
+        public void print(PrintStream out) {
+            out.printf("target rate   %.0f req/s over %d connections, %d sessions, %d byte payload%n",
+                    options.rate, options.connections, options.sessions, options.payloadBytes);
+            out.printf("scheduled     %d (%d unsent)%n", scheduled, unsent);
+            out.printf("completed     %d in %ds, %.0f req/s, %d errors%n",
+                    completed, options.duration.getSeconds(), getThroughput(), errors);
+            out.printf("%-14s%12s%12s%n", "percentile", "latency ms", "service ms");
+            for (double quantile : QUANTILES) {
+                out.printf("%-14s%12.3f%12.3f%n", quantile == 1.0 ? "max" : "p" + trim(quantile * 100),
+                        latency.getValueAtQuantile(quantile) / 1e6, serviceTime.getValueAtQuantile(quantile) / 1e6);
+            }
+        }
+
+        private static String trim(double percent) {
+            return percent == Math.rint(percent) ? Long.toString((long) percent) : Double.toString(percent);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package me.afoo.mcp4j.load;
+
+import me.afoo.mcp4j.transport.TransportType;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LoadGeneratorTest {
+
+    @Test
+    void testShortRunAgainstEmbeddedServer() throws Exception {
+        LoadGenerator.Report report = LoadGenerator.run(LoadGenerator.Options.builder()
+                .transport(TransportType.NIO)
+                .sessions(20)
+                .connections(4)
+                .rate(200)
+                .warmup(Duration.ZERO)
+                .duration(Duration.ofSeconds(1))
+                .payloadBytes(256)
+                .listRatio(0.2)
+                .build());
+
+        assertEquals(0, report.getErrors());
+        assertEquals(0, report.getUnsent());
+        assertTrue(report.getCompleted() >= 190, "completed " + report.getCompleted());
+        assertEquals(report.getCompleted(), report.getLatency().getCount());
+        assertTrue(report.getLatency().getValueAtQuantile(0.5) >= report.getServiceTime().getValueAtQuantile(0.5) / 2);
+    }
+
+    @Test
+    void testParseOptions() {
+        assertThrows(IllegalArgumentException.class, () -> LoadGenerator.Options.parse(new String[] {"--bogus=1"}));
+        assertThrows(IllegalArgumentException.class, () -> LoadGenerator.Options.parse(new String[] {"rate"}));
+        assertNotNull(LoadGenerator.Options.parse(new String[] {"--rate=50", "--transport=jdk", "--duration=2"}));
+    }
+}
@@ -0,0 +1,54 @@
+package me.afoo.mcp4j.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    void testBucketsAreContiguousAndBoundRelativeError() {
+        for (long value : new long[] {0, 1, 31, 32, 33, 63, 64, 65, 1000, 123_456_789L, Long.MAX_VALUE}) {
+            int index = LatencyHistogram.index(value);
+            long upper = LatencyHistogram.upperBound(index);
+            assertTrue(upper >= value, "bucket of " + value + " must contain it");
+            assertTrue(upper - value <= Math.max(1, value / 32), "bucket of " + value + " is too wide");
+            assertEquals(index, LatencyHistogram.index(upper));
+            if (upper < Long.MAX_VALUE) {
+                assertEquals(index + 1, LatencyHistogram.index(upper + 1), "no gap after bucket " + index);
+            }
+        }
+    }
+
+    @Test
+    void testQuantiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getValueAtQuantile(0.99));
+
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(i));
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(500_500), histogram.getSum());
+
+        assertWithin(TimeUnit.MICROSECONDS.toNanos(500), histogram.getValueAtQuantile(0.5));
+        assertWithin(TimeUnit.MICROSECONDS.toNanos(990), histogram.getValueAtQuantile(0.99));
+        assertWithin(TimeUnit.MICROSECONDS.toNanos(999), histogram.getValueAtQuantile(0.999));
+        assertWithin(TimeUnit.MICROSECONDS.toNanos(1000), histogram.getValueAtQuantile(1.0));
+    }
+
+    @Test
+    void testNegativeDurationsCountAsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        assertEquals(1, histogram.getCount());
+        assertEquals(0, histogram.getValueAtQuantile(0.5));
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue(actual >= expected && actual <= expected + expected / 32,
+                "expected about " + expected + " but was " + actual);
+    }
+}
@@ -0,0 +1,43 @@
+package me.afoo.mcp4j.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetricsRegistryTest {
+
+    @Test
+    void testPrometheusTextFormat() throws Exception {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("calls_total", "Calls", "tool", "a").add(3);
+        registry.counter("calls_total", "Calls", "tool", "b\"x").increment();
+        AtomicInteger depth = new AtomicInteger(7);
+        registry.gauge("queue_depth", "Queued work", depth::get);
+        LatencyHistogram latency = registry.histogram("latency_seconds", "Latency", "tool", "a");
+        latency.record(2_000_000);
+
+        StringBuilder out = new StringBuilder();
+        registry.writePrometheus(out);
+        String text = out.toString();
+
+        assertTrue(text.contains("# HELP calls_total Calls\n# TYPE calls_total counter\n"));
+        assertTrue(text.contains("calls_total{tool=\"a\"} 3\n"));
+        assertTrue(text.contains("calls_total{tool=\"b\\\"x\"} 1\n"), "label values are escaped");
+        assertTrue(text.contains("# TYPE queue_depth gauge\nqueue_depth 7\n"));
+        assertTrue(text.contains("# TYPE latency_seconds summary\n"));
+        assertTrue(text.contains("latency_seconds{tool=\"a\",quantile=\"0.5\"} 0.002"));
+        assertTrue(text.contains("latency_seconds_count{tool=\"a\"} 1\n"));
+        assertTrue(text.contains("latency_seconds_sum{tool=\"a\"} 0.002\n"));
+    }
+
+    @Test
+    void testSameNameAndLabelsReturnSameMetric() {
+        MetricsRegistry registry = new MetricsRegistry();
+        assertSame(registry.counter("c", "help", "k", "v"), registry.counter("c", "help", "k", "v"));
+        assertNotSame(registry.counter("c", "help", "k", "v"), registry.counter("c", "help", "k", "w"));
+        assertThrows(IllegalArgumentException.class, () -> registry.histogram("c", "help"));
+        assertThrows(IllegalArgumentException.class, () -> registry.counter("d", "help", "odd"));
+    }
+}
@@ -0,0 +1,87 @@
+package me.afoo.mcp4j.schema;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SchemaValidatorTest {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final JsonNode SCHEMA = JsonSchema.object()
+            .property("name", JsonSchema.string().minLength(2).maxLength(8).required())
+            .property("mode", JsonSchema.string().enumValues("fast", "slow"))
+            .property("count", JsonSchema.integer().minimum(1).maximum(10))
+            .property("address", JsonSchema.object()
+                    .property("zip", JsonSchema.string().minLength(5).required()))
+            .property("tags", JsonSchema.array().items(JsonSchema.object()
+                    .property("label", JsonSchema.string().required())))
+            .build();
+
+    private final SchemaValidator validator = SchemaValidator.compile(SCHEMA);
+
+    @Test
+    void testValidArguments() throws Exception {
+        SchemaValidator.ValidationResult result = validator.validate(args(
+                "{\"name\":\"alice\",\"mode\":\"fast\",\"count\":3,"
+                        + "\"address\":{\"zip\":\"12345\"},\"tags\":[{\"label\":\"a\"},{\"label\":\"b\"}]}"));
+        assertTrue(result.isValid(), result.getErrors().toString());
+        assertTrue(result.getErrors().isEmpty());
+    }
+
+    @Test
+    void testMissingRequiredAndTypeErrors() throws Exception {
+        SchemaValidator.ValidationResult result = validator.validate(args("{\"count\":\"three\"}"));
+        assertFalse(result.isValid());
+        assertTrue(result.getErrors().contains("Missing required field: /name"));
+        assertTrue(result.getErrors().contains("Field '/count' must be an integer"));
+    }
+
+    @Test
+    void testStringAndNumericBounds() throws Exception {
+        SchemaValidator.ValidationResult result = validator.validate(args("{\"name\":\"a\",\"count\":11}"));
+        assertFalse(result.isValid());
+        assertTrue(result.getErrors().contains("Field '/name' must be at least 2 characters"));
+        assertTrue(result.getErrors().contains("Field '/count' must be <= 10.0"));
+
+        assertFalse(validator.validate(args("{\"name\":\"abcdefghi\"}")).isValid());
+        assertFalse(validator.validate(args("{\"name\":\"ok\",\"count\":0}")).isValid());
+    }
+
+    @Test
+    void testEnum() throws Exception {
+        SchemaValidator.ValidationResult result = validator.validate(args("{\"name\":\"bob\",\"mode\":\"medium\"}"));
+        assertEquals(1, result.getErrors().size());
+        assertEquals("Field '/mode' has invalid enum value", result.getErrors().get(0));
+    }
+
+    @Test
+    void testNestedObjectsAndArraysUseJsonPointers() throws Exception {
+        SchemaValidator.ValidationResult result = validator.validate(args(
+                "{\"name\":\"bob\",\"address\":{\"zip\":\"12\"},\"tags\":[{\"label\":\"a\"},{},{\"label\":5}]}"));
+        assertFalse(result.isValid());
+        assertTrue(result.getErrors().contains("Field '/address/zip' must be at least 5 characters"));
+        assertTrue(result.getErrors().contains("Missing required field: /tags/1/label"));
+        assertTrue(result.getErrors().contains("Field '/tags/2/label' must be a string"));
+        assertEquals(3, result.getErrors().size());
+    }
+
+    @Test
+    void testIntegralDoubleIsAnInteger() throws Exception {
+        assertTrue(validator.validate(args("{\"name\":\"bob\",\"count\":2.0}")).isValid());
+        assertFalse(validator.validate(args("{\"name\":\"bob\",\"count\":2.5}")).isValid());
+    }
+
+    @Test
+    void testNullSchemaAcceptsAnything() throws Exception {
+        assertTrue(SchemaValidator.compile(null).validate(args("{\"anything\":[1,2,3]}")).isValid());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> args(String json) throws Exception {
+        return MAPPER.readValue(json, Map.class);
+    }
+}
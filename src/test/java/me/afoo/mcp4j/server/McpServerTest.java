@@ -2,34 +2,75 @@ package me.afoo.mcp4j.server;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import me.afoo.mcp4j.protocol.mcp.ToolAnnotations;
 import me.afoo.mcp4j.tool.Tool;
+import me.afoo.mcp4j.tool.ToolContext;
+import me.afoo.mcp4j.transport.TransportType;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 public class McpServerTest {
     private static final ObjectMapper MAPPER = new ObjectMapper();
+    protected static final int SESSIONS_PER_ADDRESS = 16;
     private McpServer server;
-    private int port = 8081;
+    protected int port = 8081;
+    protected static volatile CountDownLatch toolStarted;
+    protected static volatile CountDownLatch toolInterrupted;
 
     @BeforeEach
     void setUp() throws Exception {
-        server = McpServer.builder()
+        toolStarted = new CountDownLatch(1);
+        toolInterrupted = new CountDownLatch(1);
+        startServer();
+    }
+
+    /**
+     * (Re)start the fixture server with test_tool plus the given tools.
+     */
+    protected void startServer(Tool... extraTools) throws Exception {
+        if (server != null) {
+            server.stop();
+        }
+        McpServer.Builder builder = configure(McpServer.builder())
                 .port(port)
                 .serverName("test-server")
+                .transport(transport())
+                .maxRequestBodySize(64 * 1024)
+                .metricsEndpoint("/metrics")
+                .maxSessionsPerAddress(SESSIONS_PER_ADDRESS)
                 .tool(Tool.builder()
                         .name("test_tool")
                         .description("A test tool")
                         .handler(params -> "success")
-                        .build())
-                .build();
+                        .build());
+        for (Tool tool : extraTools) {
+            builder.tool(tool);
+        }
+        server = builder.build();
         server.start();
     }
 
@@ -88,6 +129,37 @@ public class McpServerTest {
         conn.disconnect();
     }
 
+    @Test
+    void testToolsListAnswersConditionalRequest() throws Exception {
+        String sessionId = initialize();
+
+        String listRequest = "{\"jsonrpc\":\"2.0\",\"id\":2,\"method\":\"tools/list\",\"params\":{}}";
+        HttpURLConnection conn = postJson("/mcp", listRequest, sessionId);
+        assertEquals(200, conn.getResponseCode());
+        String etag = conn.getHeaderField("ETag");
+        assertNotNull(etag, "tools/list response must carry an ETag");
+        conn.getInputStream().close();
+        conn.disconnect();
+
+        // A client replaying the ETag still gets a response for its request id
+        URL url = new URL("http://localhost:" + port + "/mcp");
+        HttpURLConnection conditional = (HttpURLConnection) url.openConnection();
+        conditional.setRequestMethod("POST");
+        conditional.setDoOutput(true);
+        conditional.setRequestProperty("Content-Type", "application/json");
+        conditional.setRequestProperty("Mcp-Session-Id", sessionId);
+        conditional.setRequestProperty("If-None-Match", etag);
+        try (OutputStream os = conditional.getOutputStream()) {
+            os.write(listRequest.getBytes(StandardCharsets.UTF_8));
+        }
+        assertEquals(200, conditional.getResponseCode());
+        assertEquals(etag, conditional.getHeaderField("ETag"));
+        JsonNode response = MAPPER.readTree(conditional.getInputStream());
+        assertEquals(2, response.get("id").asInt());
+        assertTrue(response.get("result").get("tools").isArray());
+        conditional.disconnect();
+    }
+
     @Test
     void testToolCall() throws Exception {
         String sessionId = initialize();
@@ -107,6 +179,296 @@ public class McpServerTest {
         conn.disconnect();
     }
 
+    @Test
+    void testAsyncToolCall() throws Exception {
+        startServer(asyncTool());
+        String sessionId = initialize();
+
+        String callRequest = "{\"jsonrpc\":\"2.0\",\"id\":5,\"method\":\"tools/call\","
+                + "\"params\":{\"name\":\"test_tool_async\",\"arguments\":{}}}";
+        HttpURLConnection conn = postJson("/mcp", callRequest, sessionId);
+
+        assertEquals(200, conn.getResponseCode());
+        JsonNode response = MAPPER.readTree(conn.getInputStream());
+        assertEquals(5, response.get("id").asInt());
+        assertEquals("async success", response.get("result").get("content").get(0).get("text").asText());
+        conn.disconnect();
+
+        String failingRequest = "{\"jsonrpc\":\"2.0\",\"id\":6,\"method\":\"tools/call\","
+                + "\"params\":{\"name\":\"test_tool_async\",\"arguments\":{\"fail\":true}}}";
+        HttpURLConnection failing = postJson("/mcp", failingRequest, sessionId);
+
+        assertEquals(200, failing.getResponseCode());
+        JsonNode result = MAPPER.readTree(failing.getInputStream()).get("result");
+        assertTrue(result.get("isError").asBoolean());
+        assertTrue(result.get("content").get(0).get("text").asText().contains("downstream unavailable"));
+        failing.disconnect();
+    }
+
+    @Test
+    void testToolProgressIsStreamedAsSse() throws Exception {
+        startServer(progressTool());
+        String sessionId = initialize();
+
+        String callRequest = "{\"jsonrpc\":\"2.0\",\"id\":7,\"method\":\"tools/call\","
+                + "\"params\":{\"name\":\"progress_tool\",\"arguments\":{\"steps\":3},"
+                + "\"_meta\":{\"progressToken\":\"p-1\"}}}";
+        HttpURLConnection conn = postJson("/mcp", callRequest, sessionId);
+
+        assertEquals(200, conn.getResponseCode());
+        assertEquals("text/event-stream", conn.getContentType());
+        List<JsonNode> events = readEvents(conn.getInputStream());
+        JsonNode last = events.get(events.size() - 1);
+        assertEquals(7, last.get("id").asInt());
+        assertEquals("success", last.get("result").get("content").get(0).get("text").asText());
+
+        List<String> partials = new ArrayList<>();
+        for (JsonNode event : events.subList(0, events.size() - 1)) {
+            assertFalse(event.has("id"), "notifications carry no id");
+            if ("notifications/message".equals(event.get("method").asText())) {
+                partials.add(event.get("params").get("data").asText());
+            } else {
+                assertEquals("notifications/progress", event.get("method").asText());
+                assertEquals("p-1", event.get("params").get("progressToken").asText());
+            }
+        }
+        assertEquals(Arrays.asList("step 1", "step 2", "step 3"), partials);
+        conn.disconnect();
+    }
+
+    @Test
+    void testToolCallWithoutProgressTokenStaysJson() throws Exception {
+        startServer(progressTool());
+        String sessionId = initialize();
+
+        String callRequest = "{\"jsonrpc\":\"2.0\",\"id\":8,\"method\":\"tools/call\","
+                + "\"params\":{\"name\":\"progress_tool\",\"arguments\":{\"steps\":2}}}";
+        HttpURLConnection conn = postJson("/mcp", callRequest, sessionId);
+
+        assertEquals(200, conn.getResponseCode());
+        assertEquals("application/json", conn.getContentType());
+        assertEquals(8, MAPPER.readTree(conn.getInputStream()).get("id").asInt());
+        conn.disconnect();
+    }
+
+    @Test
+    void testLogLevelFiltersPartialOutput() throws Exception {
+        startServer(progressTool());
+        HttpURLConnection init = postJson("/mcp", "{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"initialize\","
+                + "\"params\":{}}", null);
+        assertEquals(200, init.getResponseCode());
+        String sessionId = init.getHeaderField("Mcp-Session-Id");
+        JsonNode capabilities = MAPPER.readTree(init.getInputStream()).get("result").get("capabilities");
+        assertTrue(capabilities.has("logging"));
+
+        HttpURLConnection invalid = postJson("/mcp", "{\"jsonrpc\":\"2.0\",\"id\":2,\"method\":\"logging/setLevel\","
+                + "\"params\":{\"level\":\"loud\"}}", sessionId);
+        assertEquals(-32602, MAPPER.readTree(invalid.getInputStream()).get("error").get("code").asInt());
+
+        HttpURLConnection setLevel = postJson("/mcp", "{\"jsonrpc\":\"2.0\",\"id\":3,\"method\":\"logging/setLevel\","
+                + "\"params\":{\"level\":\"warning\"}}", sessionId);
+        assertTrue(MAPPER.readTree(setLevel.getInputStream()).has("result"));
+
+        String callRequest = "{\"jsonrpc\":\"2.0\",\"id\":4,\"method\":\"tools/call\","
+                + "\"params\":{\"name\":\"progress_tool\",\"arguments\":{\"steps\":2},"
+                + "\"_meta\":{\"progressToken\":\"p-2\"}}}";
+        HttpURLConnection conn = postJson("/mcp", callRequest, sessionId);
+        assertEquals(200, conn.getResponseCode());
+        List<JsonNode> events = readEvents(conn.getInputStream());
+        assertEquals(4, events.get(events.size() - 1).get("id").asInt());
+        for (JsonNode event : events.subList(0, events.size() - 1)) {
+            assertEquals("notifications/progress", event.get("method").asText());
+        }
+        conn.disconnect();
+    }
+
+    @Test
+    void testGetOpensSessionEventStream() throws Exception {
+        String sessionId = initialize();
+
+        URL url = new URL("http://localhost:" + port + "/mcp");
+        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+        conn.setRequestMethod("GET");
+        conn.setRequestProperty("Accept", "text/event-stream");
+        conn.setRequestProperty("Mcp-Session-Id", sessionId);
+
+        assertEquals(200, conn.getResponseCode());
+        assertEquals("text/event-stream", conn.getContentType());
+        assertTrue(server.sendNotification(sessionId, "notifications/message",
+                Collections.singletonMap("data", "hello")));
+
+        BufferedReader reader = new BufferedReader(
+                new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8));
+        String line = reader.readLine();
+        assertTrue(line.startsWith("data: "), line);
+        JsonNode event = MAPPER.readTree(line.substring("data: ".length()));
+        assertEquals("notifications/message", event.get("method").asText());
+        assertEquals("hello", event.get("params").get("data").asText());
+
+        assertFalse(server.sendNotification("unknown-session", "notifications/message", null));
+        conn.disconnect();
+    }
+
+    @Test
+    void testMetricsEndpoint() throws Exception {
+        startServer(asyncTool());
+        String sessionId = initialize();
+        postJson("/mcp", "{\"jsonrpc\":\"2.0\",\"id\":2,\"method\":\"tools/call\","
+                + "\"params\":{\"name\":\"test_tool\",\"arguments\":{}}}", sessionId).getResponseCode();
+        postJson("/mcp", "{\"jsonrpc\":\"2.0\",\"id\":3,\"method\":\"tools/call\","
+                + "\"params\":{\"name\":\"test_tool_async\",\"arguments\":{\"fail\":true}}}", sessionId)
+                .getResponseCode();
+
+        HttpURLConnection conn = (HttpURLConnection) new URL("http://localhost:" + port + "/metrics").openConnection();
+        assertEquals(200, conn.getResponseCode());
+        assertTrue(conn.getContentType().startsWith("text/plain; version=0.0.4"));
+        StringBuilder text = new StringBuilder();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                text.append(line).append('\n');
+            }
+        }
+        String metrics = text.toString();
+
+        assertTrue(metrics.contains("# TYPE mcp4j_tool_calls_total counter"));
+        assertTrue(metrics.contains("mcp4j_tool_calls_total{tool=\"test_tool\"} 1\n"));
+        assertTrue(metrics.contains("mcp4j_tool_errors_total{tool=\"test_tool_async\"} 1\n"));
+        assertTrue(metrics.contains("mcp4j_tool_call_duration_seconds{tool=\"test_tool\",quantile=\"0.99\"}"));
+        assertTrue(metrics.contains("mcp4j_requests_total{method=\"initialize\"} 1\n"));
+        assertTrue(metrics.contains("mcp4j_requests_total{method=\"tools/call\"} 2\n"));
+        assertTrue(metrics.contains("mcp4j_sessions 1\n"));
+    }
+
+    @Test
+    void testCancelledToolCallIsInterrupted() throws Exception {
+        startServer(slowTool());
+        String sessionId = initialize();
+
+        String callRequest = "{\"jsonrpc\":\"2.0\",\"id\":9,\"method\":\"tools/call\","
+                + "\"params\":{\"name\":\"slow_tool\",\"arguments\":{\"sleepMillis\":30000}}}";
+        CompletableFuture<JsonNode> call = CompletableFuture.supplyAsync(() -> {
+            try {
+                HttpURLConnection conn = postJson("/mcp", callRequest, sessionId);
+                return MAPPER.readTree(conn.getInputStream());
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        assertTrue(toolStarted.await(5, TimeUnit.SECONDS));
+
+        String cancel = "{\"jsonrpc\":\"2.0\",\"method\":\"notifications/cancelled\","
+                + "\"params\":{\"requestId\":9,\"reason\":\"user aborted\"}}";
+        HttpURLConnection conn = postJson("/mcp", cancel, sessionId);
+        assertEquals(202, conn.getResponseCode());
+        conn.disconnect();
+
+        assertTrue(toolInterrupted.await(5, TimeUnit.SECONDS), "handler thread must be interrupted");
+        JsonNode response = call.get(5, TimeUnit.SECONDS);
+        assertEquals(9, response.get("id").asInt());
+        assertTrue(response.get("result").get("isError").asBoolean());
+    }
+
+    @Test
+    void testLargeToolResultIsStreamed() throws Exception {
+        startServer(largeTool());
+        String sessionId = initialize();
+
+        String callRequest = "{\"jsonrpc\":\"2.0\",\"id\":4,\"method\":\"tools/call\","
+                + "\"params\":{\"name\":\"large_tool\",\"arguments\":{\"size\":200000}}}";
+        HttpURLConnection conn = postJson("/mcp", callRequest, sessionId);
+
+        assertEquals(200, conn.getResponseCode());
+        assertEquals("application/json", conn.getContentType());
+        JsonNode response = MAPPER.readTree(conn.getInputStream());
+        assertEquals(4, response.get("id").asInt());
+        assertEquals(200000, response.get("result").get("content").get(0).get("text").asText().length());
+
+        conn.disconnect();
+    }
+
+    @Test
+    void testLargeResultIsCompressedWhenAccepted() throws Exception {
+        startServer(largeTool());
+        String sessionId = initialize();
+
+        String callRequest = "{\"jsonrpc\":\"2.0\",\"id\":4,\"method\":\"tools/call\","
+                + "\"params\":{\"name\":\"large_tool\",\"arguments\":{\"size\":200000}}}";
+        HttpURLConnection gzip = post("http://localhost:" + port + "/mcp", callRequest, sessionId, "gzip, deflate");
+        assertEquals(200, gzip.getResponseCode());
+        assertEquals("gzip", gzip.getHeaderField("Content-Encoding"));
+        assertEquals("Accept-Encoding", gzip.getHeaderField("Vary"));
+        JsonNode response = MAPPER.readTree(new GZIPInputStream(gzip.getInputStream()));
+        assertEquals(200000, response.get("result").get("content").get(0).get("text").asText().length());
+        gzip.disconnect();
+
+        HttpURLConnection deflate = post("http://localhost:" + port + "/mcp", callRequest, sessionId,
+                "gzip;q=0.5, deflate");
+        assertEquals(200, deflate.getResponseCode());
+        assertEquals("deflate", deflate.getHeaderField("Content-Encoding"));
+        response = MAPPER.readTree(new InflaterInputStream(deflate.getInputStream()));
+        assertEquals(200000, response.get("result").get("content").get(0).get("text").asText().length());
+        deflate.disconnect();
+
+        HttpURLConnection identity = post("http://localhost:" + port + "/mcp", callRequest, sessionId,
+                "gzip;q=0, deflate;q=0");
+        assertEquals(200, identity.getResponseCode());
+        assertNull(identity.getHeaderField("Content-Encoding"));
+        identity.disconnect();
+    }
+
+    @Test
+    void testSmallResponseIsNotCompressed() throws Exception {
+        String sessionId = initialize();
+
+        HttpURLConnection conn = post("http://localhost:" + port + "/mcp",
+                "{\"jsonrpc\":\"2.0\",\"id\":5,\"method\":\"ping\"}", sessionId, "gzip");
+        assertEquals(200, conn.getResponseCode());
+        assertNull(conn.getHeaderField("Content-Encoding"));
+        assertEquals(5, MAPPER.readTree(conn.getInputStream()).get("id").asInt());
+        conn.disconnect();
+    }
+
+    @Test
+    void testCompressedRequestBodyIsInflated() throws Exception {
+        String sessionId = initialize();
+
+        // 40 KB of arguments fits the 64 KB limit once inflated
+        char[] blob = new char[40000];
+        Arrays.fill(blob, 'x');
+        String callRequest = "{\"jsonrpc\":\"2.0\",\"id\":6,\"method\":\"tools/call\","
+                + "\"params\":{\"name\":\"test_tool\",\"arguments\":{\"blob\":\"" + new String(blob) + "\"}}}";
+        HttpURLConnection gzip = postEncoded(callRequest, sessionId, "gzip");
+        assertEquals(200, gzip.getResponseCode());
+        assertEquals(6, MAPPER.readTree(gzip.getInputStream()).get("id").asInt());
+        gzip.disconnect();
+
+        HttpURLConnection deflate = postEncoded(callRequest, sessionId, "deflate");
+        assertEquals(200, deflate.getResponseCode());
+        assertEquals(6, MAPPER.readTree(deflate.getInputStream()).get("id").asInt());
+        deflate.disconnect();
+    }
+
+    @Test
+    void testCompressedRequestBodyIsCappedAfterInflating() throws Exception {
+        String sessionId = initialize();
+
+        // Compresses to about 1 KB but inflates well past the 64 KB limit
+        char[] padding = new char[1024 * 1024];
+        Arrays.fill(padding, ' ');
+        HttpURLConnection bomb = postEncoded(new String(padding) + "{\"jsonrpc\":\"2.0\",\"id\":7,\"method\":\"ping\"}",
+                sessionId, "gzip");
+        assertEquals(413, bomb.getResponseCode());
+        bomb.disconnect();
+
+        HttpURLConnection unsupported = post("http://localhost:" + port + "/mcp",
+                "{\"jsonrpc\":\"2.0\",\"id\":8,\"method\":\"ping\"}", sessionId, null, "br");
+        assertEquals(415, unsupported.getResponseCode());
+        assertEquals("gzip, deflate", unsupported.getHeaderField("Accept-Encoding"));
+        unsupported.disconnect();
+    }
+
     @Test
     void testNotificationReturns202() throws Exception {
         String sessionId = initialize();
@@ -156,6 +518,90 @@ public class McpServerTest {
         conn2.disconnect();
     }
 
+    @Test
+    void testSessionQuotaPerAddressReturns429() throws Exception {
+        List<String> sessions = new ArrayList<>();
+        for (int i = 0; i < SESSIONS_PER_ADDRESS; i++) {
+            sessions.add(initialize());
+        }
+        String initRequest = "{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"initialize\",\"params\":{}}";
+        HttpURLConnection conn = postJson("/mcp", initRequest, null);
+        assertEquals(429, conn.getResponseCode());
+        assertNotNull(conn.getHeaderField("Retry-After"));
+        assertNull(conn.getHeaderField("Mcp-Session-Id"));
+        conn.disconnect();
+
+        // Ending a session frees its place in the quota
+        URL url = new URL("http://localhost:" + port + "/mcp");
+        HttpURLConnection delete = (HttpURLConnection) url.openConnection();
+        delete.setRequestMethod("DELETE");
+        delete.setRequestProperty("Mcp-Session-Id", sessions.get(0));
+        assertEquals(204, delete.getResponseCode());
+        delete.disconnect();
+        initialize();
+    }
+
+    @Test
+    void testStatelessSessionsWorkAcrossServers() throws Exception {
+        byte[] key = "0123456789abcdef0123456789abcdef".getBytes(StandardCharsets.UTF_8);
+        List<McpServer> servers = new ArrayList<>();
+        try {
+            for (int i = 0; i < 2; i++) {
+                McpServer stateless = configure(McpServer.builder())
+                        .port(0)
+                        .transport(transport())
+                        .sessionSigningKey(key)
+                        .tool(Tool.builder()
+                                .name("test_tool")
+                                .description("A test tool")
+                                .handler(params -> "success")
+                                .build())
+                        .build();
+                stateless.start();
+                servers.add(stateless);
+            }
+            String initRequest = "{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"initialize\",\"params\":{}}";
+            HttpURLConnection init = post(servers.get(0).getAddress(), initRequest, null);
+            assertEquals(200, init.getResponseCode());
+            String sessionId = init.getHeaderField("Mcp-Session-Id");
+            init.getInputStream().close();
+
+            // The other server has never seen the session but can verify it
+            String list = "{\"jsonrpc\":\"2.0\",\"id\":2,\"method\":\"tools/list\",\"params\":{}}";
+            HttpURLConnection conn = post(servers.get(1).getAddress(), list, sessionId);
+            assertEquals(200, conn.getResponseCode());
+            conn.getInputStream().close();
+
+            String forged = sessionId.substring(0, 10) + (sessionId.charAt(10) == 'A' ? 'B' : 'A')
+                    + sessionId.substring(11);
+            HttpURLConnection rejected = post(servers.get(1).getAddress(), list, forged);
+            assertEquals(404, rejected.getResponseCode());
+            rejected.disconnect();
+
+            HttpURLConnection delete = (HttpURLConnection) new URL(servers.get(1).getAddress()).openConnection();
+            delete.setRequestMethod("DELETE");
+            delete.setRequestProperty("Mcp-Session-Id", sessionId);
+            assertEquals(405, delete.getResponseCode());
+            delete.disconnect();
+        } finally {
+            for (McpServer stateless : servers) {
+                stateless.stop();
+            }
+        }
+    }
+
+    @Test
+    void testServerCanBeRestarted() throws Exception {
+        initialize();
+        server.stop();
+        server.start();
+
+        String sessionId = initialize();
+        HttpURLConnection conn = postJson("/mcp", "{\"jsonrpc\":\"2.0\",\"id\":2,\"method\":\"ping\"}", sessionId);
+        assertEquals(200, conn.getResponseCode());
+        conn.disconnect();
+    }
+
     @Test
     void testGetReturns405() throws Exception {
         URL url = new URL("http://localhost:" + port + "/mcp");
@@ -181,8 +627,210 @@ public class McpServerTest {
         conn.disconnect();
     }
 
+    @Test
+    void testBatchResponsesInOrder() throws Exception {
+        startServer(asyncTool());
+        String sessionId = initialize();
+
+        String batch = "["
+                + "{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"ping\"},"
+                + "{\"jsonrpc\":\"2.0\",\"method\":\"notifications/initialized\"},"
+                + "{\"jsonrpc\":\"2.0\",\"id\":2,\"method\":\"tools/call\","
+                + "\"params\":{\"name\":\"test_tool\",\"arguments\":{}}},"
+                + "{\"jsonrpc\":\"2.0\",\"id\":3,\"method\":\"tools/call\","
+                + "\"params\":{\"name\":\"test_tool_async\",\"arguments\":{}}},"
+                + "42]";
+        HttpURLConnection conn = postJson("/mcp", batch, sessionId);
+
+        assertEquals(200, conn.getResponseCode());
+        JsonNode responses = MAPPER.readTree(conn.getInputStream());
+        assertTrue(responses.isArray());
+        assertEquals(4, responses.size());
+        assertEquals(1, responses.get(0).get("id").asInt());
+        assertEquals(2, responses.get(1).get("id").asInt());
+        assertEquals("success", responses.get(1).get("result").get("content").get(0).get("text").asText());
+        assertEquals(3, responses.get(2).get("id").asInt());
+        assertEquals("async success", responses.get(2).get("result").get("content").get(0).get("text").asText());
+        assertEquals(-32600, responses.get(3).get("error").get("code").asInt());
+
+        conn.disconnect();
+    }
+
+    @Test
+    void testBatchRunsAdditiveIdempotentCallsTogether() throws Exception {
+        startServer(rendezvousTool("add_tag", ToolAnnotations.builder().idempotent(true).destructive(false).build()),
+                rendezvousTool("set_value", ToolAnnotations.builder().idempotent(true).build()));
+        String sessionId = initialize();
+
+        assertEquals(Arrays.asList("together", "together"), callTwiceInBatch("add_tag", sessionId));
+        // An idempotent overwrite still depends on order
+        assertEquals(Arrays.asList("alone", "alone"), callTwiceInBatch("set_value", sessionId));
+    }
+
+    private List<String> callTwiceInBatch(String tool, String sessionId) throws Exception {
+        // Distinct arguments, so that the two calls are not coalesced into one
+        String call = "{\"jsonrpc\":\"2.0\",\"id\":%1$d,\"method\":\"tools/call\","
+                + "\"params\":{\"name\":\"" + tool + "\",\"arguments\":{\"n\":%1$d}}}";
+        HttpURLConnection conn = postJson("/mcp", "[" + String.format(call, 1) + "," + String.format(call, 2) + "]",
+                sessionId);
+        assertEquals(200, conn.getResponseCode());
+        List<String> results = new ArrayList<>();
+        for (JsonNode response : MAPPER.readTree(conn.getInputStream())) {
+            results.add(response.get("result").get("content").get(0).get("text").asText());
+        }
+        conn.disconnect();
+        return results;
+    }
+
+    @Test
+    void testBatchOfNotificationsReturns202() throws Exception {
+        String sessionId = initialize();
+
+        String batch = "[{\"jsonrpc\":\"2.0\",\"method\":\"notifications/initialized\"}]";
+        HttpURLConnection conn = postJson("/mcp", batch, sessionId);
+
+        assertEquals(202, conn.getResponseCode());
+        conn.disconnect();
+    }
+
+    @Test
+    void testEmptyBatchIsInvalidRequest() throws Exception {
+        String sessionId = initialize();
+
+        HttpURLConnection conn = postJson("/mcp", "[]", sessionId);
+
+        assertEquals(200, conn.getResponseCode());
+        JsonNode response = MAPPER.readTree(conn.getInputStream());
+        assertEquals(-32600, response.get("error").get("code").asInt());
+        conn.disconnect();
+    }
+
+    @Test
+    void testOversizeBodyReturns413() throws Exception {
+        String sessionId = initialize();
+
+        HttpURLConnection conn = postJson("/mcp", pingWithPadding(100 * 1024), sessionId);
+        assertEquals(413, conn.getResponseCode());
+        conn.disconnect();
+    }
+
+    @Test
+    void testOversizeChunkedBodyReturns413() throws Exception {
+        String sessionId = initialize();
+
+        URL url = new URL("http://localhost:" + port + "/mcp");
+        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+        conn.setRequestMethod("POST");
+        conn.setDoOutput(true);
+        conn.setChunkedStreamingMode(4096);
+        conn.setRequestProperty("Content-Type", "application/json");
+        conn.setRequestProperty("Mcp-Session-Id", sessionId);
+        try (OutputStream os = conn.getOutputStream()) {
+            os.write(pingWithPadding(100 * 1024).getBytes(StandardCharsets.UTF_8));
+        }
+
+        assertEquals(413, conn.getResponseCode());
+        conn.disconnect();
+    }
+
     // --- helpers ---
 
+    protected static Tool slowTool() {
+        return Tool.builder()
+                .name("slow_tool")
+                .description("Sleeps for sleepMillis")
+                .handler(params -> {
+                    toolStarted.countDown();
+                    try {
+                        Thread.sleep(((Number) params.get("sleepMillis")).longValue());
+                    } catch (InterruptedException e) {
+                        toolInterrupted.countDown();
+                        throw e;
+                    }
+                    return "success";
+                })
+                .build();
+    }
+
+    private static Tool largeTool() {
+        return Tool.builder()
+                .name("large_tool")
+                .description("Returns size characters")
+                .handler(params -> padding(((Number) params.get("size")).intValue()))
+                .build();
+    }
+
+    private static Tool progressTool() {
+        return Tool.builder()
+                .name("progress_tool")
+                .description("Reports steps partial results")
+                .handler(params -> {
+                    int steps = ((Number) params.get("steps")).intValue();
+                    for (int i = 1; i <= steps; i++) {
+                        ToolContext.current().partial("step " + i);
+                        ToolContext.current().progress(i, (double) steps, null);
+                    }
+                    return "success";
+                })
+                .build();
+    }
+
+    /**
+     * Answers "together" if another call of it arrives while it waits, "alone" otherwise.
+     */
+    private static Tool rendezvousTool(String name, ToolAnnotations annotations) {
+        AtomicReference<CountDownLatch> arrivals = new AtomicReference<>(new CountDownLatch(2));
+        return Tool.builder()
+                .name(name)
+                .description("Waits briefly for a second concurrent call")
+                .annotations(annotations)
+                .handler(params -> {
+                    CountDownLatch latch = arrivals.get();
+                    latch.countDown();
+                    boolean together = latch.await(500, TimeUnit.MILLISECONDS);
+                    arrivals.compareAndSet(latch, new CountDownLatch(2));
+                    return together ? "together" : "alone";
+                })
+                .build();
+    }
+
+    private static Tool asyncTool() {
+        return Tool.builder()
+                .name("test_tool_async")
+                .description("A test tool completing on another thread")
+                .asyncHandler(params -> CompletableFuture.supplyAsync(() -> {
+                    if (params.containsKey("fail")) {
+                        throw new IllegalStateException("downstream unavailable");
+                    }
+                    return "async success";
+                }))
+                .build();
+    }
+
+    private static String pingWithPadding(int size) {
+        return "{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"ping\",\"padding\":\"" + padding(size) + "\"}";
+    }
+
+    private static String padding(int size) {
+        StringBuilder padding = new StringBuilder(size);
+        for (int i = 0; i < size; i++) {
+            padding.append('x');
+        }
+        return padding.toString();
+    }
+
+    protected McpServer.Builder configure(McpServer.Builder builder) {
+        return builder;
+    }
+
+    protected TransportType transport() {
+        return TransportType.JDK;
+    }
+
+    protected String initializeSession() throws Exception {
+        return initialize();
+    }
+
     private String initialize() throws Exception {
         String initRequest = "{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"initialize\","
                 + "\"params\":{\"protocolVersion\":\"2025-03-26\","
@@ -196,8 +844,48 @@ public class McpServerTest {
         return sessionId;
     }
 
-    private HttpURLConnection postJson(String path, String body, String sessionId) throws Exception {
-        URL url = new URL("http://localhost:" + port + path);
+    private static List<JsonNode> readEvents(InputStream in) throws Exception {
+        List<JsonNode> events = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.startsWith("data: ")) {
+                events.add(MAPPER.readTree(line.substring("data: ".length())));
+            }
+        }
+        return events;
+    }
+
+    protected HttpURLConnection postJson(String path, String body, String sessionId) throws Exception {
+        return post("http://localhost:" + port + path, body, sessionId);
+    }
+
+    protected static HttpURLConnection post(String address, String body, String sessionId) throws Exception {
+        return post(address, body, sessionId, null);
+    }
+
+    private static HttpURLConnection post(String address, String body, String sessionId, String acceptEncoding)
+            throws Exception {
+        return post(address, body.getBytes(StandardCharsets.UTF_8), sessionId, acceptEncoding, null);
+    }
+
+    private static HttpURLConnection post(String address, String body, String sessionId, String acceptEncoding,
+                                          String contentEncoding) throws Exception {
+        return post(address, body.getBytes(StandardCharsets.UTF_8), sessionId, acceptEncoding, contentEncoding);
+    }
+
+    private HttpURLConnection postEncoded(String body, String sessionId, String contentEncoding) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream os = "gzip".equals(contentEncoding)
+                ? new GZIPOutputStream(bytes) : new DeflaterOutputStream(bytes)) {
+            os.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+        return post("http://localhost:" + port + "/mcp", bytes.toByteArray(), sessionId, null, contentEncoding);
+    }
+
+    private static HttpURLConnection post(String address, byte[] body, String sessionId, String acceptEncoding,
+                                          String contentEncoding) throws Exception {
+        URL url = new URL(address);
         HttpURLConnection conn = (HttpURLConnection) url.openConnection();
         conn.setRequestMethod("POST");
         conn.setDoOutput(true);
@@ -206,8 +894,14 @@ public class McpServerTest {
         if (sessionId != null) {
             conn.setRequestProperty("Mcp-Session-Id", sessionId);
         }
+        if (acceptEncoding != null) {
+            conn.setRequestProperty("Accept-Encoding", acceptEncoding);
+        }
+        if (contentEncoding != null) {
+            conn.setRequestProperty("Content-Encoding", contentEncoding);
+        }
         try (OutputStream os = conn.getOutputStream()) {
-            os.write(body.getBytes(StandardCharsets.UTF_8));
+            os.write(body);
         }
         return conn;
     }
@@ -0,0 +1,188 @@
+package me.afoo.mcp4j.server;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import me.afoo.mcp4j.tool.Tool;
+import me.afoo.mcp4j.transport.TransportType;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the McpServerTest suite against the NIO transport, plus HTTP framing cases specific to it.
+ */
+public class NioMcpServerTest extends McpServerTest {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    public NioMcpServerTest() {
+        this.port = 8082;
+    }
+
+    @Override
+    protected TransportType transport() {
+        return TransportType.NIO;
+    }
+
+    @Test
+    void testChunkedRequestBody() throws Exception {
+        String sessionId = initializeSession();
+
+        URL url = new URL("http://localhost:" + port + "/mcp");
+        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+        conn.setRequestMethod("POST");
+        conn.setDoOutput(true);
+        conn.setChunkedStreamingMode(16);
+        conn.setRequestProperty("Content-Type", "application/json");
+        conn.setRequestProperty("Mcp-Session-Id", sessionId);
+        try (OutputStream os = conn.getOutputStream()) {
+            os.write("{\"jsonrpc\":\"2.0\",\"id\":7,\"method\":\"ping\"}".getBytes(StandardCharsets.UTF_8));
+        }
+
+        assertEquals(200, conn.getResponseCode());
+        JsonNode response = MAPPER.readTree(conn.getInputStream());
+        assertEquals(7, response.get("id").asInt());
+        conn.disconnect();
+    }
+
+    @Test
+    void testPipelinedRequestsOnOneConnection() throws Exception {
+        String body = "{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"initialize\",\"params\":{}}";
+        String request = "POST /mcp HTTP/1.1\r\nHost: localhost\r\nContent-Type: application/json\r\n"
+                + "Content-Length: " + body.length() + "\r\n\r\n" + body;
+
+        try (Socket socket = new Socket("localhost", port)) {
+            OutputStream os = socket.getOutputStream();
+            os.write((request + request).getBytes(StandardCharsets.UTF_8));
+            os.flush();
+
+            InputStream is = socket.getInputStream();
+            StringBuilder received = new StringBuilder();
+            byte[] buffer = new byte[4096];
+            while (countOccurrences(received.toString(), "HTTP/1.1 200") < 2) {
+                int n = is.read(buffer);
+                assertTrue(n > 0, "connection closed before both responses arrived");
+                received.append(new String(buffer, 0, n, StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    @Test
+    void testClientDisconnectCancelsToolCall() throws Exception {
+        startServer(slowTool());
+        String sessionId = initializeSession();
+        String body = "{\"jsonrpc\":\"2.0\",\"id\":11,\"method\":\"tools/call\","
+                + "\"params\":{\"name\":\"slow_tool\",\"arguments\":{\"sleepMillis\":30000}}}";
+        String request = "POST /mcp HTTP/1.1\r\nHost: localhost\r\nContent-Type: application/json\r\n"
+                + "Mcp-Session-Id: " + sessionId + "\r\n"
+                + "Content-Length: " + body.length() + "\r\n\r\n" + body;
+
+        try (Socket socket = new Socket("localhost", port)) {
+            OutputStream os = socket.getOutputStream();
+            os.write(request.getBytes(StandardCharsets.UTF_8));
+            os.flush();
+            assertTrue(toolStarted.await(5, TimeUnit.SECONDS));
+            // Abortive close: a clean one is indistinguishable from a half-close
+            socket.setSoLinger(true, 0);
+        }
+
+        assertTrue(toolInterrupted.await(5, TimeUnit.SECONDS), "hanging up must cancel the running tool");
+    }
+
+    @Test
+    void testHalfClosedClientGetsResponse() throws Exception {
+        String body = "{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"initialize\",\"params\":{}}";
+        String request = "POST /mcp HTTP/1.0\r\nHost: localhost\r\nContent-Type: application/json\r\n"
+                + "Content-Length: " + body.length() + "\r\n\r\n" + body;
+
+        try (Socket socket = new Socket("localhost", port)) {
+            socket.getOutputStream().write(request.getBytes(StandardCharsets.UTF_8));
+            socket.shutdownOutput();
+            String received = readUntilClosed(socket);
+            assertTrue(received.startsWith("HTTP/1.1 200"), received);
+            assertTrue(received.contains("\"id\":1"), received);
+        }
+    }
+
+    @Test
+    void testQuotaRejectionHasReasonPhrase() throws Exception {
+        for (int i = 0; i < SESSIONS_PER_ADDRESS; i++) {
+            initializeSession();
+        }
+        HttpURLConnection conn = postJson("/mcp",
+                "{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"initialize\",\"params\":{}}", null);
+        assertEquals(429, conn.getResponseCode());
+        assertEquals("Too Many Requests", conn.getResponseMessage());
+        conn.disconnect();
+    }
+
+    @Test
+    void testConnectionLimitsAndCounters() throws Exception {
+        McpServer limited = McpServer.builder()
+                .port(0)
+                .transport(TransportType.NIO)
+                .maxRequestsPerConnection(2)
+                .idleConnectionTimeout(Duration.ofMillis(300))
+                .tool(Tool.builder().name("noop").description("Does nothing").handler(params -> "ok").build())
+                .build();
+        limited.start();
+        try {
+            int limitedPort = new URL(limited.getAddress()).getPort();
+            String body = "{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"initialize\",\"params\":{}}";
+            String request = "POST /mcp HTTP/1.1\r\nHost: localhost\r\nContent-Type: application/json\r\n"
+                    + "Content-Length: " + body.length() + "\r\n\r\n" + body;
+
+            // The second request is the last one allowed: it is answered with Connection: close
+            try (Socket socket = new Socket("localhost", limitedPort)) {
+                socket.getOutputStream().write((request + request + request).getBytes(StandardCharsets.UTF_8));
+                String received = readUntilClosed(socket);
+                assertEquals(2, countOccurrences(received, "HTTP/1.1 200"));
+                assertEquals(1, countOccurrences(received, "Connection: close"));
+            }
+
+            // An idle connection is closed once the idle timeout passes
+            try (Socket socket = new Socket("localhost", limitedPort)) {
+                socket.getOutputStream().write(request.getBytes(StandardCharsets.UTF_8));
+                long start = System.nanoTime();
+                String received = readUntilClosed(socket);
+                assertEquals(1, countOccurrences(received, "HTTP/1.1 200"));
+                assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(300), "closed before idle timeout");
+            }
+
+            StringBuilder metrics = new StringBuilder();
+            limited.getMetrics().writePrometheus(metrics);
+            assertTrue(metrics.toString().contains("mcp4j_connections_opened_total 2"), metrics.toString());
+            assertTrue(metrics.toString().contains("mcp4j_connections_reused_total 1"), metrics.toString());
+        } finally {
+            limited.stop();
+        }
+    }
+
+    private static String readUntilClosed(Socket socket) throws Exception {
+        socket.setSoTimeout(5000);
+        InputStream is = socket.getInputStream();
+        StringBuilder received = new StringBuilder();
+        byte[] buffer = new byte[4096];
+        int n;
+        while ((n = is.read(buffer)) > 0) {
+            received.append(new String(buffer, 0, n, StandardCharsets.UTF_8));
+        }
+        return received.toString();
+    }
+
+    private static int countOccurrences(String text, String token) {
+        int count = 0;
+        for (int i = text.indexOf(token); i >= 0; i = text.indexOf(token, i + 1)) {
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,86 @@
+package me.afoo.mcp4j.server;
+
+import me.afoo.mcp4j.tool.Tool;
+import org.junit.jupiter.api.Test;
+
+import java.net.HttpURLConnection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the McpServerTest suite with the virtual-thread executor mode and a concurrency cap.
+ * On runtimes before JDK 21 this exercises the fixed-pool fallback.
+ */
+public class VirtualThreadMcpServerTest extends McpServerTest {
+
+    public VirtualThreadMcpServerTest() {
+        this.port = 8083;
+    }
+
+    @Override
+    protected McpServer.Builder configure(McpServer.Builder builder) {
+        return builder.executorMode(ExecutorMode.VIRTUAL_THREADS).maxConcurrentRequests(4);
+    }
+
+    @Test
+    void testConcurrencyLimitCoversAsyncToolsAndRejects() throws Exception {
+        CompletableFuture<Object> pending = new CompletableFuture<>();
+        CountDownLatch started = new CountDownLatch(1);
+        McpServer limited = McpServer.builder()
+                .port(0)
+                .executorMode(ExecutorMode.VIRTUAL_THREADS)
+                .maxConcurrentRequests(1)
+                .tool(Tool.builder().name("pending").description("Waits for the test")
+                        .asyncHandler(params -> {
+                            started.countDown();
+                            return pending;
+                        }).build())
+                .build();
+        limited.start();
+        try {
+            String address = limited.getAddress();
+            HttpURLConnection init = post(address,
+                    "{\"jsonrpc\":\"2.0\",\"id\":1,\"method\":\"initialize\",\"params\":{}}", null);
+            assertEquals(200, init.getResponseCode());
+            String sessionId = init.getHeaderField("Mcp-Session-Id");
+            String call = "{\"jsonrpc\":\"2.0\",\"id\":2,\"method\":\"tools/call\","
+                    + "\"params\":{\"name\":\"pending\",\"arguments\":{}}}";
+            String ping = "{\"jsonrpc\":\"2.0\",\"id\":3,\"method\":\"ping\"}";
+
+            CompletableFuture<Integer> first = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return post(address, call, sessionId).getResponseCode();
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            // The handler has returned, but its pending result still holds the only permit
+            HttpURLConnection rejected = post(address, ping, sessionId);
+            assertEquals(503, rejected.getResponseCode());
+            assertEquals("1", rejected.getHeaderField("Retry-After"));
+
+            pending.complete("done");
+            assertEquals(200, first.get(5, TimeUnit.SECONDS));
+            // The permit is returned right after the response is written
+            int status = 503;
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (status == 503 && System.nanoTime() < deadline) {
+                status = post(address, ping, sessionId).getResponseCode();
+            }
+            assertEquals(200, status);
+        } finally {
+            limited.stop();
+        }
+    }
+
+    @Test
+    void testVirtualThreadsAvailableOnJdk21() {
+        String version = System.getProperty("java.specification.version");
+        boolean jdk21 = !version.startsWith("1.") && Integer.parseInt(version) >= 21;
+        assertEquals(jdk21, VirtualThreads.isSupported());
+    }
+}
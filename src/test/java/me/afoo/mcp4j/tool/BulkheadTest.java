@@ -0,0 +1,89 @@
+package me.afoo.mcp4j.tool;
+
+import me.afoo.mcp4j.protocol.mcp.ToolsCallResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BulkheadTest {
+
+    @Test
+    void testQueuesThenRejectsWhenSaturated() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ToolRegistry registry = new ToolRegistry();
+        registry.register(Tool.builder()
+                .name("slow")
+                .bulkhead(Bulkhead.builder().name("slow").maxConcurrent(1).maxQueued(1).build())
+                .handler(params -> {
+                    started.countDown();
+                    release.await();
+                    return "done";
+                })
+                .build());
+        ToolExecutor executor = new ToolExecutor(registry);
+
+        CompletableFuture<ToolsCallResult> running = executor.executeAsync("slow", Collections.emptyMap());
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<ToolsCallResult> queued = executor.executeAsync("slow", Collections.emptyMap());
+        assertThrows(Bulkhead.BulkheadFullException.class,
+                () -> executor.executeAsync("slow", Collections.emptyMap()));
+
+        release.countDown();
+        assertEquals("done", running.get(5, TimeUnit.SECONDS).getContent().get(0).getText());
+        assertEquals("done", queued.get(5, TimeUnit.SECONDS).getContent().get(0).getText());
+        assertEquals(0, registry.getTool("slow").getBulkhead().getInFlight());
+    }
+
+    @Test
+    void testSaturatedToolDoesNotBlockOtherTools() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        ToolRegistry registry = new ToolRegistry();
+        registry.register(Tool.builder()
+                .name("slow")
+                .bulkhead(Bulkhead.builder().name("slow-group").maxConcurrent(2).build())
+                .handler(params -> {
+                    release.await();
+                    return "slow";
+                })
+                .build());
+        registry.register(Tool.builder().name("fast").handler(params -> "fast").build());
+        ToolExecutor executor = new ToolExecutor(registry);
+
+        // Callers are not held while the slow calls run on the bulkhead's threads
+        CompletableFuture<ToolsCallResult> first = executor.executeAsync("slow", Collections.emptyMap());
+        CompletableFuture<ToolsCallResult> second = executor.executeAsync("slow", Collections.emptyMap());
+        assertThrows(Bulkhead.BulkheadFullException.class,
+                () -> executor.executeAsync("slow", Collections.emptyMap()));
+        assertEquals("fast", executor.execute("fast", Collections.emptyMap()).getContent().get(0).getText());
+
+        release.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testAsyncCallHoldsSlotUntilFutureCompletes() throws Exception {
+        CompletableFuture<Object> pending = new CompletableFuture<>();
+        ToolRegistry registry = new ToolRegistry();
+        registry.register(Tool.builder()
+                .name("remote")
+                .bulkhead(Bulkhead.builder().name("remote").maxConcurrent(1).build())
+                .asyncHandler(params -> pending)
+                .build());
+        ToolExecutor executor = new ToolExecutor(registry);
+
+        CompletableFuture<ToolsCallResult> call = executor.executeAsync("remote", Collections.emptyMap());
+        assertThrows(Bulkhead.BulkheadFullException.class,
+                () -> executor.executeAsync("remote", Collections.emptyMap()));
+
+        pending.complete("ok");
+        assertEquals("ok", call.get(5, TimeUnit.SECONDS).getContent().get(0).getText());
+        assertEquals(0, registry.getTool("remote").getBulkhead().getInFlight());
+    }
+}
@@ -0,0 +1,93 @@
+package me.afoo.mcp4j.tool;
+
+import me.afoo.mcp4j.protocol.mcp.ToolsCallResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ToolCancellationTest {
+
+    @Test
+    void testCancelInterruptsSynchronousHandler() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        ToolRegistry registry = new ToolRegistry();
+        registry.register(Tool.builder()
+                .name("slow")
+                .bulkhead(Bulkhead.builder().name("cancel-test").maxConcurrent(1).build())
+                .handler(params -> {
+                    started.countDown();
+                    try {
+                        Thread.sleep(30_000);
+                    } catch (InterruptedException e) {
+                        assertTrue(ToolContext.current().isCancelled());
+                        interrupted.countDown();
+                        throw e;
+                    }
+                    return "finished";
+                })
+                .build());
+        ToolExecutor executor = new ToolExecutor(registry);
+
+        CompletableFuture<ToolsCallResult> call = executor.executeAsync("slow", Collections.emptyMap(),
+                ToolContext.builder().sessionId("s1").requestId(1).toolName("slow").build());
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        assertFalse(executor.cancel("s2", 1), "other sessions cannot cancel the call");
+        assertTrue(executor.cancel("s1", 1L));
+
+        ToolsCallResult result = call.get(5, TimeUnit.SECONDS);
+        assertTrue(result.getIsError());
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        assertFalse(executor.cancel("s1", 1), "a cancelled call is no longer in flight");
+    }
+
+    @Test
+    void testCancelCompletesAsyncCallAndCancelsHandlerFuture() throws Exception {
+        CompletableFuture<Object> downstream = new CompletableFuture<>();
+        ToolRegistry registry = new ToolRegistry();
+        registry.register(Tool.builder()
+                .name("remote")
+                .asyncHandler(params -> downstream)
+                .build());
+        ToolExecutor executor = new ToolExecutor(registry);
+
+        CompletableFuture<ToolsCallResult> call = executor.executeAsync("remote", Collections.emptyMap(),
+                ToolContext.builder().sessionId("s1").requestId("req-1").toolName("remote").build());
+        assertFalse(call.isDone());
+
+        assertTrue(executor.cancel("s1", "req-1"));
+        assertTrue(call.get(5, TimeUnit.SECONDS).getIsError());
+        assertTrue(downstream.isCancelled());
+        assertThrows(CancellationException.class, downstream::join);
+    }
+
+    @Test
+    void testContextOutsideOfCallKeepsNoCallbacks() {
+        ToolContext none = ToolContext.current();
+        boolean[] ran = new boolean[1];
+        none.onCancel(() -> ran[0] = true);
+
+        assertFalse(none.cancel());
+        assertFalse(none.isCancelled());
+        assertFalse(ran[0]);
+    }
+
+    @Test
+    void testCompletedCallIsNotTracked() {
+        ToolRegistry registry = new ToolRegistry();
+        registry.register(Tool.builder().name("fast").handler(params -> "ok").build());
+        ToolExecutor executor = new ToolExecutor(registry);
+
+        ToolsCallResult result = executor.executeAsync("fast", Collections.emptyMap(),
+                ToolContext.builder().sessionId("s1").requestId(3).build()).join();
+        assertEquals("ok", result.getContent().get(0).getText());
+        assertFalse(executor.cancel("s1", 3));
+    }
+}
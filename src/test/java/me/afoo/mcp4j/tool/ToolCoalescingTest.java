@@ -0,0 +1,132 @@
+package me.afoo.mcp4j.tool;
+
+import me.afoo.mcp4j.protocol.mcp.ToolAnnotations;
+import me.afoo.mcp4j.protocol.mcp.ToolsCallResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ToolCoalescingTest {
+    private final AtomicInteger calls = new AtomicInteger();
+    private final List<CompletableFuture<Object>> pending = Collections.synchronizedList(new ArrayList<>());
+    private final List<ToolContext> contexts = Collections.synchronizedList(new ArrayList<>());
+    private final ToolRegistry registry = new ToolRegistry();
+    private final ToolExecutor executor = new ToolExecutor(registry);
+
+    private void register(String name, boolean idempotent) {
+        registry.register(Tool.builder()
+                .name(name)
+                .annotations(ToolAnnotations.builder().idempotent(idempotent).build())
+                .asyncHandler(params -> {
+                    calls.incrementAndGet();
+                    contexts.add(ToolContext.current());
+                    CompletableFuture<Object> future = new CompletableFuture<>();
+                    pending.add(future);
+                    return future;
+                })
+                .build());
+    }
+
+    private CompletableFuture<ToolsCallResult> call(String name, Map<String, Object> args, int requestId) {
+        return executor.executeAsync(name, args,
+                ToolContext.builder().sessionId("s" + requestId).requestId(requestId).toolName(name).build());
+    }
+
+    @Test
+    void testConcurrentIdenticalCallsShareOneExecution() throws Exception {
+        register("fetch", true);
+
+        List<CompletableFuture<ToolsCallResult>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            results.add(call("fetch", Collections.singletonMap("url", "https://example.com"), i));
+        }
+        CompletableFuture<ToolsCallResult> other = call("fetch", Collections.singletonMap("url", "https://other"), 99);
+
+        assertEquals(2, calls.get());
+        assertEquals(7, executor.getCoalescedCount());
+
+        pending.get(0).complete("page");
+        for (CompletableFuture<ToolsCallResult> result : results) {
+            assertEquals("page", result.get(5, TimeUnit.SECONDS).getContent().get(0).getText());
+        }
+        assertFalse(other.isDone());
+
+        // Once finished, the next identical call runs the handler again
+        call("fetch", Collections.singletonMap("url", "https://example.com"), 100);
+        assertEquals(3, calls.get());
+    }
+
+    @Test
+    void testCancellingOneCallerKeepsSharedExecutionRunning() throws Exception {
+        register("fetch", true);
+        Map<String, Object> args = Collections.singletonMap("url", "https://example.com");
+
+        CompletableFuture<ToolsCallResult> first = call("fetch", args, 1);
+        CompletableFuture<ToolsCallResult> second = call("fetch", args, 2);
+        assertEquals(1, calls.get());
+
+        assertTrue(executor.cancel("s1", 1));
+        assertTrue(first.get(5, TimeUnit.SECONDS).getIsError());
+        assertFalse(pending.get(0).isCancelled(), "the other caller still waits for the result");
+
+        assertTrue(executor.cancel("s2", 2));
+        assertTrue(second.get(5, TimeUnit.SECONDS).getIsError());
+        assertTrue(pending.get(0).isCancelled(), "the handler is cancelled once every caller has gone");
+
+        // A cancelled execution is not joined
+        call("fetch", args, 3);
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void testSharedExecutionReportsToEveryWaitingCaller() {
+        register("fetch", true);
+        Map<String, Object> args = Collections.singletonMap("url", "https://example.com");
+        List<Object> firstTokens = new ArrayList<>();
+        List<Object> secondTokens = new ArrayList<>();
+
+        executor.executeAsync("fetch", args, streaming(1, "first", firstTokens));
+        executor.executeAsync("fetch", args, streaming(2, "second", secondTokens));
+        call("fetch", args, 3);
+        assertEquals(1, calls.get());
+        ToolContext shared = contexts.get(0);
+        assertEquals("s1", shared.getSessionId());
+
+        shared.progress(1, 2.0, null);
+        assertEquals(Collections.singletonList("first"), firstTokens);
+        assertEquals(Collections.singletonList("second"), secondTokens);
+
+        // A caller that has left hears nothing more
+        assertTrue(executor.cancel("s1", 1));
+        shared.progress(2, 2.0, null);
+        assertEquals(Collections.singletonList("first"), firstTokens);
+        assertEquals(Arrays.asList("second", "second"), secondTokens);
+    }
+
+    private static ToolContext streaming(int requestId, Object progressToken, List<Object> tokens) {
+        return ToolContext.builder().sessionId("s" + requestId).requestId(requestId).toolName("fetch")
+                .progressToken(progressToken)
+                .sink((method, params, droppable) -> tokens.add(((Map<?, ?>) params).get("progressToken")))
+                .build();
+    }
+
+    @Test
+    void testNonIdempotentToolsAreNotCoalesced() {
+        register("append", false);
+        Map<String, Object> args = Collections.singletonMap("line", "x");
+
+        call("append", args, 1);
+        call("append", args, 2);
+        assertEquals(2, calls.get());
+        assertEquals(0, executor.getCoalescedCount());
+    }
+}
@@ -0,0 +1,122 @@
+package me.afoo.mcp4j.tool;
+
+import me.afoo.mcp4j.protocol.mcp.ToolAnnotations;
+import me.afoo.mcp4j.protocol.mcp.ToolsCallResult;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ToolResultCacheTest {
+    private static final ToolAnnotations PURE = ToolAnnotations.builder().readOnly(true).idempotent(true).build();
+
+    private final AtomicInteger calls = new AtomicInteger();
+    private final ToolRegistry registry = new ToolRegistry();
+
+    private ToolExecutor executor(Duration ttl, int cacheSize) {
+        registry.register(Tool.builder()
+                .name("lookup")
+                .annotations(PURE)
+                .cacheTtl(ttl)
+                .handler(params -> {
+                    if (params.containsKey("fail")) {
+                        calls.incrementAndGet();
+                        throw new IllegalStateException("boom");
+                    }
+                    return "result-" + calls.incrementAndGet();
+                })
+                .build());
+        return new ToolExecutor(registry, null, new ToolResultCache(cacheSize));
+    }
+
+    private static Map<String, Object> args(Object... keysAndValues) {
+        Map<String, Object> args = new LinkedHashMap<>();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            args.put((String) keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return args;
+    }
+
+    private static String text(ToolsCallResult result) {
+        return result.getContent().get(0).getText();
+    }
+
+    @Test
+    void testIdenticalArgumentsHitTheCache() {
+        ToolExecutor executor = executor(Duration.ofMinutes(1), 16);
+
+        Map<String, Object> nested = new HashMap<>();
+        nested.put("y", 2);
+        nested.put("x", Arrays.asList(1, "two"));
+        String first = text(executor.execute("lookup", args("a", 1, "b", nested)));
+
+        Map<String, Object> reordered = new LinkedHashMap<>();
+        reordered.put("x", Arrays.asList(1.0, "two"));
+        reordered.put("y", 2L);
+        String second = text(executor.execute("lookup", args("b", reordered, "a", 1.0)));
+
+        assertEquals(first, second, "key order and number representation do not matter");
+        assertEquals(1, calls.get());
+        assertEquals(1, executor.getResultCache().getHitCount());
+        assertEquals(1, executor.getResultCache().getMissCount());
+
+        assertNotEquals(first, text(executor.execute("lookup", args("a", 2, "b", nested))));
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void testEntriesExpireAfterTtl() throws Exception {
+        ToolExecutor executor = executor(Duration.ofMillis(50), 16);
+
+        executor.execute("lookup", args("q", "x"));
+        executor.execute("lookup", args("q", "x"));
+        assertEquals(1, calls.get());
+
+        Thread.sleep(100);
+        executor.execute("lookup", args("q", "x"));
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void testErrorsAreNotCached() {
+        ToolExecutor executor = executor(Duration.ofMinutes(1), 16);
+
+        assertTrue(executor.execute("lookup", args("fail", true)).getIsError());
+        assertTrue(executor.execute("lookup", args("fail", true)).getIsError());
+        assertEquals(2, calls.get());
+        assertEquals(0, executor.getResultCache().size());
+    }
+
+    @Test
+    void testLeastRecentlyUsedEntryIsEvicted() {
+        ToolExecutor executor = executor(Duration.ofMinutes(1), 2);
+
+        executor.execute("lookup", args("q", 1));
+        executor.execute("lookup", args("q", 2));
+        executor.execute("lookup", args("q", 1));
+        executor.execute("lookup", args("q", 3));
+        assertEquals(3, calls.get());
+        assertEquals(1, executor.getResultCache().getEvictionCount());
+
+        executor.execute("lookup", args("q", 1));
+        assertEquals(3, calls.get(), "recently used entry survives");
+        executor.execute("lookup", args("q", 2));
+        assertEquals(4, calls.get(), "least recently used entry was evicted");
+    }
+
+    @Test
+    void testCacheTtlRequiresReadOnlyIdempotentTool() {
+        assertThrows(IllegalArgumentException.class, () -> Tool.builder()
+                .name("write")
+                .annotations(ToolAnnotations.builder().readOnly(true).build())
+                .cacheTtl(Duration.ofMinutes(1))
+                .handler(params -> "ok")
+                .build());
+    }
+}
@@ -0,0 +1,131 @@
+package me.afoo.mcp4j.tool;
+
+import me.afoo.mcp4j.protocol.mcp.ToolsCallResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ToolTimeoutTest {
+    private final ToolRegistry registry = new ToolRegistry();
+    private ToolExecutor executor;
+
+    @AfterEach
+    void tearDown() {
+        if (executor != null) {
+            executor.close();
+        }
+    }
+
+    @Test
+    void testDefaultTimeoutInterruptsHungHandler() throws Exception {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        registry.register(Tool.builder()
+                .name("hang")
+                .handler(params -> {
+                    try {
+                        Thread.sleep(30_000);
+                    } catch (InterruptedException e) {
+                        interrupted.countDown();
+                        throw e;
+                    }
+                    return "finished";
+                })
+                .build());
+        executor = new ToolExecutor(registry, Duration.ofMillis(100));
+
+        // A synchronous handler without a bulkhead runs on the calling thread
+        CompletableFuture<ToolsCallResult> call = CompletableFuture.supplyAsync(
+                () -> executor.executeAsync("hang", Collections.emptyMap())).thenCompose(f -> f);
+
+        ToolsCallResult result = call.get(5, TimeUnit.SECONDS);
+        assertTrue(result.getIsError());
+        assertTrue(result.getContent().get(0).getText().contains("timed out after 100 ms"));
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        assertEquals(1, executor.getTimedOutCount());
+    }
+
+    @Test
+    void testToolTimeoutOverridesDefault() throws Exception {
+        CompletableFuture<Object> never = new CompletableFuture<>();
+        registry.register(Tool.builder()
+                .name("remote")
+                .timeout(Duration.ofMillis(100))
+                .asyncHandler(params -> never)
+                .build());
+        executor = new ToolExecutor(registry, Duration.ofMinutes(10));
+
+        ToolsCallResult result = executor.executeAsync("remote", Collections.emptyMap()).get(5, TimeUnit.SECONDS);
+        assertTrue(result.getIsError());
+        // The result is answered first; the handler is cancelled right after
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!never.isCancelled() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(never.isCancelled(), "the handler's future is cancelled on expiry");
+        assertEquals(1, executor.getTimedOutCount());
+    }
+
+    @Test
+    void testExpiryRunsOnGivenExecutor() throws Exception {
+        registry.register(Tool.builder()
+                .name("remote")
+                .asyncHandler(params -> new CompletableFuture<>())
+                .build());
+        ExecutorService serverThreads = Executors.newSingleThreadExecutor(r -> new Thread(r, "server-worker"));
+        try {
+            executor = new ToolExecutor(registry, Duration.ofMillis(50), null, null, serverThreads);
+            CompletableFuture<String> completedOn = executor.executeAsync("remote", Collections.emptyMap())
+                    .thenApply(r -> Thread.currentThread().getName());
+            assertEquals("server-worker", completedOn.get(5, TimeUnit.SECONDS));
+        } finally {
+            serverThreads.shutdown();
+        }
+    }
+
+    @Test
+    void testZeroToolTimeoutDisablesDefault() throws Exception {
+        registry.register(Tool.builder()
+                .name("slow")
+                .timeout(Duration.ZERO)
+                .asyncHandler(params -> CompletableFuture.supplyAsync(() -> {
+                    sleep(300);
+                    return "done";
+                }))
+                .build());
+        executor = new ToolExecutor(registry, Duration.ofMillis(50));
+
+        ToolsCallResult result = executor.executeAsync("slow", Collections.emptyMap()).get(5, TimeUnit.SECONDS);
+        assertNull(result.getIsError());
+        assertEquals("done", result.getContent().get(0).getText());
+        assertEquals(0, executor.getTimedOutCount());
+    }
+
+    @Test
+    void testFastCallIsNotTimedOut() throws Exception {
+        registry.register(Tool.builder().name("fast").handler(params -> "ok").build());
+        executor = new ToolExecutor(registry, Duration.ofMillis(50));
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals("ok", executor.execute("fast", Collections.emptyMap()).getContent().get(0).getText());
+        }
+        Thread.sleep(200);
+        assertEquals(0, executor.getTimedOutCount());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
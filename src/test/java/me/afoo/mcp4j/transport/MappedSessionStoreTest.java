@@ -0,0 +1,140 @@
+package me.afoo.mcp4j.transport;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MappedSessionStoreTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void testCreateTouchRemove() throws Exception {
+        MappedSessionStore store = new MappedSessionStore(dir.resolve("sessions"), 16);
+        try {
+            long expiresAt = System.currentTimeMillis() + 60_000;
+            assertTrue(store.create("a", expiresAt));
+            assertEquals(expiresAt, store.getExpiry("a"));
+            assertEquals(-1, store.getExpiry("b"));
+
+            store.touch("a", expiresAt + 1000);
+            assertEquals(expiresAt + 1000, store.getExpiry("a"), "buffered touch must be visible locally");
+            store.flush();
+            assertEquals(expiresAt + 1000, store.getExpiry("a"));
+
+            store.remove("a");
+            assertEquals(-1, store.getExpiry("a"));
+
+            assertTrue(store.create("expired", System.currentTimeMillis() - 1));
+            assertEquals(-1, store.getExpiry("expired"));
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    void testSessionsSurviveReopenAndAreShared() throws Exception {
+        Path file = dir.resolve("sessions");
+        long expiresAt = System.currentTimeMillis() + 60_000;
+        MappedSessionStore first = new MappedSessionStore(file, 16);
+        first.create("kept", expiresAt);
+        first.close();
+
+        MappedSessionStore reopened = new MappedSessionStore(file, 1024);
+        MappedSessionStore other = new MappedSessionStore(file, 1024);
+        try {
+            assertEquals(expiresAt, reopened.getExpiry("kept"));
+
+            other.create("shared", expiresAt);
+            assertEquals(expiresAt, reopened.getExpiry("shared"));
+            other.touch("shared", expiresAt + 5000);
+            assertEquals(expiresAt, reopened.getExpiry("shared"), "touches are only shared once flushed");
+            other.flush();
+            assertEquals(expiresAt + 5000, reopened.getExpiry("shared"));
+
+            reopened.remove("shared");
+            assertEquals(-1, other.getExpiry("shared"));
+        } finally {
+            reopened.close();
+            other.close();
+        }
+    }
+
+    @Test
+    void testBusySessionIsFoundWhileOtherStoresWrite() throws Exception {
+        Path file = dir.resolve("sessions");
+        MappedSessionStore reader = new MappedSessionStore(file, 1024);
+        MappedSessionStore writer = new MappedSessionStore(file, 1024);
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        try {
+            long expiresAt = System.currentTimeMillis() + 60_000;
+            assertTrue(reader.create("busy", expiresAt));
+            // Keeps extending the busy session and churning others, both under the file lock
+            Thread churn = new Thread(() -> {
+                try {
+                    for (int i = 0; !done.get(); i++) {
+                        writer.touch("busy", expiresAt + i);
+                        writer.create("other" + (i % 64), expiresAt);
+                        writer.flush();
+                        writer.remove("other" + ((i + 32) % 64));
+                    }
+                } catch (Throwable t) {
+                    failure.set(t);
+                }
+            });
+            churn.start();
+            long end = System.currentTimeMillis() + 300;
+            for (int i = 0; System.currentTimeMillis() < end; i++) {
+                assertTrue(reader.getExpiry("busy") >= expiresAt, "busy session missed during a flush");
+                if (i % 100 == 0) {
+                    // Both stores take the file lock concurrently
+                    assertTrue(reader.create("mine", expiresAt));
+                }
+            }
+            done.set(true);
+            churn.join();
+            assertNull(failure.get());
+        } finally {
+            done.set(true);
+            reader.close();
+            writer.close();
+        }
+    }
+
+    @Test
+    void testFullStoreRefusesAndReusesSlots() throws Exception {
+        MappedSessionStore store = new MappedSessionStore(dir.resolve("sessions"), 2);
+        try {
+            long expiresAt = System.currentTimeMillis() + 60_000;
+            // Two sessions get a table of four slots
+            for (int i = 0; i < 4; i++) {
+                assertTrue(store.create("s" + i, expiresAt));
+            }
+            assertFalse(store.create("s4", expiresAt));
+
+            store.remove("s2");
+            assertTrue(store.create("s4", expiresAt));
+            for (String id : new String[] {"s0", "s1", "s3", "s4"}) {
+                assertEquals(expiresAt, store.getExpiry(id), id);
+            }
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    void testRejectsForeignFile() throws Exception {
+        Path file = dir.resolve("not-a-store");
+        Files.write(file, "hello, this is not a session store".getBytes(StandardCharsets.UTF_8));
+        assertThrows(IOException.class, () -> new MappedSessionStore(file, 16));
+    }
+}
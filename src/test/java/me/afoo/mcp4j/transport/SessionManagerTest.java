@@ -0,0 +1,221 @@
+package me.afoo.mcp4j.transport;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SessionManagerTest {
+    // 320 ms timeout gives the minimum 10 ms tick
+    private final SessionManager sessions = new SessionManager(320);
+
+    @AfterEach
+    void tearDown() {
+        sessions.shutdown();
+    }
+
+    @Test
+    void testIdleSessionIsSweptWithoutBeingAccessed() throws Exception {
+        String id = sessions.createSession();
+        assertTrue(sessions.isValidSession(id));
+        assertEquals(1, sessions.getSessionCount());
+
+        awaitSessionCount(0, 2000);
+        assertFalse(sessions.isValidSession(id));
+    }
+
+    @Test
+    void testAccessKeepsSessionAlive() throws Exception {
+        String id = sessions.createSession();
+        long end = System.currentTimeMillis() + 800;
+        while (System.currentTimeMillis() < end) {
+            assertTrue(sessions.isValidSession(id), "session expired while in use");
+            Thread.sleep(50);
+        }
+        assertEquals(1, sessions.getSessionCount());
+
+        awaitSessionCount(0, 2000);
+    }
+
+    @Test
+    void testRemoveSession() {
+        String id = sessions.createSession();
+        sessions.removeSession(id);
+        assertFalse(sessions.isValidSession(id));
+        assertEquals(0, sessions.getSessionCount());
+        assertFalse(sessions.isValidSession(null));
+    }
+
+    @Test
+    void testRejectAtSessionCap() {
+        SessionManager capped = new SessionManager(60_000, 2, SessionLimitPolicy.REJECT, 0);
+        try {
+            String first = capped.createSession();
+            capped.createSession();
+            SessionManager.SessionLimitException e =
+                    assertThrows(SessionManager.SessionLimitException.class, capped::createSession);
+            assertFalse(e.isAddressQuota());
+            assertTrue(e.getRetryAfterSeconds() > 0);
+            assertEquals(1, capped.getRejectionCount());
+
+            capped.removeSession(first);
+            assertNotNull(capped.createSession());
+            assertEquals(2, capped.getSessionCount());
+        } finally {
+            capped.shutdown();
+        }
+    }
+
+    @Test
+    void testEvictionSparesRecentlyUsedSessions() throws Exception {
+        // 320 ms timeout: the coarse clock moves every 10 ms
+        SessionManager capped = new SessionManager(320, 3, SessionLimitPolicy.EVICT_LEAST_RECENTLY_USED, 0);
+        try {
+            String oldest = capped.createSession();
+            String idle = capped.createSession();
+            String newest = capped.createSession();
+            Thread.sleep(50);
+            assertTrue(capped.isValidSession(oldest));
+
+            capped.createSession();
+            assertEquals(1, capped.getEvictionCount());
+            assertEquals(3, capped.getSessionCount());
+            assertTrue(capped.isValidSession(oldest), "recently used session was evicted");
+            assertFalse(capped.isValidSession(idle));
+            assertTrue(capped.isValidSession(newest));
+        } finally {
+            capped.shutdown();
+        }
+    }
+
+    @Test
+    void testPerAddressQuota() {
+        SessionManager quota = new SessionManager(60_000, 0, SessionLimitPolicy.REJECT, 2);
+        try {
+            String first = quota.createSession("10.0.0.1");
+            quota.createSession("10.0.0.1");
+            SessionManager.SessionLimitException e = assertThrows(SessionManager.SessionLimitException.class,
+                    () -> quota.createSession("10.0.0.1"));
+            assertTrue(e.isAddressQuota());
+            assertEquals(1, quota.getAddressRejectionCount());
+
+            // Other addresses and callers without an address are not affected
+            assertNotNull(quota.createSession("10.0.0.2"));
+            assertNotNull(quota.createSession());
+
+            quota.removeSession(first);
+            assertNotNull(quota.createSession("10.0.0.1"));
+        } finally {
+            quota.shutdown();
+        }
+    }
+
+    @Test
+    void testStoppedManagerCanBeUsedAgain() throws Exception {
+        sessions.createSession();
+        sessions.stop();
+        assertEquals(0, sessions.getSessionCount());
+
+        // Expiry starts again with the next session
+        String id = sessions.createSession();
+        assertTrue(sessions.isValidSession(id));
+        awaitSessionCount(0, 2000);
+
+        SessionManager capped = new SessionManager(60_000, 1, SessionLimitPolicy.REJECT, 1);
+        try {
+            capped.createSession("10.0.0.1");
+            capped.stop();
+            // Stopping gave back the slot and the address quota
+            String again = capped.createSession("10.0.0.1");
+            assertTrue(capped.isValidSession(again));
+        } finally {
+            capped.shutdown();
+        }
+    }
+
+    @Test
+    void testSessionsSurviveRestartWithStore(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("sessions");
+        SessionManager before = new SessionManager(60_000, 0, SessionLimitPolicy.REJECT, 0,
+                new MappedSessionStore(file, 64));
+        String kept = before.createSession();
+        String deleted = before.createSession();
+        before.removeSession(deleted);
+        before.shutdown();
+
+        SessionManager after = new SessionManager(60_000, 0, SessionLimitPolicy.REJECT, 0,
+                new MappedSessionStore(file, 64));
+        try {
+            assertTrue(after.isValidSession(kept));
+            assertEquals(1, after.getSessionCount());
+            assertFalse(after.isValidSession(deleted));
+            assertFalse(after.isValidSession("unknown"));
+        } finally {
+            after.shutdown();
+        }
+    }
+
+    @Test
+    void testUseOnAnotherServerKeepsSessionAlive() throws Exception {
+        InMemorySessionStore store = new InMemorySessionStore();
+        SessionManager a = new SessionManager(320, 0, SessionLimitPolicy.REJECT, 0, store);
+        SessionManager b = new SessionManager(320, 0, SessionLimitPolicy.REJECT, 0, store);
+        try {
+            String id = a.createSession();
+            long end = System.currentTimeMillis() + 800;
+            while (System.currentTimeMillis() < end) {
+                assertTrue(b.isValidSession(id), "session expired while in use");
+                Thread.sleep(50);
+            }
+            // Idle on a for longer than the timeout, but b's touches reached the store
+            assertTrue(a.isValidSession(id));
+
+            b.removeSession(id);
+            assertFalse(store.getExpiry(id) > 0);
+        } finally {
+            a.shutdown();
+            b.shutdown();
+        }
+    }
+
+    @Test
+    void testStatelessTokens() throws Exception {
+        byte[] key = "0123456789abcdef0123456789abcdef".getBytes(StandardCharsets.UTF_8);
+        SessionManager issuer = SessionManager.stateless(200, key);
+        SessionManager verifier = SessionManager.stateless(200, key);
+        SessionManager stranger = SessionManager.stateless(200, "fedcba9876543210fedcba9876543210".getBytes(StandardCharsets.UTF_8));
+        try {
+            String token = issuer.createSession();
+            assertTrue(issuer.isStateless());
+            assertTrue(verifier.isValidSession(token));
+            assertFalse(stranger.isValidSession(token));
+            assertEquals(0, issuer.getSessionCount());
+
+            char[] tampered = token.toCharArray();
+            tampered[3] = tampered[3] == 'x' ? 'y' : 'x';
+            assertFalse(verifier.isValidSession(new String(tampered)));
+            assertFalse(verifier.isValidSession("not a token"));
+            assertFalse(verifier.isValidSession(sessions.createSession()));
+
+            Thread.sleep(250);
+            assertFalse(verifier.isValidSession(token), "token outlived its lifetime");
+        } finally {
+            issuer.shutdown();
+            verifier.shutdown();
+            stranger.shutdown();
+        }
+        assertThrows(IllegalArgumentException.class, () -> SessionManager.stateless(1000, new byte[16]));
+    }
+
+    private void awaitSessionCount(int expected, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (sessions.getSessionCount() != expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, sessions.getSessionCount());
+    }
+}